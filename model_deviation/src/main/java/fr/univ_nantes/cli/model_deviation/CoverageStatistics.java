@@ -0,0 +1,68 @@
+package fr.univ_nantes.cli.model_deviation;
+
+import fr.univ_nantes.stats.monte_carlo.noise.ReplicateRandomFactory;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Per test point statistics of the leave-one-out simulation, accumulated by a single worker.
+ */
+public class CoverageStatistics {
+    private ShapeStat[] ellipsesFromRegression;
+    private ShapeStat[] ellipsesFromLoo;
+    private ShapeStat[] disksFromLoo;
+
+    /**
+     * @param randomFactory random sources of the quantile sketches, one stream per shape of each test point
+     */
+    public CoverageStatistics(int nbTestPoints, ReplicateRandomFactory randomFactory) {
+        ellipsesFromRegression = new ShapeStat[nbTestPoints];
+        ellipsesFromLoo = new ShapeStat[nbTestPoints];
+        disksFromLoo = new ShapeStat[nbTestPoints];
+        for(int i = 0; i < nbTestPoints; i++) {
+            ellipsesFromRegression[i] = new ShapeStat(randomFactory.getFrom(3 * i));
+            ellipsesFromLoo[i] = new ShapeStat(randomFactory.getFrom(3 * i + 1));
+            disksFromLoo[i] = new ShapeStat(randomFactory.getFrom(3 * i + 2));
+        }
+    }
+
+    public ShapeStat[] getEllipsesFromRegression() {
+        return ellipsesFromRegression;
+    }
+
+    public ShapeStat[] getEllipsesFromLoo() {
+        return ellipsesFromLoo;
+    }
+
+    public ShapeStat[] getDisksFromLoo() {
+        return disksFromLoo;
+    }
+
+    /**
+     * Largest half width of the 95% confidence interval of the analytic and leave-one-out coverages.
+     */
+    public double getMaxCoverageHalfWidth() {
+        double halfWidth = 0;
+        for(int i = 0; i < ellipsesFromRegression.length; i++) {
+            for(ShapeStat shapeStat : new ShapeStat[] { ellipsesFromRegression[i], disksFromLoo[i] }) {
+                halfWidth = Math.max(halfWidth, SequentialStoppingRule.getProportionHalfWidth(shapeStat.getCounter(), shapeStat.getN()));
+            }
+        }
+        return halfWidth;
+    }
+
+    /**
+     * Combines the statistics of every worker in the order of the list, test points being merged in parallel.
+     */
+    public static CoverageStatistics merge(List<CoverageStatistics> partials, int nbTestPoints, ReplicateRandomFactory randomFactory) {
+        CoverageStatistics result = new CoverageStatistics(nbTestPoints, randomFactory);
+        IntStream.range(0, nbTestPoints).parallel().forEach(i -> {
+            for(CoverageStatistics partial : partials) {
+                result.ellipsesFromRegression[i].merge(partial.ellipsesFromRegression[i]);
+                result.ellipsesFromLoo[i].merge(partial.ellipsesFromLoo[i]);
+                result.disksFromLoo[i].merge(partial.disksFromLoo[i]);
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,286 @@
+package fr.univ_nantes.cli.model_deviation;
+
+import Jama.Matrix;
+import fr.univ_nantes.cli.model_deviation.loo.LeaveOneOutEngine;
+import fr.univ_nantes.cli.model_deviation.loo.LeaveOneOutResult;
+import fr.univ_nantes.cli.model_deviation.model.BatchCovarianceEstimator;
+import fr.univ_nantes.cli.model_deviation.model.EllipseEvaluator;
+import fr.univ_nantes.cli.model_deviation.noise.GaussianNoiseSampler;
+import fr.univ_nantes.stats.monte_carlo.noise.InnovationSequence;
+import fr.univ_nantes.stats.monte_carlo.noise.ReplicateRandomFactory;
+import org.apache.commons.math3.stat.descriptive.rank.Percentile;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.error.CovarianceMatrixComputer;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.FiducialSet;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.Dataset;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.point.Point;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.point.PointFactory;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.registration.RegistrationParameter;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.sequence.SequenceSize;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.RegistrationParameterFactory;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.schema.NoiseModel;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.schema.TransformationSchema;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.schema.TransformationType;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Coverage of the analytic and leave-one-out confidence regions at the test points, for one fiducial set,
+ * transformation model and noise.
+ * Fits, leave-one-out residuals and predicted covariances are computed once per replicate and noise level and
+ * shared by all significance levels : the Mahalanobis distance of each test point is computed once and compared to
+ * the χ² quantile of every level.
+ * Noise levels use common random numbers : the standard normal innovations of a replicate are drawn once and
+ * scaled by the Cholesky factor of each noise covariance.
+ */
+public class LeaveOneOutSimulation {
+
+    public static final String HEADER = "i,model,method,alpha,noise,n,%in,area.mean,area.sd,nearest,area.p5,area.median,area.p95,error.p5,error.median,error.p95";
+
+    // child stream 0 of the replicate random factory holds the Sobol shifts
+    private static final long SKETCH_STREAM = 1;
+
+    private EllipseEvaluator ellipseEvaluator;
+    private BatchCovarianceEstimator batchCovarianceEstimator;
+    private RegistrationParameterFactory registrationParameterFactory;
+    private CovarianceMatrixComputer covarianceMatrixComputer;
+    private PointFactory pointFactory;
+
+    private FiducialSet fiducialSet;
+    private Dataset testSourceDataset;
+    private Dataset testTargetDataset;
+    private TransformationType transformationModel;
+    private NoiseModel noiseModel;
+    private SequenceSize sequenceSize;
+    private float[] alphas;
+    private double[] chiSquared;
+    private GaussianNoiseSampler[] noiseSamplers;
+    private LeaveOneOutEngine leaveOneOutEngine;
+
+    LeaveOneOutSimulation(
+        EllipseEvaluator ellipseEvaluator,
+        BatchCovarianceEstimator batchCovarianceEstimator,
+        RegistrationParameterFactory registrationParameterFactory,
+        CovarianceMatrixComputer covarianceMatrixComputer,
+        PointFactory pointFactory,
+        FiducialSet fiducialSet,
+        Dataset testSourceDataset,
+        Dataset testTargetDataset,
+        TransformationType transformationModel,
+        NoiseModel noiseModel,
+        SequenceSize sequenceSize,
+        float[] alphas,
+        double[] chiSquared,
+        GaussianNoiseSampler[] noiseSamplers,
+        LeaveOneOutEngine leaveOneOutEngine
+    ) {
+        this.ellipseEvaluator = ellipseEvaluator;
+        this.batchCovarianceEstimator = batchCovarianceEstimator;
+        this.registrationParameterFactory = registrationParameterFactory;
+        this.covarianceMatrixComputer = covarianceMatrixComputer;
+        this.pointFactory = pointFactory;
+        this.fiducialSet = fiducialSet;
+        this.testSourceDataset = testSourceDataset;
+        this.testTargetDataset = testTargetDataset;
+        this.transformationModel = transformationModel;
+        this.noiseModel = noiseModel;
+        this.sequenceSize = sequenceSize;
+        this.alphas = alphas;
+        this.chiSquared = chiSquared;
+        this.noiseSamplers = noiseSamplers;
+        this.leaveOneOutEngine = leaveOneOutEngine;
+    }
+
+    public int getNbTestPoints() {
+        return testTargetDataset.getN();
+    }
+
+    public float[] getAlphas() {
+        return alphas;
+    }
+
+    /**
+     * Runs replicates [0, N) on the scheduler workers, replicate k taking the innovations k of the sequence.
+     * Returns the statistics of each noise level and significance level.
+     */
+    public CoverageStatistics[][] run(SimulationScheduler scheduler, int N, InnovationSequence innovationSequence, ReplicateRandomFactory replicateRandomFactory) {
+        return run(scheduler, new SequentialStoppingRule(N, N, 0), innovationSequence, replicateRandomFactory);
+    }
+
+    /**
+     * Runs rounds of replicates until the largest coverage confidence interval half width, over test points,
+     * methods, noise levels and significance levels, reaches the target of the stopping rule.
+     * The quantile sketches draw their random choices from children of replicateRandomFactory keyed by round and
+     * worker, so the percentiles are reproducible for a given seed and number of workers.
+     */
+    public CoverageStatistics[][] run(SimulationScheduler scheduler, SequentialStoppingRule stoppingRule, InnovationSequence innovationSequence, ReplicateRandomFactory replicateRandomFactory) {
+        int nbTestPoints = getNbTestPoints();
+        ReplicateRandomFactory sketchRandomFactory = replicateRandomFactory.getChild(SKETCH_STREAM);
+        CoverageStatistics[][] statistics = newStatistics(nbTestPoints, sketchRandomFactory.getChild(0));
+        int[] round = new int[] { 0 };
+        stoppingRule.run((start, end) -> {
+            ReplicateRandomFactory roundRandomFactory = sketchRandomFactory.getChild(++round[0]);
+            List<CoverageStatistics[][]> partials = scheduler.run(start, end, 1, (int worker) -> newStatistics(nbTestPoints, roundRandomFactory.getChild(worker + 1)), (partial, from, to) -> {
+                for (int k = from; k < to; k++) {
+                    try {
+                        simulate(k, innovationSequence, partial);
+                    } catch (RuntimeException e) {
+                        stoppingRule.reportFailure();
+                        e.printStackTrace();
+                    }
+                }
+            });
+            ReplicateRandomFactory mergedRandomFactory = roundRandomFactory.getChild(0);
+            double halfWidth = 0;
+            for(int j = 0; j < noiseSamplers.length; j++) {
+                for(int a = 0; a < alphas.length; a++) {
+                    List<CoverageStatistics> levelPartials = new ArrayList<>(partials.size() + 1);
+                    levelPartials.add(statistics[j][a]);
+                    for(CoverageStatistics[][] partial : partials) {
+                        levelPartials.add(partial[j][a]);
+                    }
+                    statistics[j][a] = CoverageStatistics.merge(levelPartials, nbTestPoints, mergedRandomFactory.getChild(j * alphas.length + a));
+                    halfWidth = Math.max(halfWidth, statistics[j][a].getMaxCoverageHalfWidth());
+                }
+            }
+            return halfWidth;
+        });
+        return statistics;
+    }
+
+    private CoverageStatistics[][] newStatistics(int nbTestPoints, ReplicateRandomFactory randomFactory) {
+        CoverageStatistics[][] statistics = new CoverageStatistics[noiseSamplers.length][alphas.length];
+        for(int j = 0; j < noiseSamplers.length; j++) {
+            for(int a = 0; a < alphas.length; a++) {
+                statistics[j][a] = new CoverageStatistics(nbTestPoints, randomFactory.getChild(j * alphas.length + a));
+            }
+        }
+        return statistics;
+    }
+
+    public void simulate(long replicate, InnovationSequence innovationSequence, CoverageStatistics[][] statistics) {
+        Dataset target = fiducialSet.getTargetDataset();
+        Dataset source = fiducialSet.getSourceDataset();
+        int dimension = target.getDimension();
+        int sourceOffset = target.getN() * dimension;
+        int testTargetOffset = sourceOffset + source.getN() * dimension;
+        int testSourceOffset = testTargetOffset + testTargetDataset.getN() * dimension;
+        double[] innovations = new double[testSourceOffset + testSourceDataset.getN() * dimension];
+        innovationSequence.fill(replicate, innovations);
+
+        for(int j = 0; j < noiseSamplers.length; j++) {
+            GaussianNoiseSampler noiseSampler = noiseSamplers[j];
+            FiducialSet clone = new FiducialSet(
+                noiseSampler.getNoisy(source, innovations, sourceOffset),
+                noiseSampler.getNoisy(target, innovations, 0)
+            );
+            Dataset targetTestClone = noiseSampler.getNoisy(testTargetDataset, innovations, testTargetOffset);
+            Dataset sourceTestClone = noiseSampler.getNoisy(testSourceDataset, innovations, testSourceOffset);
+            simulate(clone, sourceTestClone, targetTestClone, statistics[j]);
+        }
+    }
+
+    private void simulate(FiducialSet clone, Dataset sourceTestClone, Dataset targetTestClone, CoverageStatistics[] statistics) {
+        LeaveOneOutResult leaveOneOutResult = leaveOneOutEngine.compute(clone);
+        Dataset registrationError = leaveOneOutResult.getRegistrationError();
+        double[] registrationErrorDistance = leaveOneOutResult.getRegistrationErrorDistance();
+
+        Matrix looCovariance = covarianceMatrixComputer.compute(registrationError.getMatrix());
+        Percentile percentile = new Percentile();
+        percentile.setData(registrationErrorDistance);
+        double[] radius = new double[alphas.length];
+        for(int a = 0; a < alphas.length; a++) {
+            radius[a] = percentile.evaluate(alphas[a] * 100);
+        }
+
+        TransformationSchema transformationSchema = new TransformationSchema(clone, transformationModel, noiseModel, sequenceSize, sequenceSize);
+        RegistrationParameter compute = registrationParameterFactory.getFrom(transformationSchema);
+        Matrix[] covariances = batchCovarianceEstimator.getCovariances(transformationModel, transformationSchema, sourceTestClone);
+        double looUnitArea = ellipseEvaluator.getArea(looCovariance, 1);
+
+        for(int i = 0; i < targetTestClone.getN(); i++) {
+            Point sourceTestPoint = sourceTestClone.getPoint(i);
+            Point targetTestPoint = targetTestClone.getPoint(i);
+            Point predictedTargetPoint = compute.getTransformation().apply(sourceTestPoint);
+            double error = targetTestPoint.getDistance(predictedTargetPoint);
+            double looDistance = ellipseEvaluator.getMahalanobisDistance(looCovariance, predictedTargetPoint, targetTestPoint);
+            double distance = ellipseEvaluator.getMahalanobisDistance(covariances[i], predictedTargetPoint, targetTestPoint);
+            double unitArea = ellipseEvaluator.getArea(covariances[i], 1);
+
+            for(int a = 0; a < alphas.length; a++) {
+                statistics[a].getEllipsesFromLoo()[i].updateCounter(looDistance <= chiSquared[a]);
+                statistics[a].getEllipsesFromLoo()[i].updateArea(chiSquared[a] * looUnitArea);
+                statistics[a].getEllipsesFromLoo()[i].updateError(error);
+
+                statistics[a].getDisksFromLoo()[i].updateCounter(error <= radius[a]);
+                statistics[a].getDisksFromLoo()[i].updateArea(ellipseEvaluator.getArea(radius[a]));
+                statistics[a].getDisksFromLoo()[i].updateError(error);
+
+                statistics[a].getEllipsesFromRegression()[i].updateCounter(distance <= chiSquared[a]);
+                statistics[a].getEllipsesFromRegression()[i].updateArea(chiSquared[a] * unitArea);
+                statistics[a].getEllipsesFromRegression()[i].updateError(error);
+            }
+        }
+    }
+
+    /**
+     * Writes the rows of {@link #HEADER}, each one preceded by prefix.
+     */
+    public void write(CoverageStatistics[][] statistics, PrintStream out, String prefix) {
+        List<Point> list = pointFactory.getFrom(fiducialSet.getSourceDataset());
+        String[] noises = new String[noiseSamplers.length];
+        for(int j = 0; j < noiseSamplers.length; j++) {
+            noises[j] = getNoiseLabel(noiseSamplers[j].getCovariance());
+        }
+        for(int i = 0; i < testSourceDataset.getN(); i++) {
+            Point current = testSourceDataset.getPoint(i);
+            double distance = current.getDistance(current.getNearest(list));
+            for(int j = 0; j < noiseSamplers.length; j++) {
+                for(int a = 0; a < alphas.length; a++) {
+                    write(out, prefix, i, "analytic", alphas[a], noises[j], statistics[j][a].getEllipsesFromRegression()[i], distance);
+                    write(out, prefix, i, "leave_one_out", alphas[a], noises[j], statistics[j][a].getDisksFromLoo()[i], distance);
+                }
+            }
+        }
+    }
+
+    /**
+     * Covariance values in the order of the --noise-covariance option.
+     */
+    private String getNoiseLabel(double[][] covariance) {
+        StringBuilder label = new StringBuilder();
+        for(int b = 0; b < covariance.length; b++) {
+            for(int a = 0; a < covariance.length; a++) {
+                if(label.length() > 0) {
+                    label.append(' ');
+                }
+                label.append(String.format(Locale.US, "%s", covariance[a][b]));
+            }
+        }
+        return label.toString();
+    }
+
+    private void write(PrintStream out, String prefix, int i, String method, float alpha, String noise, ShapeStat shapeStat, double distance) {
+        out.println(prefix + String.format(
+            Locale.US,
+            "%d,\"%s\",\"%s\",%s,\"%s\",%d,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f",
+            i,
+            transformationModel.toString().toLowerCase(),
+            method,
+            alpha,
+            noise,
+            fiducialSet.getN(),
+            shapeStat.getRatio() * 100,
+            shapeStat.getArea(),
+            shapeStat.getAreaSd(),
+            distance,
+            shapeStat.getAreaPercentile(5),
+            shapeStat.getAreaPercentile(50),
+            shapeStat.getAreaPercentile(95),
+            shapeStat.getErrorPercentile(5),
+            shapeStat.getErrorPercentile(50),
+            shapeStat.getErrorPercentile(95)
+        ));
+    }
+}
@@ -0,0 +1,79 @@
+package fr.univ_nantes.cli.model_deviation;
+
+import fr.univ_nantes.cli.model_deviation.loo.LeaveOneOutEngineFactory;
+import fr.univ_nantes.cli.model_deviation.model.BatchCovarianceEstimator;
+import fr.univ_nantes.cli.model_deviation.model.EllipseEvaluator;
+import fr.univ_nantes.cli.model_deviation.model.truth.ChiSquaredEstimator;
+import fr.univ_nantes.cli.model_deviation.noise.GaussianNoiseSampler;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.error.CovarianceMatrixComputer;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.FiducialSet;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.Dataset;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.point.PointFactory;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.sequence.SequenceSize;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.RegistrationParameterFactory;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.schema.NoiseModel;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.schema.TransformationType;
+import javax.inject.Inject;
+
+public class LeaveOneOutSimulationFactory {
+
+    private ChiSquaredEstimator chiSquaredEstimator;
+    private EllipseEvaluator ellipseEvaluator;
+    private BatchCovarianceEstimator batchCovarianceEstimator;
+    private RegistrationParameterFactory registrationParameterFactory;
+    private CovarianceMatrixComputer covarianceMatrixComputer;
+    private PointFactory pointFactory;
+    private LeaveOneOutEngineFactory leaveOneOutEngineFactory;
+
+    @Inject
+    public LeaveOneOutSimulationFactory(
+        ChiSquaredEstimator chiSquaredEstimator,
+        EllipseEvaluator ellipseEvaluator,
+        BatchCovarianceEstimator batchCovarianceEstimator,
+        RegistrationParameterFactory registrationParameterFactory,
+        CovarianceMatrixComputer covarianceMatrixComputer,
+        PointFactory pointFactory,
+        LeaveOneOutEngineFactory leaveOneOutEngineFactory
+    ) {
+        this.chiSquaredEstimator = chiSquaredEstimator;
+        this.ellipseEvaluator = ellipseEvaluator;
+        this.batchCovarianceEstimator = batchCovarianceEstimator;
+        this.registrationParameterFactory = registrationParameterFactory;
+        this.covarianceMatrixComputer = covarianceMatrixComputer;
+        this.pointFactory = pointFactory;
+        this.leaveOneOutEngineFactory = leaveOneOutEngineFactory;
+    }
+
+    public LeaveOneOutSimulation getFrom(
+        FiducialSet fiducialSet,
+        Dataset testSourceDataset,
+        Dataset testTargetDataset,
+        TransformationType transformationModel,
+        NoiseModel noiseModel,
+        SequenceSize sequenceSize,
+        float[] alphas,
+        GaussianNoiseSampler[] noiseSamplers
+    ) {
+        double[] chiSquared = new double[alphas.length];
+        for(int a = 0; a < alphas.length; a++) {
+            chiSquared[a] = chiSquaredEstimator.getFrom(fiducialSet, alphas[a]);
+        }
+        return new LeaveOneOutSimulation(
+            ellipseEvaluator,
+            batchCovarianceEstimator,
+            registrationParameterFactory,
+            covarianceMatrixComputer,
+            pointFactory,
+            fiducialSet,
+            testSourceDataset,
+            testTargetDataset,
+            transformationModel,
+            noiseModel,
+            sequenceSize,
+            alphas,
+            chiSquared,
+            noiseSamplers,
+            leaveOneOutEngineFactory.getFrom(transformationModel, noiseModel, sequenceSize, sequenceSize)
+        );
+    }
+}
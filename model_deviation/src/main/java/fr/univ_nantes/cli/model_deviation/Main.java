@@ -1,30 +1,37 @@
 package fr.univ_nantes.cli.model_deviation;
 
 import Jama.Matrix;
+import fr.univ_nantes.cli.model_deviation.batch.AffineReplicateBatch;
 import fr.univ_nantes.cli.model_deviation.model.ShapeEllipseFactory;
 import fr.univ_nantes.cli.model_deviation.model.truth.isotropic.TrueModelConfidenceEllipseFactory;
+import fr.univ_nantes.cli.model_deviation.noise.GaussianNoiseSampler;
+import fr.univ_nantes.stats.monte_carlo.noise.InnovationSequence;
+import fr.univ_nantes.stats.monte_carlo.noise.InnovationSequenceFactory;
+import fr.univ_nantes.stats.monte_carlo.noise.ReplicateRandomFactory;
+import fr.univ_nantes.stats.monte_carlo.noise.SamplerType;
 import icy.sequence.DimensionId;
-import org.apache.commons.math3.stat.descriptive.rank.Percentile;
 import picocli.CommandLine;
 import javax.inject.Inject;
 import java.awt.Shape;
 import java.awt.Rectangle;
 import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.*;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
-import plugins.fr.univ_nantes.ec_clem.ec_clem.error.CovarianceMatrixComputer;
 import plugins.fr.univ_nantes.ec_clem.ec_clem.error.ellipse.ConfidenceEllipseFactory;
-import plugins.fr.univ_nantes.ec_clem.ec_clem.error.ellipse.CovarianceEstimatorFactory;
 import plugins.fr.univ_nantes.ec_clem.ec_clem.error.likelihood_ratio.LikelihoodRatioTest;
 import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.FiducialSet;
 import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.Dataset;
 import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.point.Point;
-import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.point.PointFactory;
 import plugins.fr.univ_nantes.ec_clem.ec_clem.fixtures.fiducialset.TestFiducialSetFactory;
 import plugins.fr.univ_nantes.ec_clem.ec_clem.fixtures.transformation.TestTransformationFactory;
 import plugins.fr.univ_nantes.ec_clem.ec_clem.registration.AffineRegistrationParameterComputer;
@@ -62,17 +69,15 @@ public class Main {
     private ConfidenceEllipseFactory confidenceEllipseFactory;
     private ShapeEllipseFactory shapeEllipseFactory;
     private TrueModelConfidenceEllipseFactory trueModelConfidenceEllipseFactory;
-    private CovarianceEstimatorFactory covarianceEstimatorFactory;
     private RegistrationParameterFactory registrationParameterFactory;
+    private LeaveOneOutSimulationFactory leaveOneOutSimulationFactory;
+    private InnovationSequenceFactory innovationSequenceFactory;
 
     private DatasetToCsvFormatter datasetToCsvFormatter;
     private CsvToDatasetFileReader csvToDatasetFileReader;
     private TransformationToCsvFormatter transformationToCsvFormatter;
     private CsvToMatrixFileReader csvToMatrixFileReader;
 
-    private CovarianceMatrixComputer covarianceMatrixComputer;
-    private PointFactory pointFactory;
-
     @Option(
         names = { "-n" },
         description = "Number of points.\nDefault : ${DEFAULT-VALUE}.",
@@ -82,10 +87,11 @@ public class Main {
 
     @Option(
         names = { "-a", "--alpha" },
-        description = "Significance threshold.\nDefault : ${DEFAULT-VALUE}.",
+        description = "Significance thresholds, comma separated. Simulations evaluate every threshold in the same pass, image only draws the first one.\nDefault : ${DEFAULT-VALUE}.",
+        split = ",",
         defaultValue = "0.95"
     )
-    private float alpha;
+    private float[] alphas;
 
     @Option(
         names = {"--width"},
@@ -124,15 +130,124 @@ public class Main {
 
     @Option(
         names = "--noise-covariance",
-        description = "Noise covariance matrix.\nDefault : ${DEFAULT-VALUE}.",
+        description = "Noise covariance matrix, column wise. Repeat it to simulate several noise levels with common random numbers in leaveOneOutSimulation and sweep, other commands use the first one.\nDefault : ${DEFAULT-VALUE}.",
         arity = "4"
     )
     private double[] noiseCovarianceValues;
 
+    @Option(
+        names = {"--workers"},
+        description = "Number of worker threads, 0 for one per available core.\nDefault : ${DEFAULT-VALUE}.",
+        defaultValue = "0"
+    )
+    private int workers;
+
+    @Option(
+        names = {"--seed"},
+        description = "Master seed of the replicate random streams. For a given seed, results do not depend on the number of workers, except the area and error percentiles of leaveOneOutSimulation and sweep, which are reproducible for a given number of workers.\nDefault : random."
+    )
+    private Long seed;
+
+    @Option(
+        names = {"--precision"},
+        description = "Target precision of bias, likelihood, leaveOneOutSimulation and sweep, -N being then the maximum number of replicates : largest standard error of the mean transformation coefficients (bias), 95% confidence interval half width of the rejection rate (likelihood) or largest one of the coverages (leaveOneOutSimulation, sweep). 0 runs exactly N replicates.\nDefault : ${DEFAULT-VALUE}.",
+        defaultValue = "0"
+    )
+    private double precision;
+
+    @Option(
+        names = {"--round-size"},
+        description = "Number of replicates run between two precision checks.\nDefault : ${DEFAULT-VALUE}.",
+        defaultValue = "1000"
+    )
+    private int roundSize;
+
+    @Option(
+        names = {"--sampler"},
+        description = "Standard normal innovations of the replicates : independent pseudo random draws, antithetic pairs (even N) or randomized Sobol points (N power of two). Only PSEUDO replicates are independent, the others do not support --precision.\nValid values : ${COMPLETION-CANDIDATES}.\nDefault : ${DEFAULT-VALUE}.",
+        defaultValue = "PSEUDO"
+    )
+    private SamplerType samplerType;
+
     public Main() {
         DaggerMainComponent.create().inject(this);
     }
 
+    private List<double[][]> getNoiseCovariances(int dimension) {
+        int size = dimension * dimension;
+        if(noiseCovarianceValues.length % size != 0) {
+            throw new IllegalArgumentException(String.format("Noise covariances must have %d values each", size));
+        }
+        List<double[][]> noiseCovariances = new ArrayList<>();
+        for(int k = 0; k < noiseCovarianceValues.length; k += size) {
+            noiseCovariances.add(new Matrix(Arrays.copyOfRange(noiseCovarianceValues, k, k + size), dimension).getArray());
+        }
+        return noiseCovariances;
+    }
+
+    private double[][] getNoiseCovariance(int dimension) {
+        return getNoiseCovariances(dimension).get(0);
+    }
+
+    private GaussianNoiseSampler[] getNoiseSamplers(int dimension) {
+        return getNoiseCovariances(dimension).stream().map(GaussianNoiseSampler::new).toArray(GaussianNoiseSampler[]::new);
+    }
+
+    private SequentialStoppingRule getStoppingRule(int N) {
+        return getStoppingRule(N, 1);
+    }
+
+    /**
+     * Rounds are rounded up to a multiple of granularity, so that chunks of granularity replicates never straddle
+     * two rounds and a run stopped at N is chunked as a run of N replicates.
+     */
+    private SequentialStoppingRule getStoppingRule(int N, int granularity) {
+        checkSampler(samplerType, N);
+        int size = (int) Math.min(Integer.MAX_VALUE, ((long) roundSize + granularity - 1) / granularity * granularity);
+        return new SequentialStoppingRule(N, size, precision);
+    }
+
+    /**
+     * Antithetic and Sobol replicates are not independent : the precision of their estimates can not be computed
+     * from a single run, as the stopping rule does, and they only balance over complete pairs or powers of two.
+     * Their precision is measured over independent randomizations by samplerEfficiency.
+     */
+    private void checkSampler(SamplerType samplerType, int N) {
+        if(samplerType == SamplerType.PSEUDO) {
+            return;
+        }
+        if(precision > 0) {
+            throw new IllegalArgumentException(String.format("--precision needs independent replicates, %s ones are not", samplerType));
+        }
+        if(samplerType == SamplerType.ANTITHETIC && N % 2 != 0) {
+            throw new IllegalArgumentException("ANTITHETIC needs an even number of replicates");
+        }
+        if(samplerType == SamplerType.SOBOL && (N < 1 || (N & (N - 1)) != 0)) {
+            throw new IllegalArgumentException("SOBOL needs a power of two number of replicates");
+        }
+    }
+
+    private void printStoppingRule(SequentialStoppingRule stoppingRule) {
+        if(samplerType != SamplerType.PSEUDO) {
+            System.err.println(String.format(Locale.US, "N: %d, failed: %d, precision: not available for %s replicates", stoppingRule.getEffectiveN(), stoppingRule.getFailures(), samplerType));
+            return;
+        }
+        System.err.println(String.format(Locale.US, "N: %d, failed: %d, precision: %f", stoppingRule.getEffectiveN(), stoppingRule.getFailures(), stoppingRule.getPrecision()));
+        if(stoppingRule.getTarget() > 0 && !stoppingRule.isTargetReached()) {
+            System.err.println(String.format(Locale.US, "target precision %f not reached", stoppingRule.getTarget()));
+        }
+    }
+
+    private InnovationSequence getInnovationSequence() {
+        return innovationSequenceFactory.getFrom(samplerType, getReplicateRandomFactory());
+    }
+
+    private ReplicateRandomFactory getReplicateRandomFactory() {
+        long masterSeed = seed != null ? seed : new SplittableRandom().nextLong();
+        System.err.println(String.format("seed: %d", masterSeed));
+        return new ReplicateRandomFactory(masterSeed);
+    }
+
     private AffineTransformation getRandomTransformation(TransformationType transformationType) {
         switch (transformationType) {
             case RIGID: return testTransformationFactory.getRandomSimpleRotationTransformation(2);
@@ -152,18 +267,26 @@ public class Main {
     ) {
         Image image = new Image(width, height);
         int[] range = new int[]{width, height};
-        double[][] noiseCovariance = new Matrix(noiseCovarianceValues, 2).getArray();
+        double[][] noiseCovariance = getNoiseCovariance(2);
 
+        float alpha = alphas[0];
         Transformation simpleRotationTransformation = getRandomTransformation(transformationType);
         Point zSource = testFiducialSetFactory.getRandomPoint(range);
         Point zTargetWithoutNoise = simpleRotationTransformation.apply(zSource);
-        Point zTarget = testFiducialSetFactory.addGaussianNoise(zTargetWithoutNoise, noiseCovariance);
-
-        FiducialSet current = testFiducialSetFactory.getRandomFromTransformation(
+        FiducialSet fiducialSet = testFiducialSetFactory.getRandomFromTransformation(
             simpleRotationTransformation, n, range
         );
 
-        testFiducialSetFactory.addGaussianNoise(current.getTargetDataset(), noiseCovariance);
+        GaussianNoiseSampler noiseSampler = new GaussianNoiseSampler(noiseCovariance);
+        double[] innovations = new double[(n + 1) * range.length];
+        getInnovationSequence().fill(0, innovations);
+        FiducialSet current = new FiducialSet(
+            fiducialSet.getSourceDataset(),
+            noiseSampler.getNoisy(fiducialSet.getTargetDataset(), innovations, 0)
+        );
+        double[] zTargetCoordinates = new double[] { zTargetWithoutNoise.get(0), zTargetWithoutNoise.get(1) };
+        noiseSampler.addNoise(zTargetCoordinates, 1, innovations, n * range.length);
+        Point zTarget = new Point(zTargetCoordinates);
 
         image.fill(image.center(getRectangle(zSource), zTargetWithoutNoise), Color.GREEN);
         image.fill(image.center(getRectangle(zTarget), zTargetWithoutNoise), Color.RED);
@@ -210,14 +333,6 @@ public class Main {
         return sequenceSize;
     }
 
-    private double getEllipseArea(Shape shape) {
-        double val = (shape.getBounds2D().getWidth() / 2d) * (shape.getBounds2D().getHeight() / 2d) * Math.PI;
-        if(Double.isNaN(val)) {
-            System.out.println(String.format("\nw: %f, h: %f", shape.getBounds2D().getWidth(), shape.getBounds2D().getHeight()));
-        }
-        return val;
-    }
-
     @Command
     public void bias(
             @Option(
@@ -232,41 +347,68 @@ public class Main {
             ) Path sourceDatasetFilePath,
             @Option(
                     names = { "-N" },
-                    description = "Number of iterrations. Default : ${DEFAULT-VALUE}.",
+                    description = "Number of iterrations, maximum number with --precision. Default : ${DEFAULT-VALUE}.",
                     defaultValue = "1"
             ) int N
     ) {
         int[] range = new int[]{width, height};
-        double[][] noiseCovariance = new Matrix(noiseCovarianceValues, range.length).getArray();
-        CompletionService<RegistrationParameter> completionService = new ExecutorCompletionService<>(
-            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())
-        );
+        double[][] noiseCovariance = getNoiseCovariance(range.length);
         AffineTransformation transformation = new AffineTransformation(csvToMatrixFileReader.read(transformationFilePath.toFile()));
         Dataset sourceDataset = csvToDatasetFileReader.read(sourceDatasetFilePath.toFile());
         Dataset targetDataset = transformation.apply(sourceDataset);
         final FiducialSet fiducialSet = new FiducialSet(sourceDataset, targetDataset);
-
-        for (int k = 0; k < N; k++) {
-            completionService.submit(() -> {
-                FiducialSet clone = fiducialSet.clone();
-                testFiducialSetFactory.addGaussianNoise(clone.getTargetDataset(), noiseCovariance);
-                testFiducialSetFactory.addGaussianNoise(clone.getSourceDataset(), noiseCovariance);
-                TransformationSchema transformationSchema = new TransformationSchema(clone, transformationModel, noiseModel, getSequenceSize(), getSequenceSize());
-                RegistrationParameter compute = registrationParameterFactory.getFrom(transformationSchema);
-                return compute;
+        GaussianNoiseSampler noiseSampler = new GaussianNoiseSampler(noiseCovariance);
+        InnovationSequence innovationSequence = getInnovationSequence();
+        int sourceOffset = targetDataset.getN() * range.length;
+
+        int size = range.length + 1;
+        SequentialStoppingRule stoppingRule = getStoppingRule(N);
+        RunningStatistics[][] statistics = newMatrixStatistics(size);
+        try (SimulationScheduler scheduler = new SimulationScheduler(workers)) {
+            stoppingRule.run((start, end) -> {
+                List<RunningStatistics[][]> partials = scheduler.run(start, end, 1, () -> newMatrixStatistics(size), (partial, from, to) -> {
+                    double[] innovations = new double[sourceOffset + sourceDataset.getN() * range.length];
+                    for (int k = from; k < to; k++) {
+                        Matrix homogeneousMatrix;
+                        try {
+                            innovationSequence.fill(k, innovations);
+                            Dataset noisyTarget = noiseSampler.getNoisy(fiducialSet.getTargetDataset(), innovations, 0);
+                            Dataset noisySource = noiseSampler.getNoisy(fiducialSet.getSourceDataset(), innovations, sourceOffset);
+                            FiducialSet clone = new FiducialSet(noisySource, noisyTarget);
+                            TransformationSchema transformationSchema = new TransformationSchema(clone, transformationModel, noiseModel, getSequenceSize(), getSequenceSize());
+                            RegistrationParameter registrationParameter = registrationParameterFactory.getFrom(transformationSchema);
+                            homogeneousMatrix = ((AffineTransformation) registrationParameter.getTransformation()).getHomogeneousMatrix();
+                        } catch (RuntimeException e) {
+                            stoppingRule.reportFailure();
+                            e.printStackTrace();
+                            continue;
+                        }
+                        for(int a = 0; a < size; a++) {
+                            for(int b = 0; b < size; b++) {
+                                partial[a][b].increment(homogeneousMatrix.get(a, b));
+                            }
+                        }
+                    }
+                });
+                double standardError = 0;
+                for(int a = 0; a < size; a++) {
+                    for(int b = 0; b < size; b++) {
+                        for(RunningStatistics[][] partial : partials) {
+                            statistics[a][b].merge(partial[a][b]);
+                        }
+                        standardError = Math.max(standardError, statistics[a][b].getStandardDeviation() / Math.sqrt(statistics[a][b].getN()));
+                    }
+                }
+                return standardError;
             });
         }
-        Matrix avg = Matrix.identity(range.length + 1, range.length + 1);
-        for (int k = 0; k < N; k++) {
-            try {
-                RegistrationParameter registrationParameter = completionService.take().get();
-                Matrix homogeneousMatrix = ((AffineTransformation) registrationParameter.getTransformation()).getHomogeneousMatrix();
-                avg.plusEquals(homogeneousMatrix);
-            } catch (InterruptedException | ExecutionException e) {
-                e.printStackTrace();
+        printStoppingRule(stoppingRule);
+        Matrix avg = new Matrix(size, size);
+        for(int a = 0; a < size; a++) {
+            for(int b = 0; b < size; b++) {
+                avg.set(a, b, statistics[a][b].getMean());
             }
         }
-        avg.timesEquals(1d / (double) N);
         avg.print(1,5);
         AffineTransformation biased = new AffineTransformation(avg);
         Dataset apply = biased.apply(fiducialSet.getSourceDataset());
@@ -276,6 +418,16 @@ public class Main {
 //        minusDataset.getBarycentre().getMatrix().print(1,5);
     }
 
+    private RunningStatistics[][] newMatrixStatistics(int size) {
+        RunningStatistics[][] statistics = new RunningStatistics[size][size];
+        for(int a = 0; a < size; a++) {
+            for(int b = 0; b < size; b++) {
+                statistics[a][b] = new RunningStatistics();
+            }
+        }
+        return statistics;
+    }
+
     @Command
     public void likelihood(
         @Option(
@@ -290,45 +442,79 @@ public class Main {
         ) Path sourceDatasetFilePath,
         @Option(
             names = { "-N" },
-            description = "Number of iterrations. Default : ${DEFAULT-VALUE}.",
+            description = "Number of iterrations, maximum number with --precision. Default : ${DEFAULT-VALUE}.",
             defaultValue = "1000"
-        ) int N
+        ) int N,
+        @Option(
+            names = { "--level" },
+            description = "Significance level of the rejection rate whose precision is checked with --precision. Default : ${DEFAULT-VALUE}.",
+            defaultValue = "0.05"
+        ) double level,
+        @Option(
+            names = { "--batch-size" },
+            description = "Number of replicates fitted together by a single matrix product, 0 to fit each replicate separately. With --precision, the round size is rounded up to a multiple of it. Default : ${DEFAULT-VALUE}.",
+            defaultValue = "0"
+        ) int batchSize
     ) {
         int[] range = new int[]{width, height};
         LikelihoodRatioTest likelihoodRatioTest = new LikelihoodRatioTest();
-        CompletionService<Void> completionService = new ExecutorCompletionService<>(
-            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())
-        );
-        double[][] noiseCovariance = new Matrix(noiseCovarianceValues, range.length).getArray();
+        double[][] noiseCovariance = getNoiseCovariance(range.length);
         AffineTransformation transformation = new AffineTransformation(csvToMatrixFileReader.read(transformationFilePath.toFile()));
         Dataset sourceDataset = csvToDatasetFileReader.read(sourceDatasetFilePath.toFile());
         Dataset targetDataset = transformation.apply(sourceDataset);
         final FiducialSet fiducialSet = new FiducialSet(sourceDataset, targetDataset);
 
+        GaussianNoiseSampler noiseSampler = new GaussianNoiseSampler(noiseCovariance);
+        InnovationSequence innovationSequence = getInnovationSequence();
+
         System.out.println("pvalue");
 
-        for (int k = 0; k < N; k++) {
-            completionService.submit(() -> {
-                FiducialSet clone = fiducialSet.clone();
-                testFiducialSetFactory.addGaussianNoise(clone.getTargetDataset(), noiseCovariance);
-                RegistrationParameter computeAffine = affineTransformationComputer.compute(clone);
-                RegistrationParameter computeRigid = rigidTransformationComputer.compute(clone);
-                System.out.println(
-                    String.format(
-                        Locale.US,
-                    "%f", likelihoodRatioTest.test(5, computeRigid.getLogLikelihood(), computeAffine.getLogLikelihood())
-                    )
-                );
-                return null;
+        SequentialStoppingRule stoppingRule = getStoppingRule(N, Math.max(batchSize, 1));
+        AtomicInteger rejected = new AtomicInteger();
+        try (SimulationScheduler scheduler = new SimulationScheduler(workers)) {
+            stoppingRule.run((start, end) -> {
+                if(batchSize > 0) {
+                    double[][] source = sourceDataset.getMatrix().getArray();
+                    double[][] target = targetDataset.getMatrix().getArray();
+                    scheduler.run(start, end, batchSize, () -> new AffineReplicateBatch(source, target, noiseCovariance, batchSize), (batch, from, to) ->
+                        batch.simulate(from, to - from, innovationSequence, (affineLogLikelihood, rigidLogLikelihood) ->
+                            printPValue(likelihoodRatioTest.test(5, rigidLogLikelihood, affineLogLikelihood), level, rejected)
+                        )
+                    );
+                } else {
+                    scheduler.run(start, end, 1, () -> new double[targetDataset.getN() * range.length], (innovations, from, to) -> {
+                        for (int k = from; k < to; k++) {
+                            double pValue;
+                            try {
+                                innovationSequence.fill(k, innovations);
+                                FiducialSet clone = new FiducialSet(
+                                    fiducialSet.getSourceDataset(),
+                                    noiseSampler.getNoisy(fiducialSet.getTargetDataset(), innovations, 0)
+                                );
+                                RegistrationParameter computeAffine = affineTransformationComputer.compute(clone);
+                                RegistrationParameter computeRigid = rigidTransformationComputer.compute(clone);
+                                pValue = likelihoodRatioTest.test(5, computeRigid.getLogLikelihood(), computeAffine.getLogLikelihood());
+                            } catch (RuntimeException e) {
+                                stoppingRule.reportFailure();
+                                e.printStackTrace();
+                                continue;
+                            }
+                            printPValue(pValue, level, rejected);
+                        }
+                    });
+                }
+                return SequentialStoppingRule.getProportionHalfWidth(rejected.get(), end - stoppingRule.getFailures());
             });
         }
-        for (int k = 0; k < N; k++) {
-            try {
-                completionService.take().get();
-            } catch (InterruptedException | ExecutionException e) {
-                e.printStackTrace();
-            }
+        printStoppingRule(stoppingRule);
+        System.err.println(String.format(Locale.US, "rejection rate: %f", (double) rejected.get() / stoppingRule.getEffectiveN()));
+    }
+
+    private void printPValue(double pValue, double level, AtomicInteger rejected) {
+        if(pValue < level) {
+            rejected.incrementAndGet();
         }
+        System.out.println(String.format(Locale.US, "%f", pValue));
     }
 
     private Dataset getUniformConfiguration(int n, int[] range) {
@@ -445,7 +631,7 @@ public class Main {
     public void leaveOneOutSimulation(
         @Option(
             names = { "-N" },
-            description = "Number of iterrations. Default : ${DEFAULT-VALUE}.",
+            description = "Number of iterrations, maximum number with --precision. Default : ${DEFAULT-VALUE}.",
             defaultValue = "1000"
         ) int N,
         @Option(
@@ -464,12 +650,23 @@ public class Main {
             defaultValue = "./test_source_dataset.csv"
         ) Path testSourceDatasetFilePath
     ) {
+        LeaveOneOutSimulation simulation = getLeaveOneOutSimulation(transformationFilePath, sourceDatasetFilePath, testSourceDatasetFilePath);
+        ReplicateRandomFactory replicateRandomFactory = getReplicateRandomFactory();
+        InnovationSequence innovationSequence = innovationSequenceFactory.getFrom(samplerType, replicateRandomFactory);
+
+        SequentialStoppingRule stoppingRule = getStoppingRule(N);
+        CoverageStatistics[][] statistics;
+        try (SimulationScheduler scheduler = new SimulationScheduler(workers)) {
+            statistics = simulation.run(scheduler, stoppingRule, innovationSequence, replicateRandomFactory);
+        }
+        printStoppingRule(stoppingRule);
+        System.out.println(LeaveOneOutSimulation.HEADER);
+        simulation.write(statistics, System.out, "");
+    }
+
+    private LeaveOneOutSimulation getLeaveOneOutSimulation(Path transformationFilePath, Path sourceDatasetFilePath, Path testSourceDatasetFilePath) {
         int[] range = new int[]{width, height};
 
-        double[][] noiseCovariance = new Matrix(noiseCovarianceValues, range.length).getArray();
-        CompletionService<Void> completionService = new ExecutorCompletionService<>(
-            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())
-        );
         AffineTransformation transformation = new AffineTransformation(csvToMatrixFileReader.read(transformationFilePath.toFile()));
         Dataset sourceDataset = csvToDatasetFileReader.read(sourceDatasetFilePath.toFile());
         Dataset targetDataset = transformation.apply(sourceDataset);
@@ -477,131 +674,229 @@ public class Main {
 
         Dataset testSourceDataset = csvToDatasetFileReader.read(testSourceDatasetFilePath.toFile());
         Dataset testTargetDataset = transformation.apply(testSourceDataset);
+        return leaveOneOutSimulationFactory.getFrom(
+            fiducialSet,
+            testSourceDataset,
+            testTargetDataset,
+            transformationModel,
+            noiseModel,
+            getSequenceSize(),
+            alphas,
+            getNoiseSamplers(range.length)
+        );
+    }
 
-        ShapeStat[] ellipsesFromRegression = new ShapeStat[testTargetDataset.getN()];
-        ShapeStat[] ellipsesFromLoo = new ShapeStat[testTargetDataset.getN()];
-        ShapeStat[] disksFromLoo = new ShapeStat[testTargetDataset.getN()];
-        for(int i = 0; i < testTargetDataset.getN(); i++) {
-            ellipsesFromRegression[i] = new ShapeStat();
-            ellipsesFromLoo[i] = new ShapeStat();
-            disksFromLoo[i] = new ShapeStat();
+    @Command
+    public void samplerEfficiency(
+        @Option(
+            names = { "-N" },
+            description = "Number of iterrations per randomization. Default : ${DEFAULT-VALUE}.",
+            defaultValue = "1024"
+        ) int N,
+        @Option(
+            names = {"--randomizations"},
+            description = "Number of independent randomizations per sampler.\nDefault : ${DEFAULT-VALUE}.",
+            defaultValue = "16"
+        ) int randomizations,
+        @Option(
+            names = {"--samplers"},
+            description = "Compared samplers, the first one being the reference.\nValid values : ${COMPLETION-CANDIDATES}.\nDefault : ${DEFAULT-VALUE}.",
+            split = ",",
+            defaultValue = "PSEUDO,ANTITHETIC,SOBOL"
+        ) List<SamplerType> samplerTypes,
+        @Option(
+            names = {"--transformation"},
+            description = "Input transformation file.\nDefault : ${DEFAULT-VALUE}.",
+            defaultValue = "./transformation.csv"
+        ) Path transformationFilePath,
+        @Option(
+            names = {"--source-dataset"},
+            description = "Input source dataset file.\nDefault : ${DEFAULT-VALUE}.",
+            defaultValue = "./source_dataset.csv"
+        ) Path sourceDatasetFilePath,
+        @Option(
+            names = {"--test-source-dataset"},
+            description = "Input test source dataset file.\nDefault : ${DEFAULT-VALUE}.",
+            defaultValue = "./test_source_dataset.csv"
+        ) Path testSourceDatasetFilePath
+    ) {
+        LeaveOneOutSimulation simulation = getLeaveOneOutSimulation(transformationFilePath, sourceDatasetFilePath, testSourceDatasetFilePath);
+        for(SamplerType current : samplerTypes) {
+            checkSampler(current, N);
         }
-
-        for (int k = 0; k < N; k++) {
-            completionService.submit(() -> {
-                FiducialSet clone = fiducialSet.clone();
-                testFiducialSetFactory.addGaussianNoise(clone.getTargetDataset(), noiseCovariance);
-                testFiducialSetFactory.addGaussianNoise(clone.getSourceDataset(), noiseCovariance);
-
-                Dataset targetTestClone = testTargetDataset.clone();
-                Dataset sourceTestClone = testSourceDataset.clone();
-                testFiducialSetFactory.addGaussianNoise(targetTestClone, noiseCovariance);
-                testFiducialSetFactory.addGaussianNoise(sourceTestClone, noiseCovariance);
-
-                Dataset registrationError = new Dataset(range.length, PointType.PREDICTED_ERROR);
-                double[] registrationErrorDistance = new double[clone.getN()];
-
-                for(int i = 0; i < clone.getN(); i++) {
-                    Point excludedSourcePoint = clone.getSourceDataset().getPoint(i);
-                    Point excludedTargetPoint = clone.getTargetDataset().getPoint(i);
-                    clone.remove(i);
-
-                    TransformationSchema transformationSchema = new TransformationSchema(clone, transformationModel, noiseModel, getSequenceSize(), getSequenceSize());
-                    RegistrationParameter compute = registrationParameterFactory.getFrom(transformationSchema);
-                    Point predictedExcludedTargetPoint = compute.getTransformation().apply(excludedSourcePoint);
-                    registrationError.addPoint(excludedTargetPoint.minus(predictedExcludedTargetPoint));
-                    registrationErrorDistance[i] = excludedTargetPoint.getDistance(predictedExcludedTargetPoint);
-
-                    clone.add(i, excludedSourcePoint, excludedTargetPoint);
+        ReplicateRandomFactory seeds = getReplicateRandomFactory();
+
+        System.out.println("sampler,N,randomizations,coverage.variance,seconds,variance.reduction,efficiency");
+        double referenceVariance = Double.NaN;
+        double referenceSeconds = Double.NaN;
+        try (SimulationScheduler scheduler = new SimulationScheduler(workers)) {
+            for(SamplerType current : samplerTypes) {
+                RunningStatistics[] coverages = null;
+                long start = System.nanoTime();
+                for(int r = 0; r < randomizations; r++) {
+                    ReplicateRandomFactory replicateRandomFactory = new ReplicateRandomFactory(seeds.getFrom(r).nextLong());
+                    InnovationSequence innovationSequence = innovationSequenceFactory.getFrom(current, replicateRandomFactory);
+                    double[] estimates = getCoverages(simulation.run(scheduler, N, innovationSequence, replicateRandomFactory));
+                    if(coverages == null) {
+                        coverages = new RunningStatistics[estimates.length];
+                        for(int c = 0; c < estimates.length; c++) {
+                            coverages[c] = new RunningStatistics();
+                        }
+                    }
+                    for(int c = 0; c < estimates.length; c++) {
+                        coverages[c].increment(estimates[c]);
+                    }
                 }
-                Matrix looCovariance = covarianceMatrixComputer.compute(registrationError.getMatrix());
-                Percentile percentile = new Percentile();
-                percentile.setData(registrationErrorDistance);
-                double evaluate = percentile.evaluate(alpha * 100);
-
-                TransformationSchema transformationSchema = new TransformationSchema(clone, transformationModel, noiseModel, getSequenceSize(), getSequenceSize());
-                RegistrationParameter compute = registrationParameterFactory.getFrom(transformationSchema);
-
-                for(int i = 0; i < targetTestClone.getN(); i++) {
-                    Point sourceTestPoint = sourceTestClone.getPoint(i);
-                    Point targetTestPoint = targetTestClone.getPoint(i);
-                    Point predictedTargetPoint = compute.getTransformation().apply(sourceTestPoint);
-
-                    Shape ellipseLoo = shapeEllipseFactory.getFrom(
-                        confidenceEllipseFactory.getFrom(
-                            predictedTargetPoint,
-                            clone,
-                            looCovariance,
-                            alpha
-                        )
-                    );
-                    ellipsesFromLoo[i].updateCounter(ellipseLoo.contains(targetTestPoint.get(0),  targetTestPoint.get(1)));
-                    ellipsesFromLoo[i].updateArea(getEllipseArea(ellipseLoo));
-
-                    Shape diskLoo = shapeEllipseFactory.getFrom(
-                        predictedTargetPoint,
-                        evaluate
-                    );
-                    disksFromLoo[i].updateCounter(diskLoo.contains(targetTestPoint.get(0), targetTestPoint.get(1)));
-                    disksFromLoo[i].updateArea(getEllipseArea(diskLoo));
-
-                    Shape shape = shapeEllipseFactory.getFrom(
-                        confidenceEllipseFactory.getFrom(
-                            predictedTargetPoint,
-                            clone,
-                            covarianceEstimatorFactory.getFrom(transformationModel).getCovariance(transformationSchema, sourceTestPoint),
-                            alpha
-                        )
-                    );
-                    ellipsesFromRegression[i].updateCounter(shape.contains(targetTestPoint.get(0), targetTestPoint.get(1)));
-                    ellipsesFromRegression[i].updateArea(getEllipseArea(shape));
+                double seconds = (System.nanoTime() - start) / 1e9 / randomizations;
+                double variance = Arrays.stream(coverages).mapToDouble(RunningStatistics::getVariance).average().orElse(Double.NaN);
+                if(Double.isNaN(referenceVariance)) {
+                    referenceVariance = variance;
+                    referenceSeconds = seconds;
                 }
-
-                return null;
-            });
+                System.out.println(String.format(
+                    Locale.US,
+                    "\"%s\",%d,%d,%e,%f,%f,%f",
+                    current,
+                    N,
+                    randomizations,
+                    variance,
+                    seconds,
+                    referenceVariance / variance,
+                    referenceVariance * referenceSeconds / (variance * seconds)
+                ));
+            }
         }
+    }
 
-        for(int k = 0; k < N; k++) {
-            try {
-                Void take = completionService.take().get();
-            } catch (InterruptedException | ExecutionException e) {
-                e.printStackTrace();
+    /**
+     * Analytic and leave-one-out coverage estimates of every test point, noise level and significance level.
+     */
+    private double[] getCoverages(CoverageStatistics[][] statistics) {
+        List<Double> coverages = new ArrayList<>();
+        for(CoverageStatistics[] perAlpha : statistics) {
+            for(CoverageStatistics coverageStatistics : perAlpha) {
+                for(ShapeStat shapeStat : coverageStatistics.getEllipsesFromRegression()) {
+                    coverages.add(shapeStat.getRatio());
+                }
+                for(ShapeStat shapeStat : coverageStatistics.getDisksFromLoo()) {
+                    coverages.add(shapeStat.getRatio());
+                }
             }
         }
+        return coverages.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    @Command
+    public void sweep(
+        @Option(
+            names = { "-N" },
+            description = "Number of iterrations per cell, maximum number with --precision. Default : ${DEFAULT-VALUE}.",
+            defaultValue = "1000"
+        ) int N,
+        @Option(
+            names = {"--models"},
+            description = "Transformation models.\nValid values : ${COMPLETION-CANDIDATES}.\nDefault : ${DEFAULT-VALUE}.",
+            split = ",",
+            defaultValue = "RIGID,AFFINE"
+        ) List<TransformationType> models,
+        @Option(
+            names = {"--transformations"},
+            description = "Input transformation files, the cell name being the file name without extension.\nDefault : ${DEFAULT-VALUE}.",
+            split = ",",
+            defaultValue = "RIGID.csv,AFFINE.csv"
+        ) List<Path> transformationFilePaths,
+        @Option(
+            names = {"--sizes"},
+            description = "Number of fiducial points.\nDefault : ${DEFAULT-VALUE}.",
+            split = ",",
+            defaultValue = "10,25,100"
+        ) List<Integer> sizes,
+        @Option(
+            names = {"--layouts"},
+            description = "Fiducial layouts.\nDefault : ${DEFAULT-VALUE}.",
+            split = ",",
+            defaultValue = "gaussian"
+        ) List<String> layouts,
+        @Option(
+            names = {"--source-dataset-pattern"},
+            description = "Input source dataset file of a size and a layout.\nDefault : ${DEFAULT-VALUE}.",
+            defaultValue = "sourceDataset_n%d_%s.csv"
+        ) String sourceDatasetPattern,
+        @Option(
+            names = {"--test-source-dataset"},
+            description = "Input test source dataset file.\nDefault : ${DEFAULT-VALUE}.",
+            defaultValue = "./testSourceDataset.csv"
+        ) Path testSourceDatasetFilePath,
+        @Option(
+            names = {"-o", "--output-directory"},
+            description = "Output directory of the result file of each cell.\nDefault : ${DEFAULT-VALUE}.",
+            defaultValue = "."
+        ) Path outputDirectory,
+        @Option(
+            names = {"--combined-output"},
+            description = "Single long format output file, with transformation and layout columns, instead of one file per cell."
+        ) Path combinedOutputFilePath
+    ) {
+        int[] range = new int[]{width, height};
+        GaussianNoiseSampler[] noiseSamplers = getNoiseSamplers(range.length);
+        ReplicateRandomFactory replicateRandomFactory = getReplicateRandomFactory();
+        InnovationSequence innovationSequence = innovationSequenceFactory.getFrom(samplerType, replicateRandomFactory);
+        Dataset testSourceDataset = csvToDatasetFileReader.read(testSourceDatasetFilePath.toFile());
 
-        List<Point> list = pointFactory.getFrom(sourceDataset);
-        System.out.println("i,model,method,n,%in,area.mean,area.sd,nearest");
-        for(int i = 0; i < testSourceDataset.getN(); i++) {
-            Point current = testSourceDataset.getPoint(i);
-            double distance = current.getDistance(current.getNearest(list));
-            System.out.println(String.format(
-                Locale.US,
-                "%d,\"%s\",\"analytic\",%d,%f,%f,%f,%f",
-                i,
-                transformationModel.toString().toLowerCase(),
-                fiducialSet.getN(),
-                ellipsesFromRegression[i].getRatio() * 100,
-                ellipsesFromRegression[i].getArea(),
-                ellipsesFromRegression[i].getAreaSd(),
-                distance
-            ));
-            System.out.println(String.format(
-                Locale.US,
-                "%d,\"%s\",\"leave_one_out\",%d,%f,%f,%f,%f",
-                i,
-                transformationModel.toString().toLowerCase(),
-                fiducialSet.getN(),
-                disksFromLoo[i].getRatio() * 100,
-                disksFromLoo[i].getArea(),
-                disksFromLoo[i].getAreaSd(),
-                distance
-            ));
+        PrintStream combined = null;
+        try (SimulationScheduler scheduler = new SimulationScheduler(workers)) {
+            if(combinedOutputFilePath != null) {
+                combined = new PrintStream(combinedOutputFilePath.toFile());
+                combined.println("transformation,layout," + LeaveOneOutSimulation.HEADER);
+            }
+            for(TransformationType model : models) {
+                for(Path transformationFilePath : transformationFilePaths) {
+                    String transformationName = transformationFilePath.getFileName().toString().replaceFirst("\\.[^.]*$", "");
+                    AffineTransformation transformation = new AffineTransformation(csvToMatrixFileReader.read(transformationFilePath.toFile()));
+                    Dataset testTargetDataset = transformation.apply(testSourceDataset);
+                    for(int size : sizes) {
+                        for(String layout : layouts) {
+                            Dataset sourceDataset = csvToDatasetFileReader.read(new File(String.format(sourceDatasetPattern, size, layout)));
+                            LeaveOneOutSimulation simulation = leaveOneOutSimulationFactory.getFrom(
+                                new FiducialSet(sourceDataset, transformation.apply(sourceDataset)),
+                                testSourceDataset,
+                                testTargetDataset,
+                                model,
+                                noiseModel,
+                                getSequenceSize(),
+                                alphas,
+                                noiseSamplers
+                            );
+                            SequentialStoppingRule stoppingRule = getStoppingRule(N);
+                            CoverageStatistics[][] statistics = simulation.run(scheduler, stoppingRule, innovationSequence, replicateRandomFactory);
+                            System.err.print(String.format("model %s, transformation %s, n %d, layout %s : ", model, transformationName, size, layout));
+                            printStoppingRule(stoppingRule);
+                            if(combined != null) {
+                                simulation.write(statistics, combined, String.format("\"%s\",\"%s\",", transformationName, layout));
+                            } else {
+                                Path resultFilePath = outputDirectory.resolve(String.format(
+                                    "result_model_%s_transfo_%s_n%d_layout_%s.csv", model, transformationName, size, layout
+                                ));
+                                try (PrintStream out = new PrintStream(resultFilePath.toFile())) {
+                                    out.println(LeaveOneOutSimulation.HEADER);
+                                    simulation.write(statistics, out, "");
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            if(combined != null) {
+                combined.close();
+            }
         }
     }
 
     public static void main(String ... args) {
-        new CommandLine(new Main()).execute(args);
-        System.exit(0);
+        System.exit(new CommandLine(new Main()).execute(args));
     }
 
     @Inject
@@ -645,8 +940,13 @@ public class Main {
     }
 
     @Inject
-    public void setCovarianceEstimatorFactory(CovarianceEstimatorFactory covarianceEstimatorFactory) {
-        this.covarianceEstimatorFactory = covarianceEstimatorFactory;
+    public void setLeaveOneOutSimulationFactory(LeaveOneOutSimulationFactory leaveOneOutSimulationFactory) {
+        this.leaveOneOutSimulationFactory = leaveOneOutSimulationFactory;
+    }
+
+    @Inject
+    public void setInnovationSequenceFactory(InnovationSequenceFactory innovationSequenceFactory) {
+        this.innovationSequenceFactory = innovationSequenceFactory;
     }
 
     @Inject
@@ -673,14 +973,4 @@ public class Main {
     public void setCsvToMatrixFileReader(CsvToMatrixFileReader csvToMatrixFileReader) {
         this.csvToMatrixFileReader = csvToMatrixFileReader;
     }
-
-    @Inject
-    public void setCovarianceMatrixComputer(CovarianceMatrixComputer covarianceMatrixComputer) {
-        this.covarianceMatrixComputer = covarianceMatrixComputer;
-    }
-
-    @Inject
-    public void setPointFactory(PointFactory pointFactory) {
-        this.pointFactory = pointFactory;
-    }
 }
@@ -0,0 +1,152 @@
+package fr.univ_nantes.cli.model_deviation;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * KLL quantile sketch (Karnin, Lang, Liberty 2016). Values are kept in compactors of decreasing capacity, a full
+ * compactor promotes one value out of two to the next level, so memory is O(k log(n / k)) whatever the number of
+ * values. Rank error is about 1.7 / k. Sketches of different workers can be merged.
+ * Compactions keep the odd or even values at random, the random source is given so that quantiles are reproducible.
+ * Not thread safe.
+ */
+public class QuantileSketch {
+
+    public static final int DEFAULT_K = 200;
+    private static final double CAPACITY_DECAY = 2d / 3d;
+
+    private int k;
+    private Random random;
+    private double[][] compactors = new double[1][];
+    private int[] sizes = new int[1];
+    private long n = 0;
+    private int size = 0;
+
+    public QuantileSketch(Random random) {
+        this(DEFAULT_K, random);
+    }
+
+    public QuantileSketch(int k, Random random) {
+        this.k = k;
+        this.random = random;
+        compactors[0] = new double[capacity(0)];
+    }
+
+    public void increment(double value) {
+        add(0, value);
+        n++;
+        compress();
+    }
+
+    public void merge(QuantileSketch other) {
+        for(int h = 0; h < other.compactors.length; h++) {
+            for(int i = 0; i < other.sizes[h]; i++) {
+                add(h, other.compactors[h][i]);
+            }
+        }
+        n += other.n;
+        compress();
+    }
+
+    public long getN() {
+        return n;
+    }
+
+    /**
+     * @param quantile in [0, 1]
+     */
+    public double getQuantile(double quantile) {
+        if(size == 0) {
+            return Double.NaN;
+        }
+        double[] values = new double[size];
+        long[] weights = new long[size];
+        int index = 0;
+        for(int h = 0; h < compactors.length; h++) {
+            for(int i = 0; i < sizes[h]; i++) {
+                values[index] = compactors[h][i];
+                weights[index] = 1L << h;
+                index++;
+            }
+        }
+        Integer[] order = new Integer[size];
+        for(int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+        long total = 0;
+        for(long weight : weights) {
+            total += weight;
+        }
+        double target = quantile * total;
+        long cumulative = 0;
+        for(int i = 0; i < size; i++) {
+            cumulative += weights[order[i]];
+            if(cumulative >= target) {
+                return values[order[i]];
+            }
+        }
+        return values[order[size - 1]];
+    }
+
+    private int capacity(int level) {
+        int depth = compactors.length - 1 - level;
+        return Math.max(2, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+    }
+
+    private void add(int level, double value) {
+        while(level >= compactors.length) {
+            grow();
+        }
+        if(sizes[level] == compactors[level].length) {
+            compactors[level] = Arrays.copyOf(compactors[level], compactors[level].length * 2);
+        }
+        compactors[level][sizes[level]++] = value;
+        size++;
+    }
+
+    private void grow() {
+        compactors = Arrays.copyOf(compactors, compactors.length + 1);
+        sizes = Arrays.copyOf(sizes, sizes.length + 1);
+        compactors[compactors.length - 1] = new double[2];
+    }
+
+    private int totalCapacity() {
+        int total = 0;
+        for(int h = 0; h < compactors.length; h++) {
+            total += capacity(h);
+        }
+        return total;
+    }
+
+    /**
+     * Compacts the lowest full level until the sketch fits its capacity again.
+     */
+    private void compress() {
+        while(size > totalCapacity()) {
+            for(int h = 0; h < compactors.length; h++) {
+                if(sizes[h] >= capacity(h)) {
+                    compact(h);
+                    break;
+                }
+            }
+        }
+    }
+
+    private void compact(int level) {
+        double[] compactor = compactors[level];
+        int count = sizes[level];
+        Arrays.sort(compactor, 0, count);
+        // with an odd count the largest value stays at this level
+        int promoted = count - count % 2;
+        double last = compactor[count - 1];
+        for(int i = random.nextBoolean() ? 1 : 0; i < promoted; i += 2) {
+            add(level + 1, compactor[i]);
+        }
+        size -= promoted;
+        sizes[level] = count - promoted;
+        if(sizes[level] == 1) {
+            compactor[0] = last;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package fr.univ_nantes.cli.model_deviation;
+
+/**
+ * Count, mean and variance by Welford's algorithm. Not thread safe : every worker keeps its own instance and
+ * instances are merged (Chan et al. pairwise update) once the workers are done.
+ */
+public class RunningStatistics {
+    private long n = 0;
+    private double mean = 0;
+    private double m2 = 0;
+
+    public void increment(double value) {
+        n++;
+        double delta = value - mean;
+        mean += delta / n;
+        m2 += delta * (value - mean);
+    }
+
+    public void merge(RunningStatistics other) {
+        if(other.n == 0) {
+            return;
+        }
+        long total = n + other.n;
+        double delta = other.mean - mean;
+        mean += delta * other.n / total;
+        m2 += other.m2 + delta * delta * ((double) n * other.n / total);
+        n = total;
+    }
+
+    public long getN() {
+        return n;
+    }
+
+    public double getMean() {
+        return n > 0 ? mean : Double.NaN;
+    }
+
+    /**
+     * Bias corrected variance, as commons-math Variance.
+     */
+    public double getVariance() {
+        if(n == 0) {
+            return Double.NaN;
+        }
+        return n > 1 ? m2 / (n - 1) : 0;
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+}
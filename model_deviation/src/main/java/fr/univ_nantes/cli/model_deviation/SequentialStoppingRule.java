@@ -0,0 +1,94 @@
+package fr.univ_nantes.cli.model_deviation;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs replicates by rounds until the precision of the estimates reaches a target or a maximum number of replicates
+ * is run. Replicate k always draws its noise from stream k, so a run stopped at N gives the same estimates as a
+ * run of N replicates. Replicates whose fit fails are reported to the rule, which then tells how many succeeded.
+ */
+public class SequentialStoppingRule {
+
+    private static final double Z_95 = 1.959963984540054;
+
+    public interface Round {
+        /**
+         * Runs replicates [from, to) and returns the precision of the estimates over all the replicates run so far.
+         */
+        double run(int from, int to);
+    }
+
+    private int maxN;
+    private int roundSize;
+    private double target;
+    private int n = 0;
+    private double precision = Double.NaN;
+    private AtomicInteger failures = new AtomicInteger();
+
+    /**
+     * @param target precision to reach, 0 to run exactly maxN replicates
+     */
+    public SequentialStoppingRule(int maxN, int roundSize, double target) {
+        if(roundSize < 1) {
+            throw new IllegalArgumentException("roundSize must be positive");
+        }
+        this.maxN = maxN;
+        this.roundSize = target > 0 ? roundSize : Math.max(maxN, 1);
+        this.target = target;
+    }
+
+    public void run(Round round) {
+        while(n < maxN && !isTargetReached()) {
+            int to = (int) Math.min((long) n + roundSize, maxN);
+            precision = round.run(n, to);
+            n = to;
+        }
+    }
+
+    public boolean isTargetReached() {
+        return target > 0 && precision <= target;
+    }
+
+    /**
+     * Number of replicates run, including failed ones.
+     */
+    public int getN() {
+        return n;
+    }
+
+    /**
+     * Thread safe, called by the workers for every replicate that fails.
+     */
+    public void reportFailure() {
+        failures.incrementAndGet();
+    }
+
+    public int getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Number of replicates that succeeded, which the estimates are computed from.
+     */
+    public int getEffectiveN() {
+        return n - failures.get();
+    }
+
+    public double getPrecision() {
+        return precision;
+    }
+
+    public double getTarget() {
+        return target;
+    }
+
+    /**
+     * Half width of the 95% Agresti-Coull confidence interval of a proportion, which does not vanish when no or
+     * every replicate succeeds.
+     */
+    public static double getProportionHalfWidth(long successes, long n) {
+        double total = n + Z_95 * Z_95;
+        double proportion = (successes + Z_95 * Z_95 / 2d) / total;
+        return Z_95 * Math.sqrt(proportion * (1 - proportion) / total);
+    }
+}
@@ -1,24 +1,58 @@
 package fr.univ_nantes.cli.model_deviation;
 
-import org.apache.commons.math3.stat.descriptive.moment.Mean;
-import org.apache.commons.math3.stat.descriptive.moment.StandardDeviation;
+import java.util.Random;
 
+/**
+ * Coverage and area of the confidence shapes of one test point. Not thread safe, see {@link CoverageStatistics}.
+ */
 public class ShapeStat {
-    private Mean area = new Mean();
-    private StandardDeviation areaSd = new StandardDeviation();
+    private RunningStatistics area = new RunningStatistics();
+    private QuantileSketch areaQuantiles;
+    private QuantileSketch errorQuantiles;
     private int counter = 0;
     private int n = 0;
 
-    public synchronized void updateCounter(boolean shouldUpdate) {
+    /**
+     * @param random random source of the quantile sketches
+     */
+    public ShapeStat(Random random) {
+        areaQuantiles = new QuantileSketch(random);
+        errorQuantiles = new QuantileSketch(random);
+    }
+
+    public void updateCounter(boolean shouldUpdate) {
         if(shouldUpdate) {
             counter++;
         }
         n++;
     }
 
-    public synchronized void updateArea(double area) {
+    public void updateArea(double area) {
         this.area.increment(area);
-        this.areaSd.increment(area);
+        areaQuantiles.increment(area);
+    }
+
+    /**
+     * Distance between the test target point and its prediction.
+     */
+    public void updateError(double distance) {
+        errorQuantiles.increment(distance);
+    }
+
+    public void merge(ShapeStat other) {
+        counter += other.counter;
+        n += other.n;
+        area.merge(other.area);
+        areaQuantiles.merge(other.areaQuantiles);
+        errorQuantiles.merge(other.errorQuantiles);
+    }
+
+    public int getCounter() {
+        return counter;
+    }
+
+    public int getN() {
+        return n;
     }
 
     public double getRatio() {
@@ -26,10 +60,21 @@ public class ShapeStat {
     }
 
     public double getArea() {
-        return area.getResult();
+        return area.getMean();
     }
 
     public double getAreaSd() {
-        return areaSd.getResult();
+        return area.getStandardDeviation();
+    }
+
+    /**
+     * @param percentile in [0, 100]
+     */
+    public double getAreaPercentile(double percentile) {
+        return areaQuantiles.getQuantile(percentile / 100d);
+    }
+
+    public double getErrorPercentile(double percentile) {
+        return errorQuantiles.getQuantile(percentile / 100d);
     }
 }
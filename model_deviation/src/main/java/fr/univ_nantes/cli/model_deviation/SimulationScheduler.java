@@ -0,0 +1,102 @@
+package fr.univ_nantes.cli.model_deviation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Runs replicates on a fixed set of workers, one per core by default.
+ * Each worker owns a state (scratch buffers, partial statistics) and runs every workers-th chunk of replicates, so no
+ * task is queued per replicate and memory does not grow with the number of replicates. The replicates of a worker and
+ * the order of the returned states only depend on the number of workers, so order dependent statistics, such as
+ * quantile sketches, are reproducible.
+ * Tasks should catch the failures of single replicates themselves : an exception escaping a task loses the state
+ * of its worker, so it fails the whole run instead of silently biasing it.
+ */
+public class SimulationScheduler implements AutoCloseable {
+
+    private int workers;
+    private ExecutorService executorService;
+
+    public SimulationScheduler(int workers) {
+        this.workers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        this.executorService = Executors.newFixedThreadPool(this.workers);
+    }
+
+    public interface ChunkTask<S> {
+        void run(S state, int from, int to);
+    }
+
+    /**
+     * Runs replicates [0, count) by chunks of chunkSize and returns the state of every worker.
+     */
+    public <S> List<S> run(int count, int chunkSize, Supplier<S> stateSupplier, ChunkTask<S> task) {
+        return run(0, count, chunkSize, stateSupplier, task);
+    }
+
+    /**
+     * Runs replicates [start, end) by chunks of chunkSize starting at start and returns the state of every worker.
+     */
+    public <S> List<S> run(int start, int end, int chunkSize, Supplier<S> stateSupplier, ChunkTask<S> task) {
+        return run(start, end, chunkSize, (IntFunction<S>) (worker) -> stateSupplier.get(), task);
+    }
+
+    /**
+     * Runs replicates [start, end) by chunks of chunkSize starting at start and returns the state of every worker,
+     * in worker order. The state of worker w is given by stateFactory.apply(w) and runs chunks w, w + workers, ...
+     */
+    public <S> List<S> run(int start, int end, int chunkSize, IntFunction<S> stateFactory, ChunkTask<S> task) {
+        if(chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        long nbChunks = Math.max(0, ((long) end - start + chunkSize - 1) / chunkSize);
+        int nbTasks = (int) Math.min(workers, nbChunks);
+        List<Future<S>> futures = new ArrayList<>(nbTasks);
+        for(int w = 0; w < nbTasks; w++) {
+            final int worker = w;
+            futures.add(executorService.submit(() -> {
+                S state = stateFactory.apply(worker);
+                for(long chunk = worker; chunk < nbChunks; chunk += nbTasks) {
+                    int from = (int) (start + chunk * chunkSize);
+                    task.run(state, from, (int) Math.min((long) from + chunkSize, end));
+                }
+                return state;
+            }));
+        }
+        List<S> states = new ArrayList<>(nbTasks);
+        for(Future<S> future : futures) {
+            try {
+                states.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the workers", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("A worker failed, its partial results are lost", e.getCause());
+            }
+        }
+        return states;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    @Override
+    public void close() {
+        executorService.shutdown();
+        try {
+            if(!executorService.awaitTermination(1, TimeUnit.MINUTES)) {
+                executorService.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
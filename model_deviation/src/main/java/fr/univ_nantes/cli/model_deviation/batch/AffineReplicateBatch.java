@@ -0,0 +1,179 @@
+package fr.univ_nantes.cli.model_deviation.batch;
+
+import Jama.Matrix;
+import fr.univ_nantes.stats.monte_carlo.batch.AffineDesign;
+import fr.univ_nantes.stats.monte_carlo.noise.InnovationSequence;
+
+import static java.lang.Math.*;
+
+/**
+ * Replicates of a simulation where gaussian noise is only added to the target points. The source configuration is
+ * fixed, so every affine fit goes through the same design X = [z 1] : B replicate targets are stacked column wise
+ * and one product Xᵀ[Y₁ … Y_B] gives the affine estimates (XᵀX)⁻¹XᵀY, the affine residual scatter and the rigid
+ * cross-covariance of all of them.
+ * Not thread safe, every worker should use its own instance.
+ */
+public class AffineReplicateBatch {
+
+    public interface ReplicateConsumer {
+        void accept(double affineLogLikelihood, double rigidLogLikelihood);
+    }
+
+    private int n;
+    private int dimension;
+    private int p;
+    private int batchSize;
+    private AffineDesign design;
+    private double[][] gramInverse;
+    private double[][] target;
+    private double[][] noiseCholesky;
+    private double[] sourceMean;
+    private double sourceScatter;
+
+    private double[] stacked;
+    private double[] product;
+    private double[] innovations;
+    private double[][] ytY;
+    private double[][] beta;
+    private double[][] scatter;
+    private double[][] cross;
+
+    /**
+     * @param target noise free target points, noise is drawn around them
+     */
+    public AffineReplicateBatch(double[][] source, double[][] target, double[][] noiseCovariance, int batchSize) {
+        design = new AffineDesign(source);
+        n = design.getN();
+        dimension = design.getDimension();
+        p = design.getP();
+        gramInverse = design.getGramInverse();
+        this.batchSize = batchSize;
+        this.target = target;
+        sourceMean = new double[dimension];
+        for(int i = 0; i < n; i++) {
+            for(int a = 0; a < dimension; a++) {
+                sourceMean[a] += source[i][a] / n;
+            }
+        }
+        for(int i = 0; i < n; i++) {
+            for(int a = 0; a < dimension; a++) {
+                sourceScatter += pow(source[i][a] - sourceMean[a], 2);
+            }
+        }
+        noiseCholesky = new Matrix(noiseCovariance).chol().getL().getArray();
+
+        stacked = new double[n * dimension * batchSize];
+        product = new double[p * dimension * batchSize];
+        innovations = new double[n * dimension];
+        ytY = new double[dimension][dimension];
+        beta = new double[p][dimension];
+        scatter = new double[dimension][dimension];
+        cross = new double[dimension][dimension];
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Simulates the count ≤ batch size replicates starting at from and streams the maximum log-likelihoods of the
+     * affine model (anisotropic noise) and of the rigid model (isotropic noise) of each of them.
+     */
+    public void simulate(int from, int count, InnovationSequence innovationSequence, ReplicateConsumer consumer) {
+        if(count > batchSize) {
+            throw new IllegalArgumentException(String.format("At most %d replicates per batch", batchSize));
+        }
+        int columns = count * dimension;
+        for(int b = 0; b < count; b++) {
+            innovationSequence.fill(from + b, innovations);
+            for(int i = 0; i < n; i++) {
+                for(int a = 0; a < dimension; a++) {
+                    double value = target[i][a];
+                    for(int c = 0; c <= a; c++) {
+                        value += noiseCholesky[a][c] * innovations[i * dimension + c];
+                    }
+                    stacked[i * columns + b * dimension + a] = value;
+                }
+            }
+        }
+        design.multiplyTransposeLeft(stacked, columns, product);
+        for(int b = 0; b < count; b++) {
+            // the rigid fit reuses YᵀY computed by the affine one
+            double affineLogLikelihood = getAffineLogLikelihood(b, columns);
+            consumer.accept(affineLogLikelihood, getRigidLogLikelihood(b, columns));
+        }
+    }
+
+    private double getAffineLogLikelihood(int replicate, int columns) {
+        int offset = replicate * dimension;
+        for(int a = 0; a < dimension; a++) {
+            for(int c = 0; c <= a; c++) {
+                double value = 0;
+                for(int i = 0; i < n; i++) {
+                    value += stacked[i * columns + offset + a] * stacked[i * columns + offset + c];
+                }
+                ytY[a][c] = value;
+                ytY[c][a] = value;
+            }
+        }
+        for(int k = 0; k < p; k++) {
+            for(int a = 0; a < dimension; a++) {
+                double value = 0;
+                for(int l = 0; l < p; l++) {
+                    value += gramInverse[k][l] * product[l * columns + offset + a];
+                }
+                beta[k][a] = value;
+            }
+        }
+        for(int a = 0; a < dimension; a++) {
+            for(int c = 0; c < dimension; c++) {
+                double value = ytY[a][c];
+                for(int k = 0; k < p; k++) {
+                    value -= product[k * columns + offset + a] * beta[k][c];
+                }
+                scatter[a][c] = value / n;
+            }
+        }
+        return -n / 2d * (dimension * log(2 * PI) + log(determinant(scatter)) + dimension);
+    }
+
+    private double getRigidLogLikelihood(int replicate, int columns) {
+        int offset = replicate * dimension;
+        double targetScatter = 0;
+        for(int a = 0; a < dimension; a++) {
+            double sum = product[dimension * columns + offset + a];
+            targetScatter += ytY[a][a] - sum * sum / n;
+            for(int c = 0; c < dimension; c++) {
+                cross[a][c] = product[c * columns + offset + a] - sourceMean[c] * sum;
+            }
+        }
+        double residualScatter = targetScatter + sourceScatter - 2 * getMaximumRotationTrace(cross);
+        return -n * dimension / 2d * (log(2 * PI) + log(residualScatter / (n * dimension)) + 1);
+    }
+
+    /**
+     * max tr(RᵀM) over rotations R.
+     */
+    private double getMaximumRotationTrace(double[][] m) {
+        if(dimension == 2) {
+            return sqrt(pow(m[0][0] + m[1][1], 2) + pow(m[1][0] - m[0][1], 2));
+        }
+        Matrix matrix = new Matrix(m);
+        double[] singularValues = matrix.svd().getSingularValues();
+        double trace = 0;
+        for(int k = 0; k < dimension; k++) {
+            trace += singularValues[k];
+        }
+        if(matrix.det() < 0) {
+            trace -= 2 * singularValues[dimension - 1];
+        }
+        return trace;
+    }
+
+    private double determinant(double[][] m) {
+        if(dimension == 2) {
+            return m[0][0] * m[1][1] - m[0][1] * m[1][0];
+        }
+        return new Matrix(m).det();
+    }
+}
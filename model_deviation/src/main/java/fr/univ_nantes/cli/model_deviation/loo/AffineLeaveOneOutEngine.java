@@ -0,0 +1,75 @@
+package fr.univ_nantes.cli.model_deviation.loo;
+
+import Jama.Matrix;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.FiducialSet;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.Dataset;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.point.Point;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.roi.PointType;
+import javax.inject.Inject;
+
+/**
+ * Leave-one-out of the least squares affine model from a single fit : with X = [z 1] and the hat matrix
+ * H = X (XᵀX)⁻¹ Xᵀ, the residual of point i for the model fitted without it is eᵢ / (1 - hᵢᵢ) (PRESS residual).
+ */
+public class AffineLeaveOneOutEngine implements LeaveOneOutEngine {
+
+    @Inject
+    public AffineLeaveOneOutEngine() {}
+
+    @Override
+    public LeaveOneOutResult compute(FiducialSet fiducialSet) {
+        int n = fiducialSet.getN();
+        double[][] source = fiducialSet.getSourceDataset().getMatrix().getArray();
+        double[][] target = fiducialSet.getTargetDataset().getMatrix().getArray();
+        int sourceDimension = fiducialSet.getSourceDataset().getDimension();
+        int targetDimension = fiducialSet.getTargetDataset().getDimension();
+        int p = sourceDimension + 1;
+
+        double[][] xtx = new double[p][p];
+        double[][] xty = new double[p][targetDimension];
+        double[] x = new double[p];
+        for(int i = 0; i < n; i++) {
+            setRow(source[i], x);
+            for(int a = 0; a < p; a++) {
+                for(int b = 0; b < p; b++) {
+                    xtx[a][b] += x[a] * x[b];
+                }
+                for(int b = 0; b < targetDimension; b++) {
+                    xty[a][b] += x[a] * target[i][b];
+                }
+            }
+        }
+        double[][] xtxInverse = new Matrix(xtx).inverse().getArray();
+        double[][] beta = new Matrix(xtxInverse).times(new Matrix(xty)).getArray();
+
+        Dataset registrationError = new Dataset(targetDimension, PointType.PREDICTED_ERROR);
+        double[] registrationErrorDistance = new double[n];
+        for(int i = 0; i < n; i++) {
+            setRow(source[i], x);
+            double leverage = 0;
+            for(int a = 0; a < p; a++) {
+                for(int b = 0; b < p; b++) {
+                    leverage += x[a] * xtxInverse[a][b] * x[b];
+                }
+            }
+            double[] error = new double[targetDimension];
+            double squaredDistance = 0;
+            for(int b = 0; b < targetDimension; b++) {
+                double predicted = 0;
+                for(int a = 0; a < p; a++) {
+                    predicted += x[a] * beta[a][b];
+                }
+                error[b] = (target[i][b] - predicted) / (1d - leverage);
+                squaredDistance += error[b] * error[b];
+            }
+            registrationError.addPoint(new Point(error));
+            registrationErrorDistance[i] = Math.sqrt(squaredDistance);
+        }
+        return new LeaveOneOutResult(registrationError, registrationErrorDistance);
+    }
+
+    private void setRow(double[] source, double[] x) {
+        System.arraycopy(source, 0, x, 0, source.length);
+        x[source.length] = 1;
+    }
+}
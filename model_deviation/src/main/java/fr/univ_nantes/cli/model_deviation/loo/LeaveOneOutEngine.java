@@ -0,0 +1,7 @@
+package fr.univ_nantes.cli.model_deviation.loo;
+
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.FiducialSet;
+
+public interface LeaveOneOutEngine {
+    LeaveOneOutResult compute(FiducialSet fiducialSet);
+}
@@ -0,0 +1,45 @@
+package fr.univ_nantes.cli.model_deviation.loo;
+
+import plugins.fr.univ_nantes.ec_clem.ec_clem.sequence.SequenceSize;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.RegistrationParameterFactory;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.schema.NoiseModel;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.schema.TransformationType;
+import javax.inject.Inject;
+
+public class LeaveOneOutEngineFactory {
+
+    private RegistrationParameterFactory registrationParameterFactory;
+    private AffineLeaveOneOutEngine affineLeaveOneOutEngine;
+    private RigidLeaveOneOutEngine rigidLeaveOneOutEngine;
+    private SimilarityLeaveOneOutEngine similarityLeaveOneOutEngine;
+
+    @Inject
+    public LeaveOneOutEngineFactory(
+        RegistrationParameterFactory registrationParameterFactory,
+        AffineLeaveOneOutEngine affineLeaveOneOutEngine,
+        RigidLeaveOneOutEngine rigidLeaveOneOutEngine,
+        SimilarityLeaveOneOutEngine similarityLeaveOneOutEngine
+    ) {
+        this.registrationParameterFactory = registrationParameterFactory;
+        this.affineLeaveOneOutEngine = affineLeaveOneOutEngine;
+        this.rigidLeaveOneOutEngine = rigidLeaveOneOutEngine;
+        this.similarityLeaveOneOutEngine = similarityLeaveOneOutEngine;
+    }
+
+    /**
+     * Closed form engine when the model has one, refit of the registration otherwise.
+     * Rigid and similarity estimates are least squares only under isotropic noise.
+     */
+    public LeaveOneOutEngine getFrom(TransformationType transformationModel, NoiseModel noiseModel, SequenceSize sourceSize, SequenceSize targetSize) {
+        if(transformationModel == TransformationType.AFFINE) {
+            return affineLeaveOneOutEngine;
+        }
+        if(transformationModel == TransformationType.RIGID && noiseModel == NoiseModel.ISOTROPIC) {
+            return rigidLeaveOneOutEngine;
+        }
+        if(transformationModel == TransformationType.SIMILARITY && noiseModel == NoiseModel.ISOTROPIC) {
+            return similarityLeaveOneOutEngine;
+        }
+        return new RefitLeaveOneOutEngine(registrationParameterFactory, transformationModel, noiseModel, sourceSize, targetSize);
+    }
+}
@@ -0,0 +1,25 @@
+package fr.univ_nantes.cli.model_deviation.loo;
+
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.Dataset;
+
+public class LeaveOneOutResult {
+
+    private Dataset registrationError;
+    private double[] registrationErrorDistance;
+
+    public LeaveOneOutResult(Dataset registrationError, double[] registrationErrorDistance) {
+        this.registrationError = registrationError;
+        this.registrationErrorDistance = registrationErrorDistance;
+    }
+
+    /**
+     * Excluded target point minus its prediction by the model fitted without it, one point per fiducial.
+     */
+    public Dataset getRegistrationError() {
+        return registrationError;
+    }
+
+    public double[] getRegistrationErrorDistance() {
+        return registrationErrorDistance;
+    }
+}
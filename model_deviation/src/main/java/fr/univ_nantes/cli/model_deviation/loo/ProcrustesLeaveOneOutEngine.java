@@ -0,0 +1,115 @@
+package fr.univ_nantes.cli.model_deviation.loo;
+
+import Jama.Matrix;
+import Jama.SingularValueDecomposition;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.FiducialSet;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.Dataset;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.point.Point;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.roi.PointType;
+
+/**
+ * Leave-one-out of the least squares rigid (or similarity) model. The sums Σz, Σy, Σ|z|² and Σ y zᵀ of the
+ * full set are computed once, removing a point is a constant time downdate followed by the SVD of the small
+ * cross-covariance matrix, so leaving out every point costs O(n) and the fiducial set is never modified.
+ */
+public abstract class ProcrustesLeaveOneOutEngine implements LeaveOneOutEngine {
+
+    private boolean withScaling;
+
+    protected ProcrustesLeaveOneOutEngine(boolean withScaling) {
+        this.withScaling = withScaling;
+    }
+
+    @Override
+    public LeaveOneOutResult compute(FiducialSet fiducialSet) {
+        int n = fiducialSet.getN();
+        int dimension = fiducialSet.getTargetDataset().getDimension();
+        double[][] source = fiducialSet.getSourceDataset().getMatrix().getArray();
+        double[][] target = fiducialSet.getTargetDataset().getMatrix().getArray();
+
+        double[] sz = new double[dimension];
+        double[] sy = new double[dimension];
+        double szz = 0;
+        double[][] syz = new double[dimension][dimension];
+        for(int i = 0; i < n; i++) {
+            for(int a = 0; a < dimension; a++) {
+                sz[a] += source[i][a];
+                sy[a] += target[i][a];
+                szz += source[i][a] * source[i][a];
+                for(int b = 0; b < dimension; b++) {
+                    syz[a][b] += target[i][a] * source[i][b];
+                }
+            }
+        }
+
+        Dataset registrationError = new Dataset(dimension, PointType.PREDICTED_ERROR);
+        double[] registrationErrorDistance = new double[n];
+        double m = n - 1;
+        double[] meanZ = new double[dimension];
+        double[] meanY = new double[dimension];
+        double[][] crossCovariance = new double[dimension][dimension];
+        double[][] r = new double[dimension][dimension];
+        for(int i = 0; i < n; i++) {
+            double[] z = source[i];
+            double[] y = target[i];
+            double sourceScatter = szz;
+            for(int a = 0; a < dimension; a++) {
+                meanZ[a] = (sz[a] - z[a]) / m;
+                meanY[a] = (sy[a] - y[a]) / m;
+                sourceScatter -= z[a] * z[a];
+            }
+            for(int a = 0; a < dimension; a++) {
+                sourceScatter -= m * meanZ[a] * meanZ[a];
+                for(int b = 0; b < dimension; b++) {
+                    crossCovariance[a][b] = syz[a][b] - y[a] * z[b] - m * meanY[a] * meanZ[b];
+                }
+            }
+            double scale = solveRotation(crossCovariance, r);
+            scale = withScaling ? scale / sourceScatter : 1;
+
+            double[] error = new double[dimension];
+            double squaredDistance = 0;
+            for(int a = 0; a < dimension; a++) {
+                double predicted = meanY[a];
+                for(int b = 0; b < dimension; b++) {
+                    predicted += scale * r[a][b] * (z[b] - meanZ[b]);
+                }
+                error[a] = y[a] - predicted;
+                squaredDistance += error[a] * error[a];
+            }
+            registrationError.addPoint(new Point(error));
+            registrationErrorDistance[i] = Math.sqrt(squaredDistance);
+        }
+        return new LeaveOneOutResult(registrationError, registrationErrorDistance);
+    }
+
+    /**
+     * Rotation R = U D Vᵀ maximizing tr(Rᵀ M) for M = U S Vᵀ, D fixing the sign of the determinant.
+     * Returns tr(D S), the numerator of the optimal scale.
+     */
+    private double solveRotation(double[][] crossCovariance, double[][] r) {
+        int dimension = crossCovariance.length;
+        SingularValueDecomposition svd = new Matrix(crossCovariance).svd();
+        double[][] u = svd.getU().getArray();
+        double[][] v = svd.getV().getArray();
+        double[] s = svd.getSingularValues();
+        double sign = Math.signum(svd.getU().det() * svd.getV().det());
+        if(sign == 0) {
+            sign = 1;
+        }
+        double trace = 0;
+        for(int k = 0; k < dimension; k++) {
+            trace += (k == dimension - 1 ? sign : 1) * s[k];
+        }
+        for(int a = 0; a < dimension; a++) {
+            for(int b = 0; b < dimension; b++) {
+                double value = 0;
+                for(int k = 0; k < dimension; k++) {
+                    value += u[a][k] * (k == dimension - 1 ? sign : 1) * v[b][k];
+                }
+                r[a][b] = value;
+            }
+        }
+        return trace;
+    }
+}
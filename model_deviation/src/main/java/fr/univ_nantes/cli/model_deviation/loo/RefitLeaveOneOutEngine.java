@@ -0,0 +1,60 @@
+package fr.univ_nantes.cli.model_deviation.loo;
+
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.FiducialSet;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.Dataset;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.point.Point;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.registration.RegistrationParameter;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.roi.PointType;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.sequence.SequenceSize;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.RegistrationParameterFactory;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.schema.NoiseModel;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.schema.TransformationSchema;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.schema.TransformationType;
+
+/**
+ * Refits the registration without each point in turn, for models without a closed form leave-one-out.
+ * The fiducial set is modified during the computation and restored afterwards.
+ */
+public class RefitLeaveOneOutEngine implements LeaveOneOutEngine {
+
+    private RegistrationParameterFactory registrationParameterFactory;
+    private TransformationType transformationModel;
+    private NoiseModel noiseModel;
+    private SequenceSize sourceSize;
+    private SequenceSize targetSize;
+
+    public RefitLeaveOneOutEngine(
+        RegistrationParameterFactory registrationParameterFactory,
+        TransformationType transformationModel,
+        NoiseModel noiseModel,
+        SequenceSize sourceSize,
+        SequenceSize targetSize
+    ) {
+        this.registrationParameterFactory = registrationParameterFactory;
+        this.transformationModel = transformationModel;
+        this.noiseModel = noiseModel;
+        this.sourceSize = sourceSize;
+        this.targetSize = targetSize;
+    }
+
+    @Override
+    public LeaveOneOutResult compute(FiducialSet fiducialSet) {
+        Dataset registrationError = new Dataset(fiducialSet.getTargetDataset().getDimension(), PointType.PREDICTED_ERROR);
+        double[] registrationErrorDistance = new double[fiducialSet.getN()];
+
+        for(int i = 0; i < fiducialSet.getN(); i++) {
+            Point excludedSourcePoint = fiducialSet.getSourceDataset().getPoint(i);
+            Point excludedTargetPoint = fiducialSet.getTargetDataset().getPoint(i);
+            fiducialSet.remove(i);
+
+            TransformationSchema transformationSchema = new TransformationSchema(fiducialSet, transformationModel, noiseModel, sourceSize, targetSize);
+            RegistrationParameter compute = registrationParameterFactory.getFrom(transformationSchema);
+            Point predictedExcludedTargetPoint = compute.getTransformation().apply(excludedSourcePoint);
+            registrationError.addPoint(excludedTargetPoint.minus(predictedExcludedTargetPoint));
+            registrationErrorDistance[i] = excludedTargetPoint.getDistance(predictedExcludedTargetPoint);
+
+            fiducialSet.add(i, excludedSourcePoint, excludedTargetPoint);
+        }
+        return new LeaveOneOutResult(registrationError, registrationErrorDistance);
+    }
+}
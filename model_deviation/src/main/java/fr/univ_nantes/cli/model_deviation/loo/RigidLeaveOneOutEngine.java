@@ -0,0 +1,11 @@
+package fr.univ_nantes.cli.model_deviation.loo;
+
+import javax.inject.Inject;
+
+public class RigidLeaveOneOutEngine extends ProcrustesLeaveOneOutEngine {
+
+    @Inject
+    public RigidLeaveOneOutEngine() {
+        super(false);
+    }
+}
@@ -0,0 +1,121 @@
+package fr.univ_nantes.cli.model_deviation.model;
+
+import Jama.Matrix;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.error.ellipse.CovarianceEstimatorFactory;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.Dataset;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.point.Point;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.schema.TransformationSchema;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.schema.TransformationType;
+import javax.inject.Inject;
+
+/**
+ * Predicted covariances of a whole dataset for a fitted schema.
+ *
+ * The predicted covariance J(z) I⁻¹ J(z)ᵀ is a quadratic form in the homogeneous source coordinates x = (z, 1),
+ * the jacobian of affine, rigid and similarity models being affine in z. Its coefficients, which hold the inverse
+ * Fisher information, are recovered once from the model covariance estimator at 1 + 2d + d(d-1)/2 points around
+ * the dataset centroid, then each point only costs a quadratic form.
+ */
+public class BatchCovarianceEstimator {
+
+    private CovarianceEstimatorFactory covarianceEstimatorFactory;
+
+    @Inject
+    public BatchCovarianceEstimator(CovarianceEstimatorFactory covarianceEstimatorFactory) {
+        this.covarianceEstimatorFactory = covarianceEstimatorFactory;
+    }
+
+    public Matrix[] getCovariances(TransformationType transformationType, TransformationSchema transformationSchema, Dataset sourceDataset) {
+        int n = sourceDataset.getN();
+        int d = sourceDataset.getDimension();
+        int p = d + 1;
+        double[][] source = sourceDataset.getMatrix().getArray();
+
+        double[] center = new double[d];
+        for(int i = 0; i < n; i++) {
+            for(int a = 0; a < d; a++) {
+                center[a] += source[i][a] / n;
+            }
+        }
+        double scale = 0;
+        for(int i = 0; i < n; i++) {
+            for(int a = 0; a < d; a++) {
+                scale += Math.pow(source[i][a] - center[a], 2) / n;
+            }
+        }
+        scale = scale > 0 ? Math.sqrt(scale) : 1;
+
+        double[][][][] coefficients = new double[p][p][][];
+        double[][] constant = getCovariance(transformationType, transformationSchema, center, scale, new double[d]);
+        coefficients[d][d] = constant;
+        for(int j = 0; j < d; j++) {
+            double[] offset = new double[d];
+            offset[j] = 1;
+            double[][] plus = getCovariance(transformationType, transformationSchema, center, scale, offset);
+            offset[j] = -1;
+            double[][] minus = getCovariance(transformationType, transformationSchema, center, scale, offset);
+            double[][] linear = new double[constant.length][constant.length];
+            double[][] square = new double[constant.length][constant.length];
+            for(int a = 0; a < constant.length; a++) {
+                for(int b = 0; b < constant.length; b++) {
+                    linear[a][b] = (plus[a][b] - minus[a][b]) / 4d;
+                    square[a][b] = (plus[a][b] + minus[a][b]) / 2d - constant[a][b];
+                }
+            }
+            coefficients[j][d] = linear;
+            coefficients[d][j] = linear;
+            coefficients[j][j] = square;
+        }
+        for(int j = 0; j < d; j++) {
+            for(int k = j + 1; k < d; k++) {
+                double[] offset = new double[d];
+                offset[j] = 1;
+                offset[k] = 1;
+                double[][] both = getCovariance(transformationType, transformationSchema, center, scale, offset);
+                double[][] cross = new double[constant.length][constant.length];
+                for(int a = 0; a < constant.length; a++) {
+                    for(int b = 0; b < constant.length; b++) {
+                        cross[a][b] = (both[a][b] - constant[a][b]
+                            - 2d * (coefficients[j][d][a][b] + coefficients[k][d][a][b])
+                            - coefficients[j][j][a][b] - coefficients[k][k][a][b]) / 2d;
+                    }
+                }
+                coefficients[j][k] = cross;
+                coefficients[k][j] = cross;
+            }
+        }
+
+        Matrix[] covariances = new Matrix[n];
+        double[] x = new double[p];
+        x[d] = 1;
+        for(int i = 0; i < n; i++) {
+            for(int a = 0; a < d; a++) {
+                x[a] = (source[i][a] - center[a]) / scale;
+            }
+            double[][] covariance = new double[constant.length][constant.length];
+            for(int a = 0; a < p; a++) {
+                for(int b = 0; b < p; b++) {
+                    double weight = x[a] * x[b];
+                    double[][] coefficient = coefficients[a][b];
+                    for(int k = 0; k < constant.length; k++) {
+                        for(int l = 0; l < constant.length; l++) {
+                            covariance[k][l] += weight * coefficient[k][l];
+                        }
+                    }
+                }
+            }
+            covariances[i] = new Matrix(covariance);
+        }
+        return covariances;
+    }
+
+    private double[][] getCovariance(TransformationType transformationType, TransformationSchema transformationSchema, double[] center, double scale, double[] offset) {
+        double[] coordinates = new double[center.length];
+        for(int a = 0; a < center.length; a++) {
+            coordinates[a] = center[a] + scale * offset[a];
+        }
+        return covarianceEstimatorFactory.getFrom(transformationType)
+            .getCovariance(transformationSchema, new Point(coordinates))
+            .getArray();
+    }
+}
@@ -0,0 +1,41 @@
+package fr.univ_nantes.cli.model_deviation.model;
+
+import Jama.Matrix;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.point.Point;
+import javax.inject.Inject;
+
+/**
+ * Coverage and area of confidence regions evaluated in closed form, without building ellipses or shapes.
+ * A point is in the ellipse of covariance Σ and quantile χ² when rᵀΣ⁻¹r ≤ χ², its area being π χ² √det Σ, and
+ * in the disk of radius ρ when |r| ≤ ρ.
+ */
+public class EllipseEvaluator {
+
+    @Inject
+    public EllipseEvaluator() {}
+
+    /**
+     * Squared Mahalanobis distance rᵀΣ⁻¹r between the point and the center, to be compared to the χ² quantile of each
+     * significance level without building the ellipses.
+     */
+    public double getMahalanobisDistance(Matrix covariance, Point center, Point point) {
+        double rx = point.get(0) - center.get(0);
+        double ry = point.get(1) - center.get(1);
+        double sxx = covariance.get(0, 0);
+        double syy = covariance.get(1, 1);
+        double sxy = (covariance.get(0, 1) + covariance.get(1, 0)) / 2;
+        return (syy * rx * rx - 2 * sxy * rx * ry + sxx * ry * ry) / (sxx * syy - sxy * sxy);
+    }
+
+    /**
+     * Area π χ² √det Σ of the ellipse rᵀΣ⁻¹r ≤ χ².
+     */
+    public double getArea(Matrix covariance, double chiSquared) {
+        double sxy = (covariance.get(0, 1) + covariance.get(1, 0)) / 2;
+        return Math.PI * chiSquared * Math.sqrt(covariance.get(0, 0) * covariance.get(1, 1) - sxy * sxy);
+    }
+
+    public double getArea(double radius) {
+        return Math.PI * radius * radius;
+    }
+}
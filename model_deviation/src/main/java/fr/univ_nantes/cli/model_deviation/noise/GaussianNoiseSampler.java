@@ -0,0 +1,70 @@
+package fr.univ_nantes.cli.model_deviation.noise;
+
+import Jama.Matrix;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.Dataset;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.roi.PointType;
+
+/**
+ * Correlated gaussian noise of a fixed covariance Σ = LLᵀ, the Cholesky factor being computed once.
+ * Coordinates are packed column wise as in Jama : coordinate a of point i is at a * n + i.
+ * Thread safe, the standard normal innovations are given by the caller.
+ */
+public class GaussianNoiseSampler {
+
+    private int dimension;
+    private double[][] covariance;
+    private double[][] cholesky;
+
+    public GaussianNoiseSampler(double[][] covariance) {
+        dimension = covariance.length;
+        this.covariance = covariance;
+        cholesky = new Matrix(covariance).chol().getL().getArray();
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public double[][] getCovariance() {
+        return covariance;
+    }
+
+    /**
+     * Adds in place the noise L z to the n points packed in coordinates, the standard normal innovations z of
+     * point i being innovations[offset + i * dimension + a]. The same innovations may be shared by several samplers.
+     */
+    public void addNoise(double[] coordinates, int n, double[] innovations, int offset) {
+        if(dimension == 2) {
+            double l00 = cholesky[0][0];
+            double l10 = cholesky[1][0];
+            double l11 = cholesky[1][1];
+            for(int i = 0; i < n; i++) {
+                double z0 = innovations[offset + 2 * i];
+                double z1 = innovations[offset + 2 * i + 1];
+                coordinates[i] += l00 * z0;
+                coordinates[n + i] += l10 * z0 + l11 * z1;
+            }
+            return;
+        }
+        for(int i = 0; i < n; i++) {
+            int row = offset + i * dimension;
+            for(int a = 0; a < dimension; a++) {
+                double value = 0;
+                for(int b = 0; b <= a; b++) {
+                    value += cholesky[a][b] * innovations[row + b];
+                }
+                coordinates[a * n + i] += value;
+            }
+        }
+    }
+
+    /**
+     * Noisy copy of the dataset.
+     */
+    public Dataset getNoisy(Dataset dataset, double[] innovations, int offset) {
+        int n = dataset.getN();
+        double[] coordinates = dataset.getMatrix().getColumnPackedCopy();
+        addNoise(coordinates, n, innovations, offset);
+        return new Dataset(new Matrix(coordinates, n), PointType.FIDUCIAL);
+    }
+}
@@ -0,0 +1,161 @@
+package test.fr.univ_nantes.cli.model_deviation;
+
+import Jama.Matrix;
+import fr.univ_nantes.cli.model_deviation.loo.AffineLeaveOneOutEngine;
+import fr.univ_nantes.cli.model_deviation.loo.LeaveOneOutResult;
+import fr.univ_nantes.cli.model_deviation.loo.RefitLeaveOneOutEngine;
+import icy.sequence.DimensionId;
+import org.junit.jupiter.api.Test;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.FiducialSet;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.Dataset;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.roi.PointType;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.sequence.DimensionSize;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.sequence.SequenceSize;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.RegistrationParameterFactory;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.schema.NoiseModel;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.schema.TransformationType;
+import javax.inject.Inject;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AffineLeaveOneOutEngineTest {
+
+    private static final int N = 10;
+    private static final int WIDTH = 512;
+
+    private AffineLeaveOneOutEngine affineLeaveOneOutEngine;
+    private RegistrationParameterFactory registrationParameterFactory;
+
+    public AffineLeaveOneOutEngineTest() {
+        DaggerAffineLeaveOneOutEngineTestComponent.create().inject(this);
+    }
+
+    @Test
+    void testSameAsRefit() {
+        FiducialSet fiducialSet = getFiducialSet(new Random(42));
+        double[][] source = fiducialSet.getSourceDataset().getMatrix().getArray();
+        double[][] target = fiducialSet.getTargetDataset().getMatrix().getArray();
+
+        LeaveOneOutResult subjectUnderTest = affineLeaveOneOutEngine.compute(fiducialSet);
+
+        double[][] error = subjectUnderTest.getRegistrationError().getMatrix().getArray();
+        assertEquals(N, error.length);
+        for(int i = 0; i < N; i++) {
+            double[] expected = getRefitError(source, target, i);
+            double squaredDistance = 0;
+            for(int a = 0; a < 2; a++) {
+                assertEquals(expected[a], error[i][a], 1e-8);
+                squaredDistance += expected[a] * expected[a];
+            }
+            assertEquals(Math.sqrt(squaredDistance), subjectUnderTest.getRegistrationErrorDistance()[i], 1e-8);
+        }
+    }
+
+    @Test
+    void testDoesNotModifyFiducialSet() {
+        FiducialSet fiducialSet = getFiducialSet(new Random(42));
+        double[][] source = fiducialSet.getSourceDataset().getMatrix().getArrayCopy();
+        double[][] target = fiducialSet.getTargetDataset().getMatrix().getArrayCopy();
+
+        affineLeaveOneOutEngine.compute(fiducialSet);
+
+        assertEquals(N, fiducialSet.getN());
+        for(int i = 0; i < N; i++) {
+            for(int a = 0; a < 2; a++) {
+                assertEquals(source[i][a], fiducialSet.getSourceDataset().getMatrix().get(i, a));
+                assertEquals(target[i][a], fiducialSet.getTargetDataset().getMatrix().get(i, a));
+            }
+        }
+    }
+
+    @Test
+    void testSameAsRefitEngineIsotropic() {
+        testSameAsRefitEngine(NoiseModel.ISOTROPIC);
+    }
+
+    /**
+     * Every coordinate has the same design, so the maximum likelihood estimate under anisotropic noise is still the
+     * least squares one.
+     */
+    @Test
+    void testSameAsRefitEngineAnisotropic() {
+        testSameAsRefitEngine(NoiseModel.ANISOTROPIC);
+    }
+
+    private void testSameAsRefitEngine(NoiseModel noiseModel) {
+        FiducialSet fiducialSet = getFiducialSet(new Random(42));
+
+        LeaveOneOutResult subjectUnderTest = affineLeaveOneOutEngine.compute(fiducialSet);
+        LeaveOneOutResult expected = new RefitLeaveOneOutEngine(
+            registrationParameterFactory, TransformationType.AFFINE, noiseModel, getSequenceSize(), getSequenceSize()
+        ).compute(fiducialSet);
+
+        double[][] expectedError = expected.getRegistrationError().getMatrix().getArray();
+        double[][] error = subjectUnderTest.getRegistrationError().getMatrix().getArray();
+        assertEquals(N, error.length);
+        for(int i = 0; i < N; i++) {
+            for(int a = 0; a < 2; a++) {
+                assertEquals(expectedError[i][a], error[i][a], 1e-6);
+            }
+            assertEquals(expected.getRegistrationErrorDistance()[i], subjectUnderTest.getRegistrationErrorDistance()[i], 1e-6);
+        }
+    }
+
+    /**
+     * Least squares affine fit of every point but the excluded one, then target minus prediction.
+     */
+    private double[] getRefitError(double[][] source, double[][] target, int excluded) {
+        double[][] x = new double[N - 1][3];
+        double[][] y = new double[N - 1][2];
+        for(int i = 0, row = 0; i < N; i++) {
+            if(i == excluded) {
+                continue;
+            }
+            x[row][0] = source[i][0];
+            x[row][1] = source[i][1];
+            x[row][2] = 1;
+            y[row][0] = target[i][0];
+            y[row][1] = target[i][1];
+            row++;
+        }
+        double[][] beta = new Matrix(x).solve(new Matrix(y)).getArray();
+        double[] error = new double[2];
+        for(int a = 0; a < 2; a++) {
+            error[a] = target[excluded][a]
+                - (source[excluded][0] * beta[0][a] + source[excluded][1] * beta[1][a] + beta[2][a]);
+        }
+        return error;
+    }
+
+    private FiducialSet getFiducialSet(Random random) {
+        double[][] source = new double[N][2];
+        double[][] target = new double[N][2];
+        for(int i = 0; i < N; i++) {
+            source[i][0] = WIDTH * random.nextDouble();
+            source[i][1] = WIDTH * random.nextDouble();
+            target[i][0] = 1.2 * source[i][0] + 0.3 * source[i][1] + 20 + 3 * random.nextGaussian();
+            target[i][1] = -0.1 * source[i][0] + 0.9 * source[i][1] - 10 + 3 * random.nextGaussian();
+        }
+        return new FiducialSet(
+            new Dataset(new Matrix(source), PointType.FIDUCIAL),
+            new Dataset(new Matrix(target), PointType.FIDUCIAL)
+        );
+    }
+
+    private SequenceSize getSequenceSize() {
+        SequenceSize sequenceSize = new SequenceSize();
+        sequenceSize.add(new DimensionSize(DimensionId.X, WIDTH, 1));
+        sequenceSize.add(new DimensionSize(DimensionId.Y, WIDTH, 1));
+        return sequenceSize;
+    }
+
+    @Inject
+    public void setAffineLeaveOneOutEngine(AffineLeaveOneOutEngine affineLeaveOneOutEngine) {
+        this.affineLeaveOneOutEngine = affineLeaveOneOutEngine;
+    }
+
+    @Inject
+    public void setRegistrationParameterFactory(RegistrationParameterFactory registrationParameterFactory) {
+        this.registrationParameterFactory = registrationParameterFactory;
+    }
+}
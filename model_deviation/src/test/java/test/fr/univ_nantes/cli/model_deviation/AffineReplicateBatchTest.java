@@ -0,0 +1,110 @@
+package test.fr.univ_nantes.cli.model_deviation;
+
+import Jama.Matrix;
+import fr.univ_nantes.cli.model_deviation.batch.AffineReplicateBatch;
+import fr.univ_nantes.cli.model_deviation.noise.GaussianNoiseSampler;
+import fr.univ_nantes.stats.monte_carlo.noise.InnovationSequence;
+import fr.univ_nantes.stats.monte_carlo.noise.PseudoRandomInnovationSequence;
+import fr.univ_nantes.stats.monte_carlo.noise.ReplicateRandomFactory;
+import org.junit.jupiter.api.Test;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.error.likelihood_ratio.LikelihoodRatioTest;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.FiducialSet;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.Dataset;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.registration.AffineRegistrationParameterComputer;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.registration.RigidRegistrationParameterComputer;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.roi.PointType;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AffineReplicateBatchTest {
+
+    private static final int N = 12;
+    private static final int NB_REPLICATES = 20;
+    private static final int BATCH_SIZE = 8;
+    private static final int WIDTH = 512;
+    private static final double[][] NOISE_COVARIANCE = new double[][] {
+        { 4, 1 },
+        { 1, 2 }
+    };
+
+    private AffineRegistrationParameterComputer affineTransformationComputer;
+    private RigidRegistrationParameterComputer rigidTransformationComputer;
+
+    public AffineReplicateBatchTest() {
+        DaggerAffineReplicateBatchTestComponent.create().inject(this);
+    }
+
+    /**
+     * Replicates of the batched path and of the per replicate path of the likelihood command, fed with the same
+     * innovations, have the same log-likelihoods and p-values.
+     */
+    @Test
+    void testSameAsPerReplicateFit() {
+        FiducialSet fiducialSet = getFiducialSet(new Random(42));
+        double[][] source = fiducialSet.getSourceDataset().getMatrix().getArray();
+        double[][] target = fiducialSet.getTargetDataset().getMatrix().getArray();
+        AffineReplicateBatch subjectUnderTest = new AffineReplicateBatch(source, target, NOISE_COVARIANCE, BATCH_SIZE);
+        InnovationSequence innovationSequence = new PseudoRandomInnovationSequence(new ReplicateRandomFactory(42));
+        List<double[]> batched = new ArrayList<>();
+        for(int current = 0; current < NB_REPLICATES; current += subjectUnderTest.getBatchSize()) {
+            subjectUnderTest.simulate(
+                current,
+                Math.min(subjectUnderTest.getBatchSize(), NB_REPLICATES - current),
+                innovationSequence,
+                (affineLogLikelihood, rigidLogLikelihood) -> batched.add(new double[] { affineLogLikelihood, rigidLogLikelihood })
+            );
+        }
+
+        assertEquals(NB_REPLICATES, batched.size());
+        LikelihoodRatioTest likelihoodRatioTest = new LikelihoodRatioTest();
+        GaussianNoiseSampler noiseSampler = new GaussianNoiseSampler(NOISE_COVARIANCE);
+        double[] innovations = new double[N * 2];
+        for(int k = 0; k < NB_REPLICATES; k++) {
+            innovationSequence.fill(k, innovations);
+            FiducialSet clone = new FiducialSet(
+                fiducialSet.getSourceDataset(),
+                noiseSampler.getNoisy(fiducialSet.getTargetDataset(), innovations, 0)
+            );
+            double affineLogLikelihood = affineTransformationComputer.compute(clone).getLogLikelihood();
+            double rigidLogLikelihood = rigidTransformationComputer.compute(clone).getLogLikelihood();
+            assertEquals(affineLogLikelihood, batched.get(k)[0], 1e-6 * Math.abs(affineLogLikelihood));
+            assertEquals(rigidLogLikelihood, batched.get(k)[1], 1e-6 * Math.abs(rigidLogLikelihood));
+            assertEquals(
+                likelihoodRatioTest.test(5, rigidLogLikelihood, affineLogLikelihood),
+                likelihoodRatioTest.test(5, batched.get(k)[1], batched.get(k)[0]),
+                1e-6
+            );
+        }
+    }
+
+    /**
+     * Noise free targets of an affine transformation, noise being drawn around them.
+     */
+    private FiducialSet getFiducialSet(Random random) {
+        double[][] source = new double[N][2];
+        double[][] target = new double[N][2];
+        for(int i = 0; i < N; i++) {
+            source[i][0] = WIDTH * random.nextDouble();
+            source[i][1] = WIDTH * random.nextDouble();
+            target[i][0] = 1.1 * source[i][0] + 0.2 * source[i][1] + 20;
+            target[i][1] = -0.3 * source[i][0] + 0.9 * source[i][1] - 10;
+        }
+        return new FiducialSet(
+            new Dataset(new Matrix(source), PointType.FIDUCIAL),
+            new Dataset(new Matrix(target), PointType.FIDUCIAL)
+        );
+    }
+
+    @Inject
+    public void setAffineTransformationComputer(AffineRegistrationParameterComputer affineTransformationComputer) {
+        this.affineTransformationComputer = affineTransformationComputer;
+    }
+
+    @Inject
+    public void setRigidTransformationComputer(RigidRegistrationParameterComputer rigidTransformationComputer) {
+        this.rigidTransformationComputer = rigidTransformationComputer;
+    }
+}
@@ -0,0 +1,10 @@
+package test.fr.univ_nantes.cli.model_deviation;
+
+import dagger.Component;
+import javax.inject.Singleton;
+
+@Singleton
+@Component()
+public interface AffineReplicateBatchTestComponent {
+    void inject(AffineReplicateBatchTest affineReplicateBatchTest);
+}
@@ -0,0 +1,120 @@
+package test.fr.univ_nantes.cli.model_deviation;
+
+import Jama.Matrix;
+import fr.univ_nantes.cli.model_deviation.model.BatchCovarianceEstimator;
+import icy.sequence.DimensionId;
+import org.junit.jupiter.api.Test;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.error.ellipse.CovarianceEstimatorFactory;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.FiducialSet;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.Dataset;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.point.Point;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.roi.PointType;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.sequence.DimensionSize;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.sequence.SequenceSize;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.schema.NoiseModel;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.schema.TransformationSchema;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.schema.TransformationType;
+import javax.inject.Inject;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BatchCovarianceEstimatorTest {
+
+    private static final int N = 12;
+    private static final int NB_TEST_POINTS = 20;
+    private static final int WIDTH = 512;
+
+    private BatchCovarianceEstimator batchCovarianceEstimator;
+    private CovarianceEstimatorFactory covarianceEstimatorFactory;
+
+    public BatchCovarianceEstimatorTest() {
+        DaggerBatchCovarianceEstimatorTestComponent.create().inject(this);
+    }
+
+    @Test
+    void testSameAsPointCovarianceRigid() {
+        testSameAsPointCovariance(TransformationType.RIGID);
+    }
+
+    @Test
+    void testSameAsPointCovarianceSimilarity() {
+        testSameAsPointCovariance(TransformationType.SIMILARITY);
+    }
+
+    @Test
+    void testSameAsPointCovarianceAffine() {
+        testSameAsPointCovariance(TransformationType.AFFINE);
+    }
+
+    /**
+     * The test points are drawn over the whole image, off the probes around the centroid the quadratic form is
+     * recovered from, some of them far outside the fiducials.
+     */
+    private void testSameAsPointCovariance(TransformationType transformationType) {
+        Random random = new Random(42);
+        FiducialSet fiducialSet = getFiducialSet(random);
+        TransformationSchema transformationSchema = new TransformationSchema(
+            fiducialSet, transformationType, NoiseModel.ISOTROPIC, getSequenceSize(), getSequenceSize()
+        );
+        Dataset testDataset = new Dataset(getRandomMatrix(random, NB_TEST_POINTS, 2 * WIDTH, -WIDTH / 2d), PointType.NOT_FIDUCIAL);
+
+        Matrix[] subjectUnderTest = batchCovarianceEstimator.getCovariances(transformationType, transformationSchema, testDataset);
+
+        assertEquals(NB_TEST_POINTS, subjectUnderTest.length);
+        for(int i = 0; i < NB_TEST_POINTS; i++) {
+            double[][] expected = covarianceEstimatorFactory.getFrom(transformationType)
+                .getCovariance(transformationSchema, new Point(testDataset.getMatrix().getArray()[i].clone()))
+                .getArray();
+            double[][] actual = subjectUnderTest[i].getArray();
+            double tolerance = 1e-6 * new Matrix(expected).normInf();
+            assertEquals(expected.length, actual.length);
+            for(int a = 0; a < expected.length; a++) {
+                for(int b = 0; b < expected.length; b++) {
+                    assertEquals(expected[a][b], actual[a][b], tolerance);
+                }
+            }
+        }
+    }
+
+    private FiducialSet getFiducialSet(Random random) {
+        double angle = 0.3;
+        Matrix source = getRandomMatrix(random, N, WIDTH, 0);
+        double[][] target = new double[N][2];
+        for(int i = 0; i < N; i++) {
+            double[] z = source.getArray()[i];
+            target[i][0] = Math.cos(angle) * z[0] - Math.sin(angle) * z[1] + 20 + 3 * random.nextGaussian();
+            target[i][1] = Math.sin(angle) * z[0] + Math.cos(angle) * z[1] - 10 + 3 * random.nextGaussian();
+        }
+        return new FiducialSet(
+            new Dataset(source, PointType.FIDUCIAL),
+            new Dataset(new Matrix(target), PointType.FIDUCIAL)
+        );
+    }
+
+    private Matrix getRandomMatrix(Random random, int n, double range, double offset) {
+        double[][] coordinates = new double[n][2];
+        for(int i = 0; i < n; i++) {
+            for(int a = 0; a < 2; a++) {
+                coordinates[i][a] = offset + range * random.nextDouble();
+            }
+        }
+        return new Matrix(coordinates);
+    }
+
+    private SequenceSize getSequenceSize() {
+        SequenceSize sequenceSize = new SequenceSize();
+        sequenceSize.add(new DimensionSize(DimensionId.X, WIDTH, 1));
+        sequenceSize.add(new DimensionSize(DimensionId.Y, WIDTH, 1));
+        return sequenceSize;
+    }
+
+    @Inject
+    public void setBatchCovarianceEstimator(BatchCovarianceEstimator batchCovarianceEstimator) {
+        this.batchCovarianceEstimator = batchCovarianceEstimator;
+    }
+
+    @Inject
+    public void setCovarianceEstimatorFactory(CovarianceEstimatorFactory covarianceEstimatorFactory) {
+        this.covarianceEstimatorFactory = covarianceEstimatorFactory;
+    }
+}
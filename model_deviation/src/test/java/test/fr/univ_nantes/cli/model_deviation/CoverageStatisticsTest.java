@@ -0,0 +1,143 @@
+package test.fr.univ_nantes.cli.model_deviation;
+
+import fr.univ_nantes.cli.model_deviation.CoverageStatistics;
+import fr.univ_nantes.cli.model_deviation.ShapeStat;
+import fr.univ_nantes.stats.monte_carlo.noise.ReplicateRandomFactory;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CoverageStatisticsTest {
+
+    private static final int NB_TEST_POINTS = 4;
+    private static final double[] PERCENTILES = new double[] { 5, 25, 50, 75, 95 };
+
+    /**
+     * Fewer replicates than the sketch capacity : no compaction happens and the merged percentiles are exact.
+     */
+    @Test
+    void testMergeSameAsSequential() {
+        int[] boundaries = new int[] { 0, 40, 41, 41, 150 };
+        double[][][] values = getValues(new Random(42), 150);
+        CoverageStatistics expected = new CoverageStatistics(NB_TEST_POINTS, new ReplicateRandomFactory(42));
+        fill(expected, values, 0, 150);
+
+        CoverageStatistics subjectUnderTest = getMerged(values, boundaries);
+
+        for(int i = 0; i < NB_TEST_POINTS; i++) {
+            assertSame(expected.getEllipsesFromRegression()[i], subjectUnderTest.getEllipsesFromRegression()[i]);
+            assertSame(expected.getEllipsesFromLoo()[i], subjectUnderTest.getEllipsesFromLoo()[i]);
+            assertSame(expected.getDisksFromLoo()[i], subjectUnderTest.getDisksFromLoo()[i]);
+            for(double percentile : PERCENTILES) {
+                assertEquals(
+                    expected.getDisksFromLoo()[i].getAreaPercentile(percentile),
+                    subjectUnderTest.getDisksFromLoo()[i].getAreaPercentile(percentile)
+                );
+                assertEquals(
+                    expected.getDisksFromLoo()[i].getErrorPercentile(percentile),
+                    subjectUnderTest.getDisksFromLoo()[i].getErrorPercentile(percentile)
+                );
+            }
+        }
+        assertEquals(expected.getMaxCoverageHalfWidth(), subjectUnderTest.getMaxCoverageHalfWidth(), 1e-15);
+    }
+
+    /**
+     * Enough replicates for the sketches to compact : merged percentiles stay within the rank error of the sketch.
+     */
+    @Test
+    void testMergedPercentilesWithinRankError() {
+        int n = 20000;
+        int[] boundaries = new int[] { 0, 5000, 5001, 12000, n };
+        double[][][] values = getValues(new Random(42), n);
+
+        CoverageStatistics subjectUnderTest = getMerged(values, boundaries);
+
+        for(int i = 0; i < NB_TEST_POINTS; i++) {
+            double[] areas = new double[n];
+            for(int r = 0; r < n; r++) {
+                areas[r] = values[r][i][1];
+            }
+            Arrays.sort(areas);
+            for(double percentile : PERCENTILES) {
+                double estimate = subjectUnderTest.getDisksFromLoo()[i].getAreaPercentile(percentile);
+                double rank = (double) Math.abs(Arrays.binarySearch(areas, estimate)) / n;
+                assertEquals(percentile / 100d, rank, 0.02);
+            }
+        }
+    }
+
+    @Test
+    void testMergeIsReproducible() {
+        int n = 20000;
+        int[] boundaries = new int[] { 0, 5000, 5001, 12000, n };
+        double[][][] values = getValues(new Random(42), n);
+
+        CoverageStatistics first = getMerged(values, boundaries);
+        CoverageStatistics second = getMerged(values, boundaries);
+
+        for(int i = 0; i < NB_TEST_POINTS; i++) {
+            for(double percentile : PERCENTILES) {
+                assertEquals(
+                    first.getEllipsesFromLoo()[i].getAreaPercentile(percentile),
+                    second.getEllipsesFromLoo()[i].getAreaPercentile(percentile)
+                );
+            }
+        }
+    }
+
+    private void assertSame(ShapeStat expected, ShapeStat actual) {
+        assertEquals(expected.getN(), actual.getN());
+        assertEquals(expected.getCounter(), actual.getCounter());
+        assertEquals(expected.getArea(), actual.getArea(), 1e-12);
+        assertEquals(expected.getAreaSd(), actual.getAreaSd(), 1e-12);
+    }
+
+    /**
+     * One worker per range of replicates, ranges of uneven sizes and some of them empty.
+     */
+    private CoverageStatistics getMerged(double[][][] values, int[] boundaries) {
+        List<CoverageStatistics> partials = new ArrayList<>();
+        for(int b = 0; b < boundaries.length - 1; b++) {
+            CoverageStatistics partial = new CoverageStatistics(NB_TEST_POINTS, new ReplicateRandomFactory(b + 1));
+            fill(partial, values, boundaries[b], boundaries[b + 1]);
+            partials.add(partial);
+        }
+        return CoverageStatistics.merge(partials, NB_TEST_POINTS, new ReplicateRandomFactory(0));
+    }
+
+    private void fill(CoverageStatistics coverageStatistics, double[][][] values, int from, int to) {
+        for(int r = from; r < to; r++) {
+            for(int i = 0; i < NB_TEST_POINTS; i++) {
+                for(ShapeStat shapeStat : new ShapeStat[] {
+                    coverageStatistics.getEllipsesFromRegression()[i],
+                    coverageStatistics.getEllipsesFromLoo()[i],
+                    coverageStatistics.getDisksFromLoo()[i]
+                }) {
+                    shapeStat.updateCounter(values[r][i][0] < 0.95);
+                    shapeStat.updateArea(values[r][i][1]);
+                    shapeStat.updateError(values[r][i][2]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Uniform draw deciding coverage, area and error of every test point of every replicate.
+     */
+    private double[][][] getValues(Random random, int n) {
+        double[][][] values = new double[n][NB_TEST_POINTS][3];
+        for(int r = 0; r < n; r++) {
+            for(int i = 0; i < NB_TEST_POINTS; i++) {
+                values[r][i][0] = random.nextDouble();
+                values[r][i][1] = (i + 1) * 100 * Math.exp(0.3 * random.nextGaussian());
+                values[r][i][2] = Math.abs(3 * random.nextGaussian());
+            }
+        }
+        return values;
+    }
+}
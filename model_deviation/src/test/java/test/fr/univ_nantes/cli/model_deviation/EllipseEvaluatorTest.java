@@ -0,0 +1,107 @@
+package test.fr.univ_nantes.cli.model_deviation;
+
+import Jama.Matrix;
+import fr.univ_nantes.cli.model_deviation.model.EllipseEvaluator;
+import fr.univ_nantes.cli.model_deviation.model.ShapeEllipseFactory;
+import fr.univ_nantes.cli.model_deviation.model.truth.ChiSquaredEstimator;
+import org.junit.jupiter.api.Test;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.error.ellipse.ConfidenceEllipseFactory;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.error.ellipse.Ellipse;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.FiducialSet;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.Dataset;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.point.Point;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.roi.PointType;
+import javax.inject.Inject;
+import java.awt.Shape;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class EllipseEvaluatorTest {
+
+    private static final double ALPHA = 0.95;
+    private static final int NB_DIRECTIONS = 16;
+    /**
+     * Mahalanobis radii relative to the boundary : inside, near the boundary on both sides, outside.
+     * The shape is a Bézier approximation of the ellipse, a few 1e-4 off, hence the 1 ± 1e-2 points.
+     */
+    private static final double[] RELATIVE_RADII = new double[] { 0, 0.5, 0.99, 1.01, 1.5, 3 };
+
+    private EllipseEvaluator ellipseEvaluator;
+    private ConfidenceEllipseFactory confidenceEllipseFactory;
+    private ShapeEllipseFactory shapeEllipseFactory;
+    private ChiSquaredEstimator chiSquaredEstimator;
+
+    public EllipseEvaluatorTest() {
+        DaggerEllipseEvaluatorTestComponent.create().inject(this);
+    }
+
+    @Test
+    void testContainsSameAsShape() {
+        FiducialSet fiducialSet = getFiducialSet();
+        Matrix covariance = getCovariance();
+        Point center = new Point(new double[] { 100, 200 });
+        double chiSquared = chiSquaredEstimator.getFrom(fiducialSet, ALPHA);
+        Shape shape = shapeEllipseFactory.getFrom(confidenceEllipseFactory.getFrom(center, fiducialSet, covariance, ALPHA));
+        Matrix cholesky = covariance.chol().getL();
+        for(int k = 0; k < NB_DIRECTIONS; k++) {
+            double angle = 2 * Math.PI * k / NB_DIRECTIONS;
+            for(double relativeRadius : RELATIVE_RADII) {
+                // r = t √χ² L u with |u| = 1, so that rᵀΣ⁻¹r = t² χ²
+                double ux = relativeRadius * Math.sqrt(chiSquared) * Math.cos(angle);
+                double uy = relativeRadius * Math.sqrt(chiSquared) * Math.sin(angle);
+                double x = center.get(0) + cholesky.get(0, 0) * ux;
+                double y = center.get(1) + cholesky.get(1, 0) * ux + cholesky.get(1, 1) * uy;
+                double distance = ellipseEvaluator.getMahalanobisDistance(covariance, center, new Point(new double[] { x, y }));
+                assertEquals(relativeRadius * relativeRadius * chiSquared, distance, 1e-9 * chiSquared);
+                assertEquals(shape.contains(x, y), distance <= chiSquared);
+            }
+        }
+    }
+
+    @Test
+    void testAreaSameAsEllipse() {
+        FiducialSet fiducialSet = getFiducialSet();
+        Matrix covariance = getCovariance();
+        Point center = new Point(new double[] { 100, 200 });
+        double chiSquared = chiSquaredEstimator.getFrom(fiducialSet, ALPHA);
+        Ellipse ellipse = confidenceEllipseFactory.getFrom(center, fiducialSet, covariance, ALPHA);
+        double[] eigenValues = ellipse.getEigenValues();
+        double expected = Math.PI * Math.sqrt(eigenValues[0] * eigenValues[1]);
+        assertEquals(expected, ellipseEvaluator.getArea(covariance, chiSquared), 1e-9 * expected);
+    }
+
+    private Matrix getCovariance() {
+        return new Matrix(new double[][] {
+            { 9, 4 },
+            { 4, 5 }
+        });
+    }
+
+    private FiducialSet getFiducialSet() {
+        double[][] source = new double[][] { { 0, 0 }, { 10, 0 }, { 0, 10 }, { 10, 10 } };
+        double[][] target = new double[][] { { 1, 2 }, { 11, 1 }, { 0, 12 }, { 10, 11 } };
+        return new FiducialSet(
+            new Dataset(new Matrix(source), PointType.FIDUCIAL),
+            new Dataset(new Matrix(target), PointType.FIDUCIAL)
+        );
+    }
+
+    @Inject
+    public void setEllipseEvaluator(EllipseEvaluator ellipseEvaluator) {
+        this.ellipseEvaluator = ellipseEvaluator;
+    }
+
+    @Inject
+    public void setConfidenceEllipseFactory(ConfidenceEllipseFactory confidenceEllipseFactory) {
+        this.confidenceEllipseFactory = confidenceEllipseFactory;
+    }
+
+    @Inject
+    public void setShapeEllipseFactory(ShapeEllipseFactory shapeEllipseFactory) {
+        this.shapeEllipseFactory = shapeEllipseFactory;
+    }
+
+    @Inject
+    public void setChiSquaredEstimator(ChiSquaredEstimator chiSquaredEstimator) {
+        this.chiSquaredEstimator = chiSquaredEstimator;
+    }
+}
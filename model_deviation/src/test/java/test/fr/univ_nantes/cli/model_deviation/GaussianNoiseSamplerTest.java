@@ -0,0 +1,107 @@
+package test.fr.univ_nantes.cli.model_deviation;
+
+import Jama.Matrix;
+import fr.univ_nantes.cli.model_deviation.noise.GaussianNoiseSampler;
+import fr.univ_nantes.stats.monte_carlo.noise.InnovationSequence;
+import fr.univ_nantes.stats.monte_carlo.noise.PseudoRandomInnovationSequence;
+import fr.univ_nantes.stats.monte_carlo.noise.ReplicateRandomFactory;
+import org.junit.jupiter.api.Test;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.Dataset;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.roi.PointType;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class GaussianNoiseSamplerTest {
+
+    private static final int N = 5;
+    private static final int NB_REPLICATES = 20000;
+    private static final double[][] COVARIANCE = new double[][] {
+        { 4, 1.5 },
+        { 1.5, 2 }
+    };
+
+    /**
+     * With Σ₃ = [Σ 0; 0 1] the Cholesky factor is block diagonal, so the first two coordinates drawn by the general
+     * branch from the same innovations are those drawn by the 2D branch.
+     */
+    @Test
+    void testTwoDimensionalSameAsGeneral() {
+        Random random = new Random(42);
+        int offset = 3;
+        double[] innovations2D = new double[offset + N * 2];
+        double[] innovations3D = new double[offset + N * 3];
+        for(int i = 0; i < N; i++) {
+            for(int a = 0; a < 3; a++) {
+                double z = random.nextGaussian();
+                if(a < 2) {
+                    innovations2D[offset + i * 2 + a] = z;
+                }
+                innovations3D[offset + i * 3 + a] = z;
+            }
+        }
+        double[] coordinates2D = new double[N * 2];
+        double[] coordinates3D = new double[N * 3];
+        for(int i = 0; i < N; i++) {
+            for(int a = 0; a < 3; a++) {
+                double value = 10 * random.nextDouble();
+                if(a < 2) {
+                    coordinates2D[a * N + i] = value;
+                }
+                coordinates3D[a * N + i] = value;
+            }
+        }
+
+        new GaussianNoiseSampler(COVARIANCE).addNoise(coordinates2D, N, innovations2D, offset);
+        new GaussianNoiseSampler(new double[][] {
+            { COVARIANCE[0][0], COVARIANCE[0][1], 0 },
+            { COVARIANCE[1][0], COVARIANCE[1][1], 0 },
+            { 0, 0, 1 }
+        }).addNoise(coordinates3D, N, innovations3D, offset);
+
+        for(int i = 0; i < N; i++) {
+            for(int a = 0; a < 2; a++) {
+                assertEquals(coordinates3D[a * N + i], coordinates2D[a * N + i], 1e-12);
+            }
+        }
+    }
+
+    /**
+     * The noise of every point has covariance Σ and the noise of distinct points is independent.
+     */
+    @Test
+    void testEmpiricalCovariance() {
+        double[][] points = new double[N][2];
+        for(int i = 0; i < N; i++) {
+            points[i][0] = 10 * i;
+            points[i][1] = -5 * i;
+        }
+        Dataset dataset = new Dataset(new Matrix(points), PointType.FIDUCIAL);
+        GaussianNoiseSampler subjectUnderTest = new GaussianNoiseSampler(COVARIANCE);
+        InnovationSequence innovationSequence = new PseudoRandomInnovationSequence(new ReplicateRandomFactory(42));
+        double[] innovations = new double[N * 2];
+        double[][] covariance = new double[2][2];
+        double neighbourCovariance = 0;
+        for(int k = 0; k < NB_REPLICATES; k++) {
+            innovationSequence.fill(k, innovations);
+            double[][] noisy = subjectUnderTest.getNoisy(dataset, innovations, 0).getMatrix().getArray();
+            for(int i = 0; i < N; i++) {
+                double[] noise = new double[] { noisy[i][0] - points[i][0], noisy[i][1] - points[i][1] };
+                for(int a = 0; a < 2; a++) {
+                    for(int b = 0; b < 2; b++) {
+                        covariance[a][b] += noise[a] * noise[b] / (NB_REPLICATES * N);
+                    }
+                }
+                if(i > 0) {
+                    neighbourCovariance += noise[0] * (noisy[i - 1][0] - points[i - 1][0]) / (NB_REPLICATES * (N - 1));
+                }
+            }
+        }
+        // standard error of each entry below σₐσᵦ √(2 / (NB_REPLICATES N)) ≈ 0.018
+        for(int a = 0; a < 2; a++) {
+            for(int b = 0; b < 2; b++) {
+                assertEquals(COVARIANCE[a][b], covariance[a][b], 0.08);
+            }
+        }
+        assertEquals(0, neighbourCovariance, 0.1);
+    }
+}
@@ -0,0 +1,184 @@
+package test.fr.univ_nantes.cli.model_deviation;
+
+import Jama.Matrix;
+import fr.univ_nantes.cli.model_deviation.loo.LeaveOneOutResult;
+import fr.univ_nantes.cli.model_deviation.loo.ProcrustesLeaveOneOutEngine;
+import fr.univ_nantes.cli.model_deviation.loo.RefitLeaveOneOutEngine;
+import fr.univ_nantes.cli.model_deviation.loo.RigidLeaveOneOutEngine;
+import fr.univ_nantes.cli.model_deviation.loo.SimilarityLeaveOneOutEngine;
+import icy.sequence.DimensionId;
+import org.junit.jupiter.api.Test;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.FiducialSet;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.fiducialset.dataset.Dataset;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.roi.PointType;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.sequence.DimensionSize;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.sequence.SequenceSize;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.RegistrationParameterFactory;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.schema.NoiseModel;
+import plugins.fr.univ_nantes.ec_clem.ec_clem.transformation.schema.TransformationType;
+import javax.inject.Inject;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ProcrustesLeaveOneOutEngineTest {
+
+    private static final int N = 10;
+    private static final int WIDTH = 512;
+
+    private RigidLeaveOneOutEngine rigidLeaveOneOutEngine;
+    private SimilarityLeaveOneOutEngine similarityLeaveOneOutEngine;
+    private RegistrationParameterFactory registrationParameterFactory;
+
+    public ProcrustesLeaveOneOutEngineTest() {
+        DaggerProcrustesLeaveOneOutEngineTestComponent.create().inject(this);
+    }
+
+    @Test
+    void testRigidSameAsRefit() {
+        testSameAsRefit(getFiducialSet(new Random(42), 1, false), rigidLeaveOneOutEngine, false);
+    }
+
+    @Test
+    void testSimilaritySameAsRefit() {
+        testSameAsRefit(getFiducialSet(new Random(42), 1.7, false), similarityLeaveOneOutEngine, true);
+    }
+
+    /**
+     * The best rotation of a reflected target is still a rotation : the sign of the last singular value is flipped.
+     */
+    @Test
+    void testRigidReflectedTargetSameAsRefit() {
+        testSameAsRefit(getFiducialSet(new Random(42), 1, true), rigidLeaveOneOutEngine, false);
+    }
+
+    @Test
+    void testSimilarityReflectedTargetSameAsRefit() {
+        testSameAsRefit(getFiducialSet(new Random(42), 1.7, true), similarityLeaveOneOutEngine, true);
+    }
+
+    @Test
+    void testRigidSameAsRefitEngine() {
+        testSameAsRefitEngine(getFiducialSet(new Random(42), 1, false), rigidLeaveOneOutEngine, TransformationType.RIGID);
+    }
+
+    @Test
+    void testSimilaritySameAsRefitEngine() {
+        testSameAsRefitEngine(getFiducialSet(new Random(42), 1.7, false), similarityLeaveOneOutEngine, TransformationType.SIMILARITY);
+    }
+
+    private void testSameAsRefitEngine(FiducialSet fiducialSet, ProcrustesLeaveOneOutEngine engine, TransformationType transformationType) {
+        LeaveOneOutResult subjectUnderTest = engine.compute(fiducialSet);
+        LeaveOneOutResult expected = new RefitLeaveOneOutEngine(
+            registrationParameterFactory, transformationType, NoiseModel.ISOTROPIC, getSequenceSize(), getSequenceSize()
+        ).compute(fiducialSet);
+
+        double[][] expectedError = expected.getRegistrationError().getMatrix().getArray();
+        double[][] error = subjectUnderTest.getRegistrationError().getMatrix().getArray();
+        assertEquals(N, error.length);
+        for(int i = 0; i < N; i++) {
+            for(int a = 0; a < 2; a++) {
+                assertEquals(expectedError[i][a], error[i][a], 1e-6);
+            }
+            assertEquals(expected.getRegistrationErrorDistance()[i], subjectUnderTest.getRegistrationErrorDistance()[i], 1e-6);
+        }
+    }
+
+    private void testSameAsRefit(FiducialSet fiducialSet, ProcrustesLeaveOneOutEngine engine, boolean withScaling) {
+        double[][] source = fiducialSet.getSourceDataset().getMatrix().getArray();
+        double[][] target = fiducialSet.getTargetDataset().getMatrix().getArray();
+
+        LeaveOneOutResult subjectUnderTest = engine.compute(fiducialSet);
+
+        double[][] error = subjectUnderTest.getRegistrationError().getMatrix().getArray();
+        assertEquals(N, error.length);
+        for(int i = 0; i < N; i++) {
+            double[] expected = getRefitError(source, target, i, withScaling);
+            double squaredDistance = 0;
+            for(int a = 0; a < 2; a++) {
+                assertEquals(expected[a], error[i][a], 1e-8);
+                squaredDistance += expected[a] * expected[a];
+            }
+            assertEquals(Math.sqrt(squaredDistance), subjectUnderTest.getRegistrationErrorDistance()[i], 1e-8);
+        }
+    }
+
+    /**
+     * Least squares rotation (and scale) of every point but the excluded one, from the closed form of the 2D
+     * problem on centered coordinates : θ = atan2(Σ z × y, Σ z · y) and s = |(Σ z · y, Σ z × y)| / Σ |z|².
+     */
+    private double[] getRefitError(double[][] source, double[][] target, int excluded, boolean withScaling) {
+        double[] meanZ = new double[2];
+        double[] meanY = new double[2];
+        for(int i = 0; i < N; i++) {
+            if(i == excluded) {
+                continue;
+            }
+            for(int a = 0; a < 2; a++) {
+                meanZ[a] += source[i][a] / (N - 1);
+                meanY[a] += target[i][a] / (N - 1);
+            }
+        }
+        double dot = 0;
+        double cross = 0;
+        double sourceScatter = 0;
+        for(int i = 0; i < N; i++) {
+            if(i == excluded) {
+                continue;
+            }
+            double zx = source[i][0] - meanZ[0];
+            double zy = source[i][1] - meanZ[1];
+            double yx = target[i][0] - meanY[0];
+            double yy = target[i][1] - meanY[1];
+            dot += zx * yx + zy * yy;
+            cross += zx * yy - zy * yx;
+            sourceScatter += zx * zx + zy * zy;
+        }
+        double angle = Math.atan2(cross, dot);
+        double scale = withScaling ? Math.hypot(dot, cross) / sourceScatter : 1;
+        double zx = source[excluded][0] - meanZ[0];
+        double zy = source[excluded][1] - meanZ[1];
+        return new double[] {
+            target[excluded][0] - (meanY[0] + scale * (Math.cos(angle) * zx - Math.sin(angle) * zy)),
+            target[excluded][1] - (meanY[1] + scale * (Math.sin(angle) * zx + Math.cos(angle) * zy))
+        };
+    }
+
+    private FiducialSet getFiducialSet(Random random, double scale, boolean reflected) {
+        double angle = 0.3;
+        double[][] source = new double[N][2];
+        double[][] target = new double[N][2];
+        for(int i = 0; i < N; i++) {
+            source[i][0] = WIDTH * random.nextDouble();
+            source[i][1] = WIDTH * random.nextDouble();
+            double y = reflected ? -source[i][1] : source[i][1];
+            target[i][0] = scale * (Math.cos(angle) * source[i][0] - Math.sin(angle) * y) + 20 + 3 * random.nextGaussian();
+            target[i][1] = scale * (Math.sin(angle) * source[i][0] + Math.cos(angle) * y) - 10 + 3 * random.nextGaussian();
+        }
+        return new FiducialSet(
+            new Dataset(new Matrix(source), PointType.FIDUCIAL),
+            new Dataset(new Matrix(target), PointType.FIDUCIAL)
+        );
+    }
+
+    private SequenceSize getSequenceSize() {
+        SequenceSize sequenceSize = new SequenceSize();
+        sequenceSize.add(new DimensionSize(DimensionId.X, WIDTH, 1));
+        sequenceSize.add(new DimensionSize(DimensionId.Y, WIDTH, 1));
+        return sequenceSize;
+    }
+
+    @Inject
+    public void setRigidLeaveOneOutEngine(RigidLeaveOneOutEngine rigidLeaveOneOutEngine) {
+        this.rigidLeaveOneOutEngine = rigidLeaveOneOutEngine;
+    }
+
+    @Inject
+    public void setSimilarityLeaveOneOutEngine(SimilarityLeaveOneOutEngine similarityLeaveOneOutEngine) {
+        this.similarityLeaveOneOutEngine = similarityLeaveOneOutEngine;
+    }
+
+    @Inject
+    public void setRegistrationParameterFactory(RegistrationParameterFactory registrationParameterFactory) {
+        this.registrationParameterFactory = registrationParameterFactory;
+    }
+}
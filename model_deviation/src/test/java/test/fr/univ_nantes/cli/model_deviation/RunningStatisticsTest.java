@@ -0,0 +1,105 @@
+package test.fr.univ_nantes.cli.model_deviation;
+
+import fr.univ_nantes.cli.model_deviation.RunningStatistics;
+import org.junit.jupiter.api.Test;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RunningStatisticsTest {
+
+    private static final int N = 1000;
+    private static final int[] BOUNDARIES = new int[] { 0, 1, 1, 300, 301, 750, N };
+
+    @Test
+    void testMergeSameAsSequential() {
+        double[] values = getValues(new Random(42), 0);
+        RunningStatistics expected = getSequential(values);
+
+        RunningStatistics subjectUnderTest = getMerged(values);
+
+        assertEquals(expected.getN(), subjectUnderTest.getN());
+        assertEquals(expected.getMean(), subjectUnderTest.getMean(), 1e-12);
+        assertEquals(expected.getVariance(), subjectUnderTest.getVariance(), 1e-10);
+    }
+
+    @Test
+    void testSameAsTwoPass() {
+        double[] values = getValues(new Random(42), 0);
+        double mean = 0;
+        for(double value : values) {
+            mean += value / N;
+        }
+        double variance = 0;
+        for(double value : values) {
+            variance += (value - mean) * (value - mean) / (N - 1);
+        }
+
+        RunningStatistics subjectUnderTest = getMerged(values);
+
+        assertEquals(mean, subjectUnderTest.getMean(), 1e-12);
+        assertEquals(variance, subjectUnderTest.getVariance(), 1e-10);
+    }
+
+    /**
+     * A large offset against a small spread cancels catastrophically in the naive Σx² - n x̄² formula.
+     */
+    @Test
+    void testMergeLargeOffset() {
+        double offset = 1e9;
+        double[] values = getValues(new Random(42), offset);
+        RunningStatistics centered = getSequential(getValues(new Random(42), 0));
+
+        RunningStatistics subjectUnderTest = getMerged(values);
+
+        assertEquals(centered.getMean() + offset, subjectUnderTest.getMean(), 1e-6);
+        assertEquals(centered.getVariance(), subjectUnderTest.getVariance(), 1e-6 * centered.getVariance());
+    }
+
+    @Test
+    void testMergeEmpty() {
+        RunningStatistics empty = new RunningStatistics();
+        empty.merge(new RunningStatistics());
+        assertEquals(0, empty.getN());
+        assertTrue(Double.isNaN(empty.getMean()));
+        assertTrue(Double.isNaN(empty.getVariance()));
+
+        RunningStatistics single = new RunningStatistics();
+        single.increment(3);
+        empty.merge(single);
+        assertEquals(1, empty.getN());
+        assertEquals(3, empty.getMean());
+        assertEquals(0, empty.getVariance());
+    }
+
+    private RunningStatistics getSequential(double[] values) {
+        RunningStatistics runningStatistics = new RunningStatistics();
+        for(double value : values) {
+            runningStatistics.increment(value);
+        }
+        return runningStatistics;
+    }
+
+    /**
+     * Partials of uneven sizes, some of them empty, merged in order.
+     */
+    private RunningStatistics getMerged(double[] values) {
+        RunningStatistics merged = new RunningStatistics();
+        for(int b = 0; b < BOUNDARIES.length - 1; b++) {
+            RunningStatistics partial = new RunningStatistics();
+            for(int i = BOUNDARIES[b]; i < BOUNDARIES[b + 1]; i++) {
+                partial.increment(values[i]);
+            }
+            merged.merge(partial);
+        }
+        return merged;
+    }
+
+    private double[] getValues(Random random, double offset) {
+        double[] values = new double[N];
+        for(int i = 0; i < N; i++) {
+            values[i] = offset + 5 + 2 * random.nextGaussian();
+        }
+        return values;
+    }
+}
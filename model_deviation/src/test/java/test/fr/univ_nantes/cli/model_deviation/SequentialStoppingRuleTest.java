@@ -0,0 +1,109 @@
+package test.fr.univ_nantes.cli.model_deviation;
+
+import fr.univ_nantes.cli.model_deviation.SequentialStoppingRule;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SequentialStoppingRuleTest {
+
+    @Test
+    void testStopsAtFirstRoundReachingTarget() {
+        double[] precisions = new double[] { 0.5, 0.3, 0.2, 0.05, 0.01 };
+        SequentialStoppingRule subjectUnderTest = new SequentialStoppingRule(1000, 10, 0.2);
+        List<int[]> rounds = run(subjectUnderTest, precisions);
+
+        assertEquals(3, rounds.size());
+        assertContiguous(rounds, 30);
+        assertEquals(30, subjectUnderTest.getN());
+        assertEquals(0.2, subjectUnderTest.getPrecision());
+        assertTrue(subjectUnderTest.isTargetReached());
+    }
+
+    @Test
+    void testRunsExactlyMaxNWithoutTarget() {
+        SequentialStoppingRule subjectUnderTest = new SequentialStoppingRule(1000, 10, 0);
+        List<int[]> rounds = run(subjectUnderTest, new double[] { 0, 0, 0 });
+
+        assertEquals(1, rounds.size());
+        assertContiguous(rounds, 1000);
+        assertEquals(1000, subjectUnderTest.getN());
+        assertFalse(subjectUnderTest.isTargetReached());
+    }
+
+    @Test
+    void testLastRoundTruncatedToMaxN() {
+        double[] precisions = new double[] { 1, 1, 1, 1, 1, 1 };
+        SequentialStoppingRule subjectUnderTest = new SequentialStoppingRule(25, 10, 0.1);
+        List<int[]> rounds = run(subjectUnderTest, precisions);
+
+        assertEquals(3, rounds.size());
+        assertContiguous(rounds, 25);
+        assertEquals(25, subjectUnderTest.getN());
+        assertFalse(subjectUnderTest.isTargetReached());
+    }
+
+    @Test
+    void testEffectiveNSubtractsFailures() {
+        SequentialStoppingRule subjectUnderTest = new SequentialStoppingRule(100, 100, 0);
+        subjectUnderTest.run((from, to) -> {
+            for(int k = from; k < to; k += 10) {
+                subjectUnderTest.reportFailure();
+            }
+            return 0;
+        });
+
+        assertEquals(100, subjectUnderTest.getN());
+        assertEquals(10, subjectUnderTest.getFailures());
+        assertEquals(90, subjectUnderTest.getEffectiveN());
+    }
+
+    @Test
+    void testProportionHalfWidth() {
+        assertEquals(0.09616846963400437, SequentialStoppingRule.getProportionHalfWidth(50, 100), 1e-12);
+        assertEquals(0.04797071499462636, SequentialStoppingRule.getProportionHalfWidth(95, 100), 1e-12);
+        assertEquals(
+            SequentialStoppingRule.getProportionHalfWidth(5, 100),
+            SequentialStoppingRule.getProportionHalfWidth(95, 100),
+            1e-12
+        );
+    }
+
+    /**
+     * Agresti-Coull does not collapse to a zero width when no replicate succeeds.
+     */
+    @Test
+    void testProportionHalfWidthWithoutSuccess() {
+        assertEquals(0.10924698151607916, SequentialStoppingRule.getProportionHalfWidth(0, 20), 1e-12);
+        assertEquals(
+            SequentialStoppingRule.getProportionHalfWidth(0, 20),
+            SequentialStoppingRule.getProportionHalfWidth(20, 20),
+            1e-12
+        );
+    }
+
+    /**
+     * Runs the rule, round r returning precisions[r], and returns the [from, to) range of every round.
+     */
+    private List<int[]> run(SequentialStoppingRule subjectUnderTest, double[] precisions) {
+        List<int[]> rounds = new ArrayList<>();
+        subjectUnderTest.run((from, to) -> {
+            rounds.add(new int[] { from, to });
+            return precisions[rounds.size() - 1];
+        });
+        return rounds;
+    }
+
+    private void assertContiguous(List<int[]> rounds, int end) {
+        int expected = 0;
+        for(int[] round : rounds) {
+            assertEquals(expected, round[0]);
+            assertTrue(round[1] > round[0]);
+            expected = round[1];
+        }
+        assertEquals(end, expected);
+    }
+}
@@ -0,0 +1,113 @@
+package test.fr.univ_nantes.cli.model_deviation;
+
+import fr.univ_nantes.cli.model_deviation.CoverageStatistics;
+import fr.univ_nantes.cli.model_deviation.SimulationScheduler;
+import fr.univ_nantes.stats.monte_carlo.noise.InnovationSequence;
+import fr.univ_nantes.stats.monte_carlo.noise.PseudoRandomInnovationSequence;
+import fr.univ_nantes.stats.monte_carlo.noise.ReplicateRandomFactory;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SimulationSchedulerTest {
+
+    private static final int NB_TEST_POINTS = 3;
+    private static final int N = 1000;
+    private static final double CHI_SQUARED_95 = 5.991464547107979;
+
+    @Test
+    void testEveryReplicateRunsOnceUnevenChunks() {
+        testEveryReplicateRunsOnce(4, 5, 108, 7);
+    }
+
+    @Test
+    void testEveryReplicateRunsOnceUnitChunks() {
+        testEveryReplicateRunsOnce(3, 0, 10, 1);
+    }
+
+    /**
+     * 3 chunks only, one of them partial, for 8 workers.
+     */
+    @Test
+    void testEveryReplicateRunsOnceMoreWorkersThanChunks() {
+        testEveryReplicateRunsOnce(8, 2, 13, 4);
+    }
+
+    @Test
+    void testEmptyRange() {
+        testEveryReplicateRunsOnce(4, 6, 6, 3);
+    }
+
+    private void testEveryReplicateRunsOnce(int workers, int start, int end, int chunkSize) {
+        AtomicIntegerArray runs = new AtomicIntegerArray(end + 1);
+        try (SimulationScheduler subjectUnderTest = new SimulationScheduler(workers)) {
+            List<int[]> states = subjectUnderTest.run(start, end, chunkSize, () -> new int[1], (state, from, to) -> {
+                for(int k = from; k < to; k++) {
+                    runs.incrementAndGet(k);
+                    state[0]++;
+                }
+            });
+            long nbChunks = (end - start + chunkSize - 1) / chunkSize;
+            assertEquals(Math.min(workers, nbChunks), states.size());
+            int total = 0;
+            for(int[] state : states) {
+                total += state[0];
+            }
+            assertEquals(end - start, total);
+        }
+        for(int k = 0; k <= end; k++) {
+            assertEquals(k >= start && k < end ? 1 : 0, runs.get(k));
+        }
+    }
+
+    @Test
+    void testFailingTaskThrows() {
+        try (SimulationScheduler subjectUnderTest = new SimulationScheduler(4)) {
+            assertThrows(IllegalStateException.class, () -> subjectUnderTest.run(0, 100, 10, () -> new int[1], (state, from, to) -> {
+                if(from == 50) {
+                    throw new ArithmeticException("replicate 50");
+                }
+            }));
+        }
+    }
+
+    /**
+     * Replicate k draws from stream k whichever worker runs it, so coverage counters and mean areas do not depend on
+     * the number of workers.
+     */
+    @Test
+    void testSameResultsWithOneAndFourWorkers() {
+        CoverageStatistics expected = simulate(1);
+        CoverageStatistics subjectUnderTest = simulate(4);
+        for(int i = 0; i < NB_TEST_POINTS; i++) {
+            assertEquals(N, subjectUnderTest.getEllipsesFromRegression()[i].getN());
+            assertEquals(expected.getEllipsesFromRegression()[i].getCounter(), subjectUnderTest.getEllipsesFromRegression()[i].getCounter());
+            assertEquals(expected.getEllipsesFromRegression()[i].getArea(), subjectUnderTest.getEllipsesFromRegression()[i].getArea(), 1e-12);
+        }
+    }
+
+    /**
+     * Toy replicate : test point i is covered when the squared norm of its innovations is below the 95% χ² quantile,
+     * which is also recorded as its area.
+     */
+    private CoverageStatistics simulate(int workers) {
+        ReplicateRandomFactory replicateRandomFactory = new ReplicateRandomFactory(42);
+        InnovationSequence innovationSequence = new PseudoRandomInnovationSequence(replicateRandomFactory);
+        try (SimulationScheduler scheduler = new SimulationScheduler(workers)) {
+            List<CoverageStatistics> partials = scheduler.run(0, N, 7, (int worker) -> new CoverageStatistics(NB_TEST_POINTS, replicateRandomFactory.getChild(worker + 1)), (partial, from, to) -> {
+                double[] innovations = new double[NB_TEST_POINTS * 2];
+                for(int k = from; k < to; k++) {
+                    innovationSequence.fill(k, innovations);
+                    for(int i = 0; i < NB_TEST_POINTS; i++) {
+                        double distance = innovations[2 * i] * innovations[2 * i] + innovations[2 * i + 1] * innovations[2 * i + 1];
+                        partial.getEllipsesFromRegression()[i].updateCounter(distance <= CHI_SQUARED_95);
+                        partial.getEllipsesFromRegression()[i].updateArea(distance);
+                    }
+                }
+            });
+            return CoverageStatistics.merge(partials, NB_TEST_POINTS, replicateRandomFactory.getChild(0));
+        }
+    }
+}
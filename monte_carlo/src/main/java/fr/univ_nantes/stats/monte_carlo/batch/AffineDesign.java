@@ -0,0 +1,80 @@
+package fr.univ_nantes.stats.monte_carlo.batch;
+
+import org.apache.commons.math3.linear.LUDecomposition;
+import org.apache.commons.math3.linear.MatrixUtils;
+
+/**
+ * Design X = [z 1] of the affine least squares fits on fixed source points z, with the inverse of its Gram matrix.
+ * Every replicate fitted on the same source points shares it, so that the fits of B replicates stacked column wise
+ * only need one product Xᵀ[Y₁ … Y_B].
+ */
+public class AffineDesign {
+
+    private int n;
+    private int dimension;
+    private int p;
+    private double[] design;
+    private double[][] gramInverse;
+
+    public AffineDesign(double[][] source) {
+        n = source.length;
+        dimension = source[0].length;
+        p = dimension + 1;
+        design = new double[n * p];
+        double[][] gram = new double[p][p];
+        for(int i = 0; i < n; i++) {
+            System.arraycopy(source[i], 0, design, i * p, dimension);
+            design[i * p + dimension] = 1;
+            for(int a = 0; a < p; a++) {
+                for(int b = 0; b < p; b++) {
+                    gram[a][b] += design[i * p + a] * design[i * p + b];
+                }
+            }
+        }
+        gramInverse = new LUDecomposition(MatrixUtils.createRealMatrix(gram)).getSolver().getInverse().getData();
+    }
+
+    public int getN() {
+        return n;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Number of parameters of each coordinate of the fit, dimension + 1.
+     */
+    public int getP() {
+        return p;
+    }
+
+    /**
+     * (XᵀX)⁻¹, p x p.
+     */
+    public double[][] getGramInverse() {
+        return gramInverse;
+    }
+
+    /**
+     * x₀ᵀ(XᵀX)⁻¹ with x₀ = [point 1] : the prediction of the fit at point is these weights times XᵀY.
+     */
+    public double[] getPredictionWeights(double[] point) {
+        double[] weights = new double[p];
+        for(int k = 0; k < p; k++) {
+            double value = gramInverse[dimension][k];
+            for(int a = 0; a < dimension; a++) {
+                value += point[a] * gramInverse[a][k];
+            }
+            weights[k] = value;
+        }
+        return weights;
+    }
+
+    /**
+     * product = Xᵀ stacked with stacked (n x columns) and product (p x columns), both row major.
+     */
+    public void multiplyTransposeLeft(double[] stacked, int columns, double[] product) {
+        BlockedMatrixProduct.multiplyTransposeLeft(design, n, p, stacked, columns, product);
+    }
+}
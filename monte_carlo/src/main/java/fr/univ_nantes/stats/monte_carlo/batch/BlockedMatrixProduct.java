@@ -0,0 +1,34 @@
+package fr.univ_nantes.stats.monte_carlo.batch;
+
+import java.util.Arrays;
+
+public class BlockedMatrixProduct {
+
+    private static final int BLOCK_SIZE = 256;
+
+    private BlockedMatrixProduct() {}
+
+    /**
+     * c = aᵀ b with a (rows x aColumns) and b (rows x bColumns), every matrix row major.
+     * Rows and columns of b are processed by blocks so that a block of c stays in cache.
+     */
+    public static void multiplyTransposeLeft(double[] a, int rows, int aColumns, double[] b, int bColumns, double[] c) {
+        Arrays.fill(c, 0, aColumns * bColumns, 0);
+        for(int columnBlock = 0; columnBlock < bColumns; columnBlock += BLOCK_SIZE) {
+            int columnEnd = Math.min(columnBlock + BLOCK_SIZE, bColumns);
+            for(int rowBlock = 0; rowBlock < rows; rowBlock += BLOCK_SIZE) {
+                int rowEnd = Math.min(rowBlock + BLOCK_SIZE, rows);
+                for(int i = rowBlock; i < rowEnd; i++) {
+                    int bRow = i * bColumns;
+                    for(int k = 0; k < aColumns; k++) {
+                        double aik = a[i * aColumns + k];
+                        int cRow = k * bColumns;
+                        for(int j = columnBlock; j < columnEnd; j++) {
+                            c[cRow + j] += aik * b[bRow + j];
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
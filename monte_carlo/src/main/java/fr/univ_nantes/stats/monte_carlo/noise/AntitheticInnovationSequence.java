@@ -0,0 +1,25 @@
+package fr.univ_nantes.stats.monte_carlo.noise;
+
+/**
+ * Antithetic pairs : replicates 2m and 2m + 1 get the innovations ε and -ε drawn from stream m, which cancels the
+ * odd part of the estimated function but does not help even ones, such as squared errors. Replicate counts should
+ * be even.
+ */
+public class AntitheticInnovationSequence implements InnovationSequence {
+
+    private ReplicateRandomFactory replicateRandomFactory;
+
+    public AntitheticInnovationSequence(ReplicateRandomFactory replicateRandomFactory) {
+        this.replicateRandomFactory = replicateRandomFactory;
+    }
+
+    @Override
+    public void fill(long replicate, double[] innovations) {
+        ZigguratGaussian.fill(innovations, replicateRandomFactory.getFrom(replicate >> 1));
+        if((replicate & 1) == 1) {
+            for(int i = 0; i < innovations.length; i++) {
+                innovations[i] = -innovations[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package fr.univ_nantes.stats.monte_carlo.noise;
+
+/**
+ * Standard normal innovations of each replicate, scaled into noise by the caller.
+ * The innovations of a replicate only depend on its index, so implementations are thread safe.
+ */
+public interface InnovationSequence {
+    void fill(long replicate, double[] innovations);
+}
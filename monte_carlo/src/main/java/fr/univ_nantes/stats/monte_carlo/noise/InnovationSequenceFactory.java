@@ -0,0 +1,18 @@
+package fr.univ_nantes.stats.monte_carlo.noise;
+
+import javax.inject.Inject;
+
+public class InnovationSequenceFactory {
+
+    @Inject
+    public InnovationSequenceFactory() {
+    }
+
+    public InnovationSequence getFrom(SamplerType samplerType, ReplicateRandomFactory replicateRandomFactory) {
+        switch (samplerType) {
+            case ANTITHETIC: return new AntitheticInnovationSequence(replicateRandomFactory);
+            case SOBOL: return new SobolInnovationSequence(replicateRandomFactory);
+            default: return new PseudoRandomInnovationSequence(replicateRandomFactory);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package fr.univ_nantes.stats.monte_carlo.noise;
+
+/**
+ * Independent innovations drawn from the random stream of each replicate.
+ */
+public class PseudoRandomInnovationSequence implements InnovationSequence {
+
+    private ReplicateRandomFactory replicateRandomFactory;
+
+    public PseudoRandomInnovationSequence(ReplicateRandomFactory replicateRandomFactory) {
+        this.replicateRandomFactory = replicateRandomFactory;
+    }
+
+    @Override
+    public void fill(long replicate, double[] innovations) {
+        ZigguratGaussian.fill(innovations, replicateRandomFactory.getFrom(replicate));
+    }
+}
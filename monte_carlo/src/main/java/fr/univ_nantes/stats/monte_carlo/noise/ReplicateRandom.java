@@ -0,0 +1,52 @@
+package fr.univ_nantes.stats.monte_carlo.noise;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Random stream of a single replicate, backed by a SplittableRandom instead of the shared atomic seed of Random.
+ * Gaussian deviates use the ziggurat method. Not thread safe.
+ */
+public class ReplicateRandom extends Random {
+
+    private SplittableRandom random;
+
+    /**
+     * Seeds the unused state of Random explicitly : its no-arg constructor would update the static seed uniquifier
+     * shared by every thread.
+     */
+    public ReplicateRandom(long seed) {
+        super(seed);
+        random = new SplittableRandom(seed);
+    }
+
+    @Override
+    protected int next(int bits) {
+        return random.nextInt() >>> (32 - bits);
+    }
+
+    @Override
+    public int nextInt() {
+        return random.nextInt();
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    @Override
+    public long nextLong() {
+        return random.nextLong();
+    }
+
+    @Override
+    public double nextDouble() {
+        return random.nextDouble();
+    }
+
+    @Override
+    public double nextGaussian() {
+        return ZigguratGaussian.next(this);
+    }
+}
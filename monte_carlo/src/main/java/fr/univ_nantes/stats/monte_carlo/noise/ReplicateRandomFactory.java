@@ -0,0 +1,39 @@
+package fr.univ_nantes.stats.monte_carlo.noise;
+
+/**
+ * Independent random streams indexed by replicate, derived from a master seed.
+ * The stream of a replicate only depends on the seed and its index, not on which worker runs it.
+ */
+public class ReplicateRandomFactory {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final long CHILD_GAMMA = 0xbb67ae8584caa73bL;
+
+    private long seed;
+
+    public ReplicateRandomFactory(long seed) {
+        this.seed = seed;
+    }
+
+    public ReplicateRandom getFrom(long replicate) {
+        return new ReplicateRandom(mix64(seed + (replicate + 1) * GOLDEN_GAMMA));
+    }
+
+    /**
+     * Independent factory for another use of the seed, keyed by a distinct gamma so that its seed does not collide
+     * with the stream of any replicate.
+     */
+    public ReplicateRandomFactory getChild(long key) {
+        return new ReplicateRandomFactory(mix64(seed + (key + 1) * CHILD_GAMMA));
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
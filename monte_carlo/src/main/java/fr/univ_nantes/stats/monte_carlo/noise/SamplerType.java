@@ -0,0 +1,7 @@
+package fr.univ_nantes.stats.monte_carlo.noise;
+
+public enum SamplerType {
+    PSEUDO,
+    ANTITHETIC,
+    SOBOL
+}
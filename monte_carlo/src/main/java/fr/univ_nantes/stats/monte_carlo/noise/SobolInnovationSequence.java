@@ -0,0 +1,74 @@
+package fr.univ_nantes.stats.monte_carlo.noise;
+
+import org.apache.commons.math3.random.SobolSequenceGenerator;
+import org.apache.commons.math3.special.Erf;
+import java.util.SplittableRandom;
+
+/**
+ * Randomized quasi Monte Carlo innovations : replicate k gets the k-th point of a Sobol sequence, scrambled by a
+ * random digital shift drawn from the seed, mapped through the inverse normal cumulative distribution function.
+ * The shifts are drawn from a child of the replicate random factory, not from its replicate streams, so they are
+ * independent of the pseudo random innovations that pad the points.
+ * The shift keeps every replicate uniformly distributed, so estimates stay unbiased, and independent seeds give
+ * independent randomizations. The Sobol sequence has at most 1000 dimensions, further innovations are padded
+ * with the pseudo random stream of the replicate. Replicate counts should be powers of two.
+ */
+public class SobolInnovationSequence implements InnovationSequence {
+
+    private static final int MAX_DIMENSION = 1000;
+    private static final int BITS = 52;
+    private static final double SCALE = Math.pow(2, BITS);
+    private static final double SQRT2 = Math.sqrt(2);
+    private static final long SHIFT_STREAM = 0;
+
+    private ReplicateRandomFactory replicateRandomFactory;
+    private long[] shifts = new long[MAX_DIMENSION];
+    private ThreadLocal<SobolSequenceGenerator[]> generators = ThreadLocal.withInitial(() -> new SobolSequenceGenerator[MAX_DIMENSION + 1]);
+
+    public SobolInnovationSequence(ReplicateRandomFactory replicateRandomFactory) {
+        this.replicateRandomFactory = replicateRandomFactory;
+        SplittableRandom random = new SplittableRandom(replicateRandomFactory.getChild(SHIFT_STREAM).getSeed());
+        for(int j = 0; j < MAX_DIMENSION; j++) {
+            shifts[j] = random.nextLong() >>> (Long.SIZE - BITS);
+        }
+    }
+
+    @Override
+    public void fill(long replicate, double[] innovations) {
+        if(replicate > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Sobol sequences are limited to 2^31 replicates");
+        }
+        int dimension = Math.min(innovations.length, MAX_DIMENSION);
+        if(dimension == 0) {
+            return;
+        }
+        double[] point = getGenerator(dimension).skipTo((int) replicate);
+        for(int j = 0; j < dimension; j++) {
+            innovations[j] = getInnovation(point[j], shifts[j]);
+        }
+        if(innovations.length > dimension) {
+            ReplicateRandom random = replicateRandomFactory.getFrom(replicate);
+            for(int j = dimension; j < innovations.length; j++) {
+                innovations[j] = ZigguratGaussian.next(random);
+            }
+        }
+    }
+
+    /**
+     * Standard normal innovation of a coordinate of a Sobol point, its 52 bits being XOR-ed with shift. The uniform
+     * is taken at the middle of its 2^-52 cell, so it never reaches 0 or 1.
+     */
+    public static double getInnovation(double coordinate, long shift) {
+        long bits = ((long) (coordinate * SCALE)) ^ shift;
+        double uniform = (bits + 0.5) / SCALE;
+        return SQRT2 * Erf.erfInv(2 * uniform - 1);
+    }
+
+    private SobolSequenceGenerator getGenerator(int dimension) {
+        SobolSequenceGenerator[] byDimension = generators.get();
+        if(byDimension[dimension] == null) {
+            byDimension[dimension] = new SobolSequenceGenerator(dimension);
+        }
+        return byDimension[dimension];
+    }
+}
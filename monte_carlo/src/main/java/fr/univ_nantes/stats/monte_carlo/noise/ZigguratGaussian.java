@@ -0,0 +1,69 @@
+package fr.univ_nantes.stats.monte_carlo.noise;
+
+import java.util.Random;
+
+/**
+ * Standard normal deviates by the ziggurat method of Marsaglia and Tsang (128 layers).
+ * The layer index and the deviate are taken from distinct bits of a single 64 bits draw.
+ */
+public final class ZigguratGaussian {
+
+    private static final int LAYERS = 128;
+    private static final double R = 3.442619855899;
+    private static final double VOLUME = 9.91256303526217e-3;
+    private static final double M1 = 2147483648d;
+
+    private static final double[] K = new double[LAYERS];
+    private static final double[] W = new double[LAYERS];
+    private static final double[] F = new double[LAYERS];
+
+    static {
+        double dn = R;
+        double tn = dn;
+        double q = VOLUME / Math.exp(-0.5 * dn * dn);
+        K[0] = (dn / q) * M1;
+        K[1] = 0;
+        W[0] = q / M1;
+        W[LAYERS - 1] = dn / M1;
+        F[0] = 1;
+        F[LAYERS - 1] = Math.exp(-0.5 * dn * dn);
+        for(int i = LAYERS - 2; i >= 1; i--) {
+            dn = Math.sqrt(-2d * Math.log(VOLUME / dn + Math.exp(-0.5 * dn * dn)));
+            K[i + 1] = (dn / tn) * M1;
+            tn = dn;
+            F[i] = Math.exp(-0.5 * dn * dn);
+            W[i] = dn / M1;
+        }
+    }
+
+    private ZigguratGaussian() {}
+
+    public static void fill(double[] values, Random random) {
+        for(int i = 0; i < values.length; i++) {
+            values[i] = next(random);
+        }
+    }
+
+    public static double next(Random random) {
+        while(true) {
+            long bits = random.nextLong();
+            int hz = (int) (bits >> 32);
+            int iz = (int) bits & (LAYERS - 1);
+            if(Math.abs((long) hz) < K[iz]) {
+                return hz * W[iz];
+            }
+            double x = hz * W[iz];
+            if(iz == 0) {
+                double y;
+                do {
+                    x = -Math.log(1d - random.nextDouble()) / R;
+                    y = -Math.log(1d - random.nextDouble());
+                } while(y + y < x * x);
+                return hz > 0 ? R + x : -R - x;
+            }
+            if(F[iz] + random.nextDouble() * (F[iz - 1] - F[iz]) < Math.exp(-0.5 * x * x)) {
+                return x;
+            }
+        }
+    }
+}
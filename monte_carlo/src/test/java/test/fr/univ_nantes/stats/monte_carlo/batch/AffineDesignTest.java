@@ -0,0 +1,113 @@
+package test.fr.univ_nantes.stats.monte_carlo.batch;
+
+import fr.univ_nantes.stats.monte_carlo.batch.AffineDesign;
+import org.testng.annotations.Test;
+import java.util.Random;
+import static org.testng.Assert.assertEquals;
+
+public class AffineDesignTest {
+
+    private static final int N = 300;
+    private static final int DIMENSION = 3;
+    private static final double EPSILON = 1e-8;
+
+    @Test
+    void testGramInverse() {
+        double[][] source = getRandomMatrix(new Random(42), N, DIMENSION);
+        AffineDesign subjectUnderTest = new AffineDesign(source);
+        int p = subjectUnderTest.getP();
+        double[][] gram = new double[p][p];
+        for(int i = 0; i < N; i++) {
+            for(int a = 0; a < p; a++) {
+                for(int b = 0; b < p; b++) {
+                    gram[a][b] += getDesign(source[i], a) * getDesign(source[i], b);
+                }
+            }
+        }
+        double[][] gramInverse = subjectUnderTest.getGramInverse();
+        for(int a = 0; a < p; a++) {
+            for(int b = 0; b < p; b++) {
+                double value = 0;
+                for(int k = 0; k < p; k++) {
+                    value += gramInverse[a][k] * gram[k][b];
+                }
+                assertEquals(value, a == b ? 1 : 0, EPSILON);
+            }
+        }
+    }
+
+    @Test
+    void testMultiplyTransposeLeft() {
+        Random random = new Random(42);
+        double[][] source = getRandomMatrix(random, N, DIMENSION);
+        AffineDesign subjectUnderTest = new AffineDesign(source);
+        int p = subjectUnderTest.getP();
+        int columns = 5;
+        double[] stacked = new double[N * columns];
+        for(int i = 0; i < stacked.length; i++) {
+            stacked[i] = random.nextGaussian();
+        }
+        double[] product = new double[p * columns];
+        subjectUnderTest.multiplyTransposeLeft(stacked, columns, product);
+        for(int a = 0; a < p; a++) {
+            for(int j = 0; j < columns; j++) {
+                double expected = 0;
+                for(int i = 0; i < N; i++) {
+                    expected += getDesign(source[i], a) * stacked[i * columns + j];
+                }
+                assertEquals(product[a * columns + j], expected, EPSILON);
+            }
+        }
+    }
+
+    @Test
+    void testPredictionOfExactAffineTarget() {
+        Random random = new Random(42);
+        double[][] source = getRandomMatrix(random, N, DIMENSION);
+        double[][] transformation = getRandomMatrix(random, DIMENSION, DIMENSION + 1);
+        AffineDesign subjectUnderTest = new AffineDesign(source);
+        int p = subjectUnderTest.getP();
+        double[] stacked = new double[N * DIMENSION];
+        for(int i = 0; i < N; i++) {
+            double[] target = apply(transformation, source[i]);
+            System.arraycopy(target, 0, stacked, i * DIMENSION, DIMENSION);
+        }
+        double[] product = new double[p * DIMENSION];
+        subjectUnderTest.multiplyTransposeLeft(stacked, DIMENSION, product);
+        double[] point = getRandomMatrix(random, 1, DIMENSION)[0];
+        double[] weights = subjectUnderTest.getPredictionWeights(point);
+        double[] expected = apply(transformation, point);
+        for(int a = 0; a < DIMENSION; a++) {
+            double predicted = 0;
+            for(int k = 0; k < p; k++) {
+                predicted += weights[k] * product[k * DIMENSION + a];
+            }
+            assertEquals(predicted, expected[a], EPSILON);
+        }
+    }
+
+    private double getDesign(double[] point, int a) {
+        return a < point.length ? point[a] : 1;
+    }
+
+    private double[] apply(double[][] transformation, double[] point) {
+        double[] result = new double[transformation.length];
+        for(int a = 0; a < transformation.length; a++) {
+            result[a] = transformation[a][point.length];
+            for(int b = 0; b < point.length; b++) {
+                result[a] += transformation[a][b] * point[b];
+            }
+        }
+        return result;
+    }
+
+    private double[][] getRandomMatrix(Random random, int rows, int columns) {
+        double[][] result = new double[rows][columns];
+        for(int i = 0; i < rows; i++) {
+            for(int j = 0; j < columns; j++) {
+                result[i][j] = random.nextDouble() * 10 - 5;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,53 @@
+package test.fr.univ_nantes.stats.monte_carlo.noise;
+
+import fr.univ_nantes.stats.monte_carlo.noise.AntitheticInnovationSequence;
+import fr.univ_nantes.stats.monte_carlo.noise.PseudoRandomInnovationSequence;
+import fr.univ_nantes.stats.monte_carlo.noise.ReplicateRandomFactory;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+
+public class AntitheticInnovationSequenceTest {
+
+    private static final int SIZE = 10;
+
+    @Test
+    void testPairsHaveOppositeSigns() {
+        AntitheticInnovationSequence subjectUnderTest = new AntitheticInnovationSequence(new ReplicateRandomFactory(42));
+        double[] even = new double[SIZE];
+        double[] odd = new double[SIZE];
+        for(long m = 0; m < 5; m++) {
+            subjectUnderTest.fill(2 * m, even);
+            subjectUnderTest.fill(2 * m + 1, odd);
+            for(int i = 0; i < SIZE; i++) {
+                assertEquals(odd[i], -even[i]);
+            }
+        }
+    }
+
+    @Test
+    void testPairDrawsFromStreamOfItsIndex() {
+        ReplicateRandomFactory replicateRandomFactory = new ReplicateRandomFactory(42);
+        AntitheticInnovationSequence subjectUnderTest = new AntitheticInnovationSequence(replicateRandomFactory);
+        PseudoRandomInnovationSequence pseudoRandomInnovationSequence = new PseudoRandomInnovationSequence(replicateRandomFactory);
+        double[] antithetic = new double[SIZE];
+        double[] pseudoRandom = new double[SIZE];
+        for(long m = 0; m < 5; m++) {
+            subjectUnderTest.fill(2 * m, antithetic);
+            pseudoRandomInnovationSequence.fill(m, pseudoRandom);
+            for(int i = 0; i < SIZE; i++) {
+                assertEquals(antithetic[i], pseudoRandom[i]);
+            }
+        }
+    }
+
+    @Test
+    void testPairsAreDistinct() {
+        AntitheticInnovationSequence subjectUnderTest = new AntitheticInnovationSequence(new ReplicateRandomFactory(42));
+        double[] first = new double[SIZE];
+        double[] second = new double[SIZE];
+        subjectUnderTest.fill(0, first);
+        subjectUnderTest.fill(2, second);
+        assertNotEquals(first[0], second[0]);
+    }
+}
@@ -0,0 +1,68 @@
+package test.fr.univ_nantes.stats.monte_carlo.noise;
+
+import fr.univ_nantes.stats.monte_carlo.noise.ReplicateRandomFactory;
+import fr.univ_nantes.stats.monte_carlo.noise.SobolInnovationSequence;
+import org.apache.commons.math3.distribution.NormalDistribution;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+public class SobolInnovationSequenceTest {
+
+    private static final double SCALE = Math.pow(2, 52);
+    private static final long MASK = (1L << 52) - 1;
+    private static final double[] COORDINATES = new double[] { 0, 0.125, 0.3, 0.5, 0.75, 1 - 1 / SCALE };
+
+    private NormalDistribution normalDistribution = new NormalDistribution();
+
+    @Test
+    void testInnovationIsInverseNormalAtCellMiddle() {
+        for(double coordinate : COORDINATES) {
+            double uniform = (Math.floor(coordinate * SCALE) + 0.5) / SCALE;
+            assertEquals(SobolInnovationSequence.getInnovation(coordinate, 0), normalDistribution.inverseCumulativeProbability(uniform), 1e-9);
+        }
+    }
+
+    @Test
+    void testInnovationIsFiniteAtBounds() {
+        double lowest = SobolInnovationSequence.getInnovation(0, 0);
+        double highest = SobolInnovationSequence.getInnovation(0, MASK);
+        assertTrue(lowest > -9 && lowest < -8);
+        assertTrue(highest > 8 && highest < 9);
+    }
+
+    @Test
+    void testComplementaryShiftNegatesInnovation() {
+        for(double coordinate : COORDINATES) {
+            assertEquals(SobolInnovationSequence.getInnovation(coordinate, MASK), -SobolInnovationSequence.getInnovation(coordinate, 0), 1e-9);
+        }
+    }
+
+    @Test
+    void testPowerOfTwoPointsAreStratified() {
+        int n = 64;
+        int dimension = 3;
+        SobolInnovationSequence subjectUnderTest = new SobolInnovationSequence(new ReplicateRandomFactory(42));
+        boolean[][] filled = new boolean[dimension][n];
+        double[] innovations = new double[dimension];
+        for(int k = 0; k < n; k++) {
+            subjectUnderTest.fill(k, innovations);
+            for(int j = 0; j < dimension; j++) {
+                int cell = (int) (normalDistribution.cumulativeProbability(innovations[j]) * n);
+                assertFalse(filled[j][cell]);
+                filled[j][cell] = true;
+            }
+        }
+    }
+
+    @Test
+    void testShiftsDependOnSeed() {
+        double[] innovations = new double[3];
+        double[] other = new double[3];
+        new SobolInnovationSequence(new ReplicateRandomFactory(42)).fill(0, innovations);
+        new SobolInnovationSequence(new ReplicateRandomFactory(43)).fill(0, other);
+        assertNotEquals(innovations[0], other[0]);
+    }
+}
@@ -0,0 +1,124 @@
+package test.fr.univ_nantes.stats.monte_carlo.noise;
+
+import fr.univ_nantes.stats.monte_carlo.noise.ReplicateRandom;
+import fr.univ_nantes.stats.monte_carlo.noise.ZigguratGaussian;
+import org.apache.commons.math3.distribution.NormalDistribution;
+import org.testng.annotations.Test;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Random;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class ZigguratGaussianTest {
+
+    private static final int N = 1000000;
+    private static final double R = 3.442619855899;
+
+    private NormalDistribution normalDistribution = new NormalDistribution();
+
+    /**
+     * Random whose draws are scripted, to drive the sampler into a given path.
+     */
+    private static class ScriptedRandom extends Random {
+        private Deque<Long> longs = new ArrayDeque<>();
+        private Deque<Double> doubles = new ArrayDeque<>();
+
+        ScriptedRandom(long[] longs, double[] doubles) {
+            Arrays.stream(longs).forEach(this.longs::add);
+            Arrays.stream(doubles).forEach(this.doubles::add);
+        }
+
+        @Override
+        public long nextLong() {
+            return longs.remove();
+        }
+
+        @Override
+        public double nextDouble() {
+            return doubles.remove();
+        }
+
+        boolean isConsumed() {
+            return longs.isEmpty() && doubles.isEmpty();
+        }
+    }
+
+    private static long getBits(int hz, int iz) {
+        return ((long) hz << 32) | iz;
+    }
+
+    private double[] sample() {
+        double[] values = new double[N];
+        ZigguratGaussian.fill(values, new ReplicateRandom(42));
+        return values;
+    }
+
+    @Test
+    void testMoments() {
+        double[] values = sample();
+        double mean = Arrays.stream(values).average().getAsDouble();
+        double variance = Arrays.stream(values).map(x -> (x - mean) * (x - mean)).sum() / (N - 1);
+        double kurtosis = Arrays.stream(values).map(x -> Math.pow(x - mean, 4)).sum() / N / (variance * variance);
+        // 5 standard errors, the fourth moment of a normal having variance 96
+        assertEquals(mean, 0, 5 / Math.sqrt(N));
+        assertEquals(variance, 1, 5 * Math.sqrt(2d / N));
+        assertEquals(kurtosis, 3, 5 * Math.sqrt(96d / N));
+    }
+
+    @Test
+    void testTailFrequency() {
+        double[] values = sample();
+        double probability = 2 * normalDistribution.cumulativeProbability(-R);
+        long count = Arrays.stream(values).filter(x -> Math.abs(x) > R).count();
+        assertEquals(count, N * probability, 5 * Math.sqrt(N * probability));
+    }
+
+    /**
+     * Bins narrower than the layers, so that wedge draws must fill the outer part of every layer.
+     */
+    @Test
+    void testHistogram() {
+        double[] values = sample();
+        int nbBins = 80;
+        double width = 2 * R / nbBins;
+        long[] counts = new long[nbBins];
+        for(double value : values) {
+            int bin = (int) Math.floor((value + R) / width);
+            if(bin >= 0 && bin < nbBins) {
+                counts[bin]++;
+            }
+        }
+        for(int bin = 0; bin < nbBins; bin++) {
+            double probability = normalDistribution.cumulativeProbability(-R + (bin + 1) * width) - normalDistribution.cumulativeProbability(-R + bin * width);
+            assertEquals(counts[bin], N * probability, 5 * Math.sqrt(N * probability));
+        }
+    }
+
+    @Test
+    void testTailPath() {
+        ScriptedRandom random = new ScriptedRandom(new long[] { getBits(Integer.MAX_VALUE, 0) }, new double[] { 0.5, 0.5 });
+        assertEquals(ZigguratGaussian.next(random), R - Math.log(0.5) / R, 1e-12);
+        assertTrue(random.isConsumed());
+
+        random = new ScriptedRandom(new long[] { getBits(Integer.MIN_VALUE, 0) }, new double[] { 0.5, 0.5 });
+        assertEquals(ZigguratGaussian.next(random), -R + Math.log(0.5) / R, 1e-12);
+        assertTrue(random.isConsumed());
+    }
+
+    @Test
+    void testWedgePath() {
+        // outermost point of layer 5, under the density at its upper bound : accepted
+        ScriptedRandom random = new ScriptedRandom(new long[] { getBits(Integer.MAX_VALUE, 5) }, new double[] { 0 });
+        double accepted = ZigguratGaussian.next(random);
+        assertTrue(accepted > 0 && accepted < R);
+        assertTrue(random.isConsumed());
+
+        // above the density : rejected, the next draw falls in the rectangle of layer 5
+        random = new ScriptedRandom(new long[] { getBits(Integer.MAX_VALUE, 5), getBits(1 << 20, 5) }, new double[] { 1 - 1e-12 });
+        double rejected = ZigguratGaussian.next(random);
+        assertTrue(rejected > 0 && rejected < accepted);
+        assertTrue(random.isConsumed());
+    }
+}
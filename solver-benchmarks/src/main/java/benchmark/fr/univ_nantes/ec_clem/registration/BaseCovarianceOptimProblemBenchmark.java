@@ -0,0 +1,86 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package benchmark.fr.univ_nantes.ec_clem.registration;
+
+import Jama.Matrix;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.BaseCovarianceOptimProblem;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.ObjectiveEvaluation;
+import org.openjdk.jmh.annotations.*;
+import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
+import plugins.fr.univ_nantes.ec_clem.transformation.Similarity;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.Math.cos;
+import static java.lang.Math.sin;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BaseCovarianceOptimProblemBenchmark {
+
+    @Param({ "10", "100", "1000", "10000", "100000", "1000000" })
+    private int n;
+
+    @Param({ "1_0_0_1", "100_0_0_100", "100_40_40_25" })
+    private String noiseCovariance;
+
+    @Param({ "VALUE", "GRADIENT", "HESSIAN" })
+    private BaseOptimProblemBenchmark.Derivatives derivatives;
+
+    private FiducialSet fiducialSet;
+    private Similarity transformation;
+    private BaseCovarianceOptimProblem problem;
+    private ObjectiveEvaluation evaluation;
+    private double[] point;
+    private boolean wantGradient;
+    private boolean wantHessian;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkFiducialSetFactory factory = new BenchmarkFiducialSetFactory();
+        fiducialSet = factory.getRigidFiducialSet2D(n, noiseCovariance, 1);
+        double theta = BenchmarkFiducialSetFactory.THETA;
+        transformation = new Similarity(
+            new Matrix(new double[][] {
+                { cos(theta), -sin(theta) },
+                { sin(theta), cos(theta) }
+            }),
+            new Matrix(new double[][] {
+                { BenchmarkFiducialSetFactory.TX },
+                { BenchmarkFiducialSetFactory.TY }
+            }),
+            Matrix.identity(2, 2)
+        );
+        problem = new BaseCovarianceOptimProblem(fiducialSet, transformation);
+        evaluation = new ObjectiveEvaluation(problem);
+        double[] truePoint = factory.getTruePoint(noiseCovariance);
+        point = new double[] { truePoint[3], truePoint[4], truePoint[5], truePoint[6] };
+        wantGradient = derivatives != BaseOptimProblemBenchmark.Derivatives.VALUE;
+        wantHessian = derivatives == BaseOptimProblemBenchmark.Derivatives.HESSIAN;
+    }
+
+    @Benchmark
+    public BaseCovarianceOptimProblem construct() {
+        return new BaseCovarianceOptimProblem(fiducialSet, transformation);
+    }
+
+    @Benchmark
+    public ObjectiveEvaluation evaluate() {
+        problem.evaluate(point, wantGradient, wantHessian, evaluation);
+        return evaluation;
+    }
+}
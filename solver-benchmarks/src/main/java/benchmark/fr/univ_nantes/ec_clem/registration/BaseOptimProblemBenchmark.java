@@ -0,0 +1,90 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package benchmark.fr.univ_nantes.ec_clem.registration;
+
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.BaseOptimProblem;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.ObjectiveEvaluation;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.SufficientStatisticsOptimProblem;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.autodiff.AutoDiffRigid2DOptimProblem;
+import org.openjdk.jmh.annotations.*;
+import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BaseOptimProblemBenchmark {
+
+    @Param({ "10", "100", "1000", "10000", "100000", "1000000" })
+    private int n;
+
+    @Param({ "1_0_0_1", "100_0_0_100", "100_40_40_25" })
+    private String noiseCovariance;
+
+    /**
+     * Derivatives asked along the objective, as the solvers do : value only in line searches, gradient for first
+     * order steps, both for Newton steps.
+     */
+    @Param({ "VALUE", "GRADIENT", "HESSIAN" })
+    private Derivatives derivatives;
+
+    public enum Derivatives { VALUE, GRADIENT, HESSIAN }
+
+    private BaseOptimProblem baseOptimProblem;
+    private SufficientStatisticsOptimProblem sufficientStatisticsOptimProblem;
+    private AutoDiffRigid2DOptimProblem autoDiffOptimProblem;
+    private ObjectiveEvaluation evaluation;
+    private double[] point;
+    private boolean wantGradient;
+    private boolean wantHessian;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkFiducialSetFactory factory = new BenchmarkFiducialSetFactory();
+        FiducialSet fiducialSet = factory.getRigidFiducialSet2D(n, noiseCovariance, 1);
+        baseOptimProblem = new BaseOptimProblem(fiducialSet);
+        sufficientStatisticsOptimProblem = new SufficientStatisticsOptimProblem(fiducialSet);
+        autoDiffOptimProblem = new AutoDiffRigid2DOptimProblem(fiducialSet);
+        evaluation = new ObjectiveEvaluation(baseOptimProblem);
+        point = factory.getTruePoint(noiseCovariance);
+        wantGradient = derivatives != Derivatives.VALUE;
+        wantHessian = derivatives == Derivatives.HESSIAN;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        baseOptimProblem.close();
+    }
+
+    @Benchmark
+    public ObjectiveEvaluation evaluate() {
+        baseOptimProblem.evaluate(point, wantGradient, wantHessian, evaluation);
+        return evaluation;
+    }
+
+    @Benchmark
+    public ObjectiveEvaluation evaluateSufficientStatistics() {
+        sufficientStatisticsOptimProblem.evaluate(point, wantGradient, wantHessian, evaluation);
+        return evaluation;
+    }
+
+    @Benchmark
+    public ObjectiveEvaluation evaluateAutoDiff() {
+        autoDiffOptimProblem.evaluate(point, wantGradient, wantHessian, evaluation);
+        return evaluation;
+    }
+}
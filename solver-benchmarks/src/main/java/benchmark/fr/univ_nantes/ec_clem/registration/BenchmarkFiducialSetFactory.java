@@ -0,0 +1,85 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package benchmark.fr.univ_nantes.ec_clem.registration;
+
+import Jama.Matrix;
+import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
+import plugins.fr.univ_nantes.ec_clem.fiducialset.dataset.Dataset;
+import plugins.fr.univ_nantes.ec_clem.roi.PointType;
+
+import java.util.Random;
+
+import static java.lang.Math.*;
+
+/**
+ * Seeded rigid 2D fiducial sets : uniform source points in a 1000x1000 field, target points moved by a fixed
+ * rotation and translation plus gaussian noise.
+ */
+public class BenchmarkFiducialSetFactory {
+
+    public static final double THETA = 0.3;
+    public static final double TX = 12;
+    public static final double TY = -7;
+
+    private static final double RANGE = 1000;
+
+    /**
+     * @param noiseCovariance row major 2x2 covariance, as "c11_c12_c21_c22"
+     */
+    public FiducialSet getRigidFiducialSet2D(int n, String noiseCovariance, long seed) {
+        double[][] covariance = parseCovariance(noiseCovariance);
+        double l11 = sqrt(covariance[0][0]);
+        double l21 = covariance[1][0] / l11;
+        double l22 = sqrt(covariance[1][1] - l21 * l21);
+        Random random = new Random(seed);
+        double[][] source = new double[n][2];
+        double[][] target = new double[n][2];
+        for(int i = 0; i < n; i++) {
+            source[i][0] = random.nextDouble() * RANGE;
+            source[i][1] = random.nextDouble() * RANGE;
+            double e1 = random.nextGaussian();
+            double e2 = random.nextGaussian();
+            target[i][0] = cos(THETA) * source[i][0] - sin(THETA) * source[i][1] + TX + l11 * e1;
+            target[i][1] = sin(THETA) * source[i][0] + cos(THETA) * source[i][1] + TY + l21 * e1 + l22 * e2;
+        }
+        return new FiducialSet(
+            new Dataset(new Matrix(source), PointType.FIDUCIAL),
+            new Dataset(new Matrix(target), PointType.FIDUCIAL)
+        );
+    }
+
+    public double[][] parseCovariance(String noiseCovariance) {
+        String[] values = noiseCovariance.split("_");
+        if(values.length != 4) {
+            throw new IllegalArgumentException(String.format("Expected a 2x2 covariance as c11_c12_c21_c22, got %s", noiseCovariance));
+        }
+        return new double[][] {
+            { Double.parseDouble(values[0]), Double.parseDouble(values[1]) },
+            { Double.parseDouble(values[2]), Double.parseDouble(values[3]) }
+        };
+    }
+
+    /**
+     * Parameters (tx, ty, theta, v11, v12, v21, v22) at the generating transformation, with VᵀV = Σ⁻¹.
+     */
+    public double[] getTruePoint(String noiseCovariance) {
+        double[][] covariance = parseCovariance(noiseCovariance);
+        double det = covariance[0][0] * covariance[1][1] - covariance[0][1] * covariance[1][0];
+        double lambda11 = covariance[1][1] / det;
+        double lambda12 = -covariance[0][1] / det;
+        double lambda22 = covariance[0][0] / det;
+        double v11 = sqrt(lambda11);
+        double v12 = lambda12 / v11;
+        return new double[] { TX, TY, THETA, v11, v12, 0, sqrt(lambda22 - v12 * v12) };
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package benchmark.fr.univ_nantes.ec_clem.registration;
+
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.Rigid2DMaxLikelihoodComputer;
+import org.openjdk.jmh.annotations.*;
+import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
+import plugins.fr.univ_nantes.ec_clem.registration.RegistrationParameter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end compute() of each named computer of Rigid2DMaxLikelihoodComputerModule.
+ * Iterative solvers are slow on large sets, larger n can be run with -p n=100000,1000000.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class Rigid2DMaxLikelihoodComputerBenchmark {
+
+    @Param({
+        "ipopt_general",
+        "ipopt_constrained",
+        "conjugate_gradient",
+        "simplex",
+        "profile",
+        "trust_region_general",
+        "trust_region_constrained"
+    })
+    private String computer;
+
+    @Param({ "10", "100", "1000", "10000" })
+    private int n;
+
+    @Param({ "1_0_0_1", "100_0_0_100", "100_40_40_25" })
+    private String noiseCovariance;
+
+    private Rigid2DMaxLikelihoodComputer subjectUnderTest;
+    private FiducialSet fiducialSet;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        subjectUnderTest = getComputer(DaggerRigid2DMaxLikelihoodComputerBenchmarkComponent.create(), computer);
+        fiducialSet = new BenchmarkFiducialSetFactory().getRigidFiducialSet2D(n, noiseCovariance, 1);
+    }
+
+    @Benchmark
+    public RegistrationParameter compute() {
+        return subjectUnderTest.compute(fiducialSet);
+    }
+
+    private Rigid2DMaxLikelihoodComputer getComputer(Rigid2DMaxLikelihoodComputerBenchmarkComponent component, String name) {
+        switch (name) {
+            case "ipopt_general": return component.ipoptGeneral();
+            case "ipopt_constrained": return component.ipoptConstrained();
+            case "conjugate_gradient": return component.conjugateGradient();
+            case "simplex": return component.simplex();
+            case "profile": return component.profile();
+            case "trust_region_general": return component.trustRegionGeneral();
+            case "trust_region_constrained": return component.trustRegionConstrained();
+            default: throw new IllegalArgumentException(String.format("Unknown computer %s", name));
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package benchmark.fr.univ_nantes.ec_clem.registration;
+
+import dagger.Component;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.Rigid2DMaxLikelihoodComputer;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.Rigid2DMaxLikelihoodComputerModule;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+@Singleton
+@Component(modules = {
+    Rigid2DMaxLikelihoodComputerModule.class
+})
+public interface Rigid2DMaxLikelihoodComputerBenchmarkComponent {
+    @Named("ipopt_general") Rigid2DMaxLikelihoodComputer ipoptGeneral();
+    @Named("ipopt_constrained") Rigid2DMaxLikelihoodComputer ipoptConstrained();
+    @Named("conjugate_gradient") Rigid2DMaxLikelihoodComputer conjugateGradient();
+    @Named("simplex") Rigid2DMaxLikelihoodComputer simplex();
+    @Named("profile") Rigid2DMaxLikelihoodComputer profile();
+    @Named("trust_region_general") Rigid2DMaxLikelihoodComputer trustRegionGeneral();
+    @Named("trust_region_constrained") Rigid2DMaxLikelihoodComputer trustRegionConstrained();
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package benchmark.fr.univ_nantes.stats.monte_carlo;
+
+import fr.univ_nantes.stats.monte_carlo.noise.InnovationSequence;
+import fr.univ_nantes.stats.monte_carlo.noise.InnovationSequenceFactory;
+import fr.univ_nantes.stats.monte_carlo.noise.ReplicateRandom;
+import fr.univ_nantes.stats.monte_carlo.noise.ReplicateRandomFactory;
+import fr.univ_nantes.stats.monte_carlo.noise.SamplerType;
+import fr.univ_nantes.stats.monte_carlo.noise.ZigguratGaussian;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Standard normal deviates of a replicate : ziggurat against the polar method of java.util.Random, and the
+ * innovations of every sampler.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GaussianSamplerBenchmark {
+
+    @Param({ "20", "200", "2000" })
+    private int size;
+
+    @Param({ "PSEUDO", "ANTITHETIC", "SOBOL" })
+    private SamplerType samplerType;
+
+    private double[] values;
+    private Random random;
+    private ReplicateRandom replicateRandom;
+    private InnovationSequence innovationSequence;
+    private long replicate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        values = new double[size];
+        random = new Random(42);
+        replicateRandom = new ReplicateRandom(42);
+        innovationSequence = new InnovationSequenceFactory().getFrom(samplerType, new ReplicateRandomFactory(42));
+        replicate = 0;
+    }
+
+    @Benchmark
+    public double[] polar() {
+        for(int i = 0; i < size; i++) {
+            values[i] = random.nextGaussian();
+        }
+        return values;
+    }
+
+    @Benchmark
+    public double[] ziggurat() {
+        ZigguratGaussian.fill(values, replicateRandom);
+        return values;
+    }
+
+    @Benchmark
+    public double[] innovations() {
+        innovationSequence.fill(replicate++, values);
+        return values;
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package fr.univ_nantes.ec_clem.registration.likelihood.dimension2;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide scheduler for reductions over the fiducial points.
+ *
+ * Points are split in chunks of a fixed grain size and partial results are combined pairwise, so the result
+ * does not depend on how many threads took part. Below the grain size, or when the pool is already saturated
+ * (e.g. by an outer Monte Carlo loop), the same chunks are reduced in the calling thread.
+ */
+@Singleton
+public class EvaluationScheduler {
+
+    public static final int DEFAULT_GRAIN_SIZE = 1024;
+
+    private ForkJoinPool pool;
+    private int grainSize;
+
+    @Inject
+    public EvaluationScheduler() {
+        this(ForkJoinPool.commonPool(), DEFAULT_GRAIN_SIZE);
+    }
+
+    public EvaluationScheduler(ForkJoinPool pool, int grainSize) {
+        if(grainSize < 1) {
+            throw new IllegalArgumentException("grainSize must be positive");
+        }
+        this.pool = pool;
+        this.grainSize = grainSize;
+    }
+
+    public interface RangeReduction<T> {
+        void accumulate(T result, int from, int to);
+    }
+
+    /**
+     * Reduces the range [0, n) : each chunk is accumulated into a fresh identity and partial results are merged
+     * with combiner.accept(left, right), left being the result.
+     */
+    public <T> T reduce(int n, Supplier<T> identity, RangeReduction<T> reduction, BiConsumer<T, T> combiner) {
+        ReductionTask<T> task = new ReductionTask<>(0, n, identity, reduction, combiner, n > grainSize && isPoolAvailable());
+        if(!task.parallel) {
+            return task.compute();
+        }
+        return ForkJoinTask.inForkJoinPool() ? task.invoke() : pool.invoke(task);
+    }
+
+    private boolean isPoolAvailable() {
+        if(ForkJoinTask.inForkJoinPool()) {
+            return true;
+        }
+        return pool.getParallelism() > 1
+            && pool.getQueuedSubmissionCount() == 0
+            && pool.getActiveThreadCount() < pool.getParallelism();
+    }
+
+    public int getGrainSize() {
+        return grainSize;
+    }
+
+    private class ReductionTask<T> extends RecursiveTask<T> {
+        private int from;
+        private int to;
+        private Supplier<T> identity;
+        private RangeReduction<T> reduction;
+        private BiConsumer<T, T> combiner;
+        private boolean parallel;
+
+        private ReductionTask(int from, int to, Supplier<T> identity, RangeReduction<T> reduction, BiConsumer<T, T> combiner, boolean parallel) {
+            this.from = from;
+            this.to = to;
+            this.identity = identity;
+            this.reduction = reduction;
+            this.combiner = combiner;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected T compute() {
+            if(to - from <= grainSize) {
+                T result = identity.get();
+                reduction.accumulate(result, from, to);
+                return result;
+            }
+            int middle = (from + to) >>> 1;
+            ReductionTask<T> left = new ReductionTask<>(from, middle, identity, reduction, combiner, parallel);
+            ReductionTask<T> right = new ReductionTask<>(middle, to, identity, reduction, combiner, parallel);
+            T leftResult;
+            T rightResult;
+            if(parallel) {
+                left.fork();
+                rightResult = right.compute();
+                leftResult = left.join();
+            } else {
+                leftResult = left.compute();
+                rightResult = right.compute();
+            }
+            combiner.accept(leftResult, rightResult);
+            return leftResult;
+        }
+    }
+}
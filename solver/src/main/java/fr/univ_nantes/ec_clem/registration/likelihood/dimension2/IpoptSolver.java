@@ -1,14 +1,19 @@
 package fr.univ_nantes.ec_clem.registration.likelihood.dimension2;
 
 import org.coinor.Ipopt;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.ObjectiveEvaluation;
 import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.OptimProblem;
 
 public class IpoptSolver extends Ipopt {
 
     private OptimProblem optimProblem;
+    private ObjectiveEvaluation evaluation;
+    private boolean evaluated = false;
+    private boolean hasHessian = false;
 
     public IpoptSolver(OptimProblem optimProblem) {
         this.optimProblem = optimProblem;
+        evaluation = new ObjectiveEvaluation(optimProblem);
         create(
             optimProblem.getNParameters(),
             optimProblem.getNConstraints(),
@@ -49,18 +54,15 @@ public class IpoptSolver extends Ipopt {
 
     @Override
     protected boolean eval_f(int n, double[] x, boolean new_x, double[] obj_value) {
-        obj_value[0] = optimProblem.getObjectiveValue(x);
+        evaluate(x, new_x, false);
+        obj_value[0] = evaluation.getValue();
         return true;
     }
 
     @Override
     protected boolean eval_grad_f(int n, double[] x, boolean new_x, double[] grad_f) {
-//        try {
-            double[] gradient = optimProblem.getObjectiveGradient(x);
-            System.arraycopy(gradient, 0, grad_f, 0, gradient.length);
-//        } catch (ExecutionException | InterruptedException e) {
-//            e.printStackTrace();
-//        }
+        evaluate(x, new_x, false);
+        System.arraycopy(evaluation.getGradient(), 0, grad_f, 0, n);
         return true;
     }
 
@@ -103,19 +105,32 @@ public class IpoptSolver extends Ipopt {
 
             assert idx == nele_hess;
         } else {
-//            try {
-                double[] hessian = optimProblem.getObjectiveHessian(x);
-                double[][] constraintsHessian = optimProblem.getConstraintsHessian(x);
-                for(int i = 0; i < hessian.length; i++) {
-                    values[i] = obj_factor * hessian[i];
-                    for(int j = 0; j < constraintsHessian.length; j++) {
-                        values[i] += lambda[j] * constraintsHessian[j][i];
-                    }
+            evaluate(x, new_x, true);
+            double[] hessian = evaluation.getHessian();
+            double[][] constraintsHessian = optimProblem.getConstraintsHessian(x);
+            for(int i = 0; i < hessian.length; i++) {
+                values[i] = obj_factor * hessian[i];
+                for(int j = 0; j < constraintsHessian.length; j++) {
+                    values[i] += lambda[j] * constraintsHessian[j][i];
                 }
-//            } catch (ExecutionException | InterruptedException e) {
-//                e.printStackTrace();
-//            }
+            }
         }
         return true;
     }
+
+    /**
+     * Objective value, gradient and (if asked) hessian are computed together and kept until Ipopt moves to a new x.
+     */
+    private void evaluate(double[] x, boolean new_x, boolean wantHessian) {
+        if(new_x) {
+            evaluated = false;
+            hasHessian = false;
+        }
+        if(evaluated && (hasHessian || !wantHessian)) {
+            return;
+        }
+        optimProblem.evaluate(x, true, wantHessian, evaluation);
+        evaluated = true;
+        hasHessian = wantHessian;
+    }
 }
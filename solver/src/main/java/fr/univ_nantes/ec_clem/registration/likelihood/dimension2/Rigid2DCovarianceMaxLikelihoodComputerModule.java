@@ -0,0 +1,31 @@
+package fr.univ_nantes.ec_clem.registration.likelihood.dimension2;
+
+import dagger.Module;
+import dagger.Provides;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.closed_form.ClosedFormRigid2DGeneralCovarianceMaxLikelihoodComputer;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.isotropic.closed_form.ClosedFormRigid2DIsotropicCovarianceMaxLikelihoodComputer;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.isotropic.interior_point.InteriorPointRigid2DIsotropicCovarianceMaxLikelihoodComputer;
+
+import javax.inject.Named;
+
+@Module
+public class Rigid2DCovarianceMaxLikelihoodComputerModule {
+
+    @Provides
+    @Named("general")
+    public Rigid2DCovarianceMaxLikelihoodComputer provideClosedFormRigid2DGeneralCovarianceMaxLikelihoodComputer(ClosedFormRigid2DGeneralCovarianceMaxLikelihoodComputer solver) {
+        return solver;
+    }
+
+    @Provides
+    @Named("isotropic")
+    public Rigid2DCovarianceMaxLikelihoodComputer provideClosedFormRigid2DIsotropicCovarianceMaxLikelihoodComputer(ClosedFormRigid2DIsotropicCovarianceMaxLikelihoodComputer solver) {
+        return solver;
+    }
+
+    @Provides
+    @Named("ipopt_constrained")
+    public Rigid2DCovarianceMaxLikelihoodComputer provideInteriorPointRigid2DIsotropicCovarianceMaxLikelihoodComputer(InteriorPointRigid2DIsotropicCovarianceMaxLikelihoodComputer solver) {
+        return solver;
+    }
+}
@@ -4,8 +4,11 @@ import dagger.Module;
 import dagger.Provides;
 import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.conjugate_gradient.ConjugateGradientRigid2DGeneralMaxLikelihoodComputer;
 import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.interior_point.InteriorPointRigid2DGeneralMaxLikelihoodComputer;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.profile.ProfiledRigid2DGeneralMaxLikelihoodComputer;
 import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.simplex.SimplexRigid2DGeneralMaxLikelihoodComputer;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.trust_region.TrustRegionRigid2DGeneralMaxLikelihoodComputer;
 import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.isotropic.interior_point.InteriorPointRigid2DIsotropicMaxLikelihoodComputer;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.isotropic.trust_region.TrustRegionRigid2DIsotropicMaxLikelihoodComputer;
 
 import javax.inject.Named;
 
@@ -35,4 +38,22 @@ public class Rigid2DMaxLikelihoodComputerModule {
     public Rigid2DMaxLikelihoodComputer provideSimplexRigid2DGeneralMaxLikelihoodComputer(SimplexRigid2DGeneralMaxLikelihoodComputer solver) {
         return solver;
     }
+
+    @Provides
+    @Named("profile")
+    public Rigid2DMaxLikelihoodComputer provideProfiledRigid2DGeneralMaxLikelihoodComputer(ProfiledRigid2DGeneralMaxLikelihoodComputer solver) {
+        return solver;
+    }
+
+    @Provides
+    @Named("trust_region_general")
+    public Rigid2DMaxLikelihoodComputer provideTrustRegionRigid2DGeneralMaxLikelihoodComputer(TrustRegionRigid2DGeneralMaxLikelihoodComputer solver) {
+        return solver;
+    }
+
+    @Provides
+    @Named("trust_region_constrained")
+    public Rigid2DMaxLikelihoodComputer provideTrustRegionRigid2DIsotropicMaxLikelihoodComputer(TrustRegionRigid2DIsotropicMaxLikelihoodComputer solver) {
+        return solver;
+    }
 }
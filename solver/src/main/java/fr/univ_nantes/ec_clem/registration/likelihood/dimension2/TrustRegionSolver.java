@@ -0,0 +1,343 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package fr.univ_nantes.ec_clem.registration.likelihood.dimension2;
+
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.ObjectiveEvaluation;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.OptimProblem;
+
+import static java.lang.Math.*;
+
+/**
+ * Pure Java alternative to {@link IpoptSolver}.
+ *
+ * Trust region Newton method, the step being computed by truncated conjugate gradient (Steihaug) on the exact
+ * hessian. Parameter bounds are handled by fixing the active variables and projecting the step, equality
+ * constraints by an augmented Lagrangian outer loop. All work arrays are allocated once, in the constructor.
+ */
+public class TrustRegionSolver {
+
+    public static final int SOLVE_SUCCEEDED = 0;
+    public static final int MAXITER_EXCEEDED = 1;
+    public static final int FAILED = 2;
+
+    private static final double ETA = 1e-4;
+    private static final int MAX_OUTER_ITERATIONS = 50;
+
+    private OptimProblem optimProblem;
+    private int n;
+    private int m;
+    private int maxIterations = 500;
+    private double tolerance = 1e-10;
+    private double constraintTolerance = 1e-10;
+
+    private double[] x;
+    private double[] trial;
+    private double[] lower;
+    private double[] upper;
+    private boolean[] fixed;
+    private double[] gradient;
+    private double[][] hessian;
+    private double[] step;
+    private double[] residual;
+    private double[] direction;
+    private double[] product;
+    private double[] lambda;
+    private double[] constraints;
+    private double penalty;
+    private ObjectiveEvaluation evaluation;
+    private ObjectiveEvaluation trialEvaluation;
+
+    private double objectiveValue;
+    private int iterations;
+
+    public TrustRegionSolver(OptimProblem optimProblem) {
+        this.optimProblem = optimProblem;
+        n = optimProblem.getNParameters();
+        m = optimProblem.getNConstraints();
+        x = new double[n];
+        trial = new double[n];
+        lower = optimProblem.getParametersLowerBounds();
+        upper = optimProblem.getParametersUpperBounds();
+        fixed = new boolean[n];
+        gradient = new double[n];
+        hessian = new double[n][n];
+        step = new double[n];
+        residual = new double[n];
+        direction = new double[n];
+        product = new double[n];
+        lambda = new double[m];
+        constraints = new double[m];
+        evaluation = new ObjectiveEvaluation(optimProblem);
+        trialEvaluation = new ObjectiveEvaluation(optimProblem);
+    }
+
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    public void setConstraintTolerance(double constraintTolerance) {
+        this.constraintTolerance = constraintTolerance;
+    }
+
+    public int optimize() {
+        double[] startingPoint = optimProblem.getStartingPoint();
+        for(int i = 0; i < n; i++) {
+            x[i] = min(max(startingPoint[i], lower[i]), upper[i]);
+        }
+        iterations = 0;
+        if(m == 0) {
+            return minimize(tolerance);
+        }
+        penalty = 10d;
+        double innerTolerance = 1e-2;
+        double feasibilityTarget = 1e-1;
+        for(int outer = 0; outer < MAX_OUTER_ITERATIONS; outer++) {
+            int status = minimize(innerTolerance);
+            if(status == FAILED) {
+                return status;
+            }
+            double violation = evaluateConstraints(x);
+            if(violation <= feasibilityTarget) {
+                if(violation <= constraintTolerance && innerTolerance <= tolerance) {
+                    return status;
+                }
+                for(int j = 0; j < m; j++) {
+                    lambda[j] += penalty * constraints[j];
+                }
+                innerTolerance = max(innerTolerance / penalty, tolerance);
+                feasibilityTarget = max(feasibilityTarget / pow(penalty, 0.9), constraintTolerance);
+            } else {
+                penalty *= 10d;
+                innerTolerance = max(1d / penalty, tolerance);
+                feasibilityTarget = max(1d / pow(penalty, 0.1), constraintTolerance);
+            }
+            if(iterations >= maxIterations) {
+                return MAXITER_EXCEEDED;
+            }
+        }
+        return evaluateConstraints(x) <= constraintTolerance ? SOLVE_SUCCEEDED : MAXITER_EXCEEDED;
+    }
+
+    public double[] getVariableValues() {
+        return x.clone();
+    }
+
+    /**
+     * Objective value at the solution, without the augmented Lagrangian terms.
+     */
+    public double getObjectiveValue() {
+        return objectiveValue;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    private int minimize(double innerTolerance) {
+        double merit = evaluate(x, true);
+        if(!isFinite(merit)) {
+            return FAILED;
+        }
+        double radius = max(1d, norm(x));
+        while(iterations < maxIterations) {
+            if(projectedGradientNorm() <= innerTolerance * (1d + abs(merit))) {
+                return SOLVE_SUCCEEDED;
+            }
+            iterations++;
+            double predicted = computeStep(radius);
+            double stepNorm = norm(step);
+            for(int i = 0; i < n; i++) {
+                trial[i] = x[i] + step[i];
+            }
+            double trialMerit = evaluate(trial, false);
+            double ratio = isFinite(trialMerit) && predicted > 0 ? (merit - trialMerit) / predicted : -1d;
+            if(ratio < 0.25) {
+                radius = 0.25 * stepNorm;
+            } else if(ratio > 0.75 && stepNorm >= 0.99 * radius) {
+                radius = 2d * radius;
+            }
+            if(ratio > ETA) {
+                System.arraycopy(trial, 0, x, 0, n);
+                merit = evaluate(x, true);
+            } else if(radius <= 1e-14 * (1d + norm(x))) {
+                return SOLVE_SUCCEEDED;
+            }
+        }
+        return MAXITER_EXCEEDED;
+    }
+
+    /**
+     * Augmented Lagrangian f + λᵀc + μ/2 |c|² at point. When full is set, gradient and hessian are computed too
+     * and the objective value at x is updated.
+     */
+    private double evaluate(double[] point, boolean full) {
+        ObjectiveEvaluation current = full ? evaluation : trialEvaluation;
+        optimProblem.evaluate(point, full, full, current);
+        double value = current.getValue();
+        if(full) {
+            objectiveValue = value;
+            double[] g = current.getGradient();
+            double[] h = current.getHessian();
+            int k = 0;
+            for(int i = 0; i < n; i++) {
+                gradient[i] = g[i];
+                for(int j = 0; j <= i; j++) {
+                    hessian[i][j] = h[k];
+                    hessian[j][i] = h[k];
+                    k++;
+                }
+            }
+        }
+        if(m == 0) {
+            return value;
+        }
+        evaluateConstraints(point);
+        for(int j = 0; j < m; j++) {
+            value += lambda[j] * constraints[j] + penalty / 2d * constraints[j] * constraints[j];
+        }
+        if(full) {
+            double[] jacobian = optimProblem.getConstraintsJacobian(point);
+            double[][] constraintsHessian = optimProblem.getConstraintsHessian(point);
+            for(int j = 0; j < m; j++) {
+                double multiplier = lambda[j] + penalty * constraints[j];
+                int k = 0;
+                for(int a = 0; a < n; a++) {
+                    gradient[a] += multiplier * jacobian[j * n + a];
+                    for(int b = 0; b <= a; b++) {
+                        double contribution = multiplier * constraintsHessian[j][k] + penalty * jacobian[j * n + a] * jacobian[j * n + b];
+                        hessian[a][b] += contribution;
+                        if(a != b) {
+                            hessian[b][a] += contribution;
+                        }
+                        k++;
+                    }
+                }
+            }
+        }
+        return value;
+    }
+
+    private double evaluateConstraints(double[] point) {
+        double[] values = optimProblem.getConstraints(point);
+        double violation = 0;
+        for(int j = 0; j < m; j++) {
+            constraints[j] = values[j];
+            violation = max(violation, abs(values[j]));
+        }
+        return violation;
+    }
+
+    private double projectedGradientNorm() {
+        double result = 0;
+        for(int i = 0; i < n; i++) {
+            double projected = min(max(x[i] - gradient[i], lower[i]), upper[i]) - x[i];
+            result = max(result, abs(projected));
+        }
+        return result;
+    }
+
+    /**
+     * Steihaug truncated conjugate gradient on the free variables, then projection on the bounds.
+     * Returns the reduction predicted by the quadratic model for the projected step.
+     */
+    private double computeStep(double radius) {
+        double gradientNorm = 0;
+        for(int i = 0; i < n; i++) {
+            fixed[i] = (x[i] <= lower[i] && gradient[i] > 0) || (x[i] >= upper[i] && gradient[i] < 0);
+            step[i] = 0;
+            residual[i] = fixed[i] ? 0 : -gradient[i];
+            direction[i] = residual[i];
+            gradientNorm += residual[i] * residual[i];
+        }
+        gradientNorm = sqrt(gradientNorm);
+        double rr = gradientNorm * gradientNorm;
+        double cgTolerance = min(0.1, sqrt(gradientNorm)) * gradientNorm;
+        for(int iteration = 0; iteration < 2 * n && sqrt(rr) > cgTolerance; iteration++) {
+            multiply(direction, product);
+            double curvature = dot(direction, product);
+            if(curvature <= 0) {
+                moveToBoundary(radius);
+                break;
+            }
+            double alpha = rr / curvature;
+            double stepNorm = 0;
+            for(int i = 0; i < n; i++) {
+                double value = step[i] + alpha * direction[i];
+                stepNorm += value * value;
+            }
+            if(sqrt(stepNorm) >= radius) {
+                moveToBoundary(radius);
+                break;
+            }
+            for(int i = 0; i < n; i++) {
+                step[i] += alpha * direction[i];
+                residual[i] -= alpha * product[i];
+            }
+            double rrNew = dot(residual, residual);
+            double beta = rrNew / rr;
+            rr = rrNew;
+            for(int i = 0; i < n; i++) {
+                direction[i] = residual[i] + beta * direction[i];
+            }
+        }
+        for(int i = 0; i < n; i++) {
+            step[i] = min(max(x[i] + step[i], lower[i]), upper[i]) - x[i];
+        }
+        multiply(step, product);
+        return -(dot(gradient, step) + dot(step, product) / 2d);
+    }
+
+    private void moveToBoundary(double radius) {
+        double pd = dot(step, direction);
+        double dd = dot(direction, direction);
+        double pp = dot(step, step);
+        double tau = (-pd + sqrt(pd * pd + dd * (radius * radius - pp))) / dd;
+        for(int i = 0; i < n; i++) {
+            step[i] += tau * direction[i];
+        }
+    }
+
+    private void multiply(double[] vector, double[] result) {
+        for(int i = 0; i < n; i++) {
+            double value = 0;
+            if(!fixed[i]) {
+                for(int j = 0; j < n; j++) {
+                    if(!fixed[j]) {
+                        value += hessian[i][j] * vector[j];
+                    }
+                }
+            }
+            result[i] = value;
+        }
+    }
+
+    private double dot(double[] a, double[] b) {
+        double result = 0;
+        for(int i = 0; i < n; i++) {
+            result += a[i] * b[i];
+        }
+        return result;
+    }
+
+    private double norm(double[] a) {
+        return sqrt(dot(a, a));
+    }
+
+    private static boolean isFinite(double value) {
+        return !Double.isNaN(value) && !Double.isInfinite(value);
+    }
+}
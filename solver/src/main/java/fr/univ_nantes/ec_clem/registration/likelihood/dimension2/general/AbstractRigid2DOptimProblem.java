@@ -0,0 +1,232 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general;
+
+import java.util.SplittableRandom;
+
+import static java.lang.Math.*;
+
+/**
+ * Rigid 2D gaussian likelihood, parameters are (tx, ty, theta, v11, v12, v21, v22) with Λ = VᵀV.
+ * Objective, gradient and hessian are derived from the {@link ResidualSums} at the evaluated point.
+ * Not thread safe : the residual sums and the evaluation behind the getters are reused between evaluations.
+ */
+public abstract class AbstractRigid2DOptimProblem implements OptimProblem {
+
+    private SplittableRandom random = new SplittableRandom();
+    private double[] startingPoint;
+    private ResidualSums sums = new ResidualSums();
+    private ObjectiveEvaluation evaluation;
+
+    protected abstract void computeResidualSums(double[] point, ResidualSums sums);
+
+    public int getNParameters() {
+        return 7;
+    }
+
+    public int getNConstraints() {
+        return 0;
+    }
+
+    public int getNonZeroElementsInConstraintJacobian() {
+        return 0;
+    }
+
+    public int getNonZeroElementsInParametersHessian() {
+        return 28;
+    }
+
+    public void setStartingPoint(double[] startingPoint) {
+        this.startingPoint = startingPoint;
+    }
+
+    public double[] getStartingPoint() {
+        if(startingPoint != null) {
+            return startingPoint.clone();
+        }
+        double[] doubles = {
+            random.nextInt(100),
+            random.nextInt(100),
+            random.nextInt(100),
+            random.nextInt(100) + 1,
+            0,
+            0,
+            random.nextInt(100) + 1
+        };
+        return doubles;
+    }
+
+    public void close() {}
+
+    public double getObjectiveValue(double[] point) {
+        evaluate(point, false, false, getEvaluation());
+        return evaluation.getValue();
+    }
+
+    public double[] getObjectiveGradient(double[] point) {
+        evaluate(point, true, false, getEvaluation());
+        return evaluation.getGradient();
+    }
+
+    public double[] getObjectiveHessian(double[] point) {
+        evaluate(point, false, true, getEvaluation());
+        return evaluation.getHessian();
+    }
+
+    private ObjectiveEvaluation getEvaluation() {
+        if(evaluation == null) {
+            evaluation = new ObjectiveEvaluation(this);
+        }
+        return evaluation;
+    }
+
+    @Override
+    public void evaluate(double[] point, boolean wantGradient, boolean wantHessian, ObjectiveEvaluation out) {
+        computeResidualSums(point, sums);
+        double v11 = point[3];
+        double v12 = point[4];
+        double v21 = point[5];
+        double v22 = point[6];
+        double lambda11 = pow(v11, 2) + pow(v21, 2);
+        double lambda12 = v11 * v12 + v21 * v22;
+        double lambda22 = pow(v12, 2) + pow(v22, 2);
+        double detV = v11 * v22 - v21 * v12;
+        int n = sums.getN();
+        double[] sr = sums.getResidual();
+        double[][] srr = sums.getResidualScatter();
+        double[][] srd = sums.getResidualDerivativeCross();
+
+        double sum = lambda11 * srr[0][0] + 2d * lambda12 * srr[0][1] + lambda22 * srr[1][1];
+        out.setValue((log(detV / (2d * PI)) * n - sum / 2d) * -1d);
+
+        if(wantGradient) {
+            double[] gradient = out.getGradient();
+            gradient[0] = -(lambda11 * sr[0] + lambda12 * sr[1]);
+            gradient[1] = -(lambda12 * sr[0] + lambda22 * sr[1]);
+            gradient[2] = lambda11 * srd[0][0] + lambda12 * (srd[0][1] + srd[1][0]) + lambda22 * srd[1][1];
+            gradient[3] = -(n * v22 / detV - (v11 * srr[0][0] + v12 * srr[0][1]));
+            gradient[4] = -(-n * v21 / detV - (v11 * srr[0][1] + v12 * srr[1][1]));
+            gradient[5] = -(-n * v12 / detV - (v21 * srr[0][0] + v22 * srr[0][1]));
+            gradient[6] = -(n * v11 / detV - (v21 * srr[0][1] + v22 * srr[1][1]));
+        }
+
+        if(wantHessian) {
+            double detV2 = pow(detV, 2);
+            double[] sd = sums.getDerivative();
+            double[][] sdd = sums.getDerivativeScatter();
+            double[] hessian = out.getHessian();
+            // tx²
+            hessian[0] = n * lambda11;
+            // tx*ty
+            hessian[1] = n * lambda12;
+            // ty²
+            hessian[2] = n * lambda22;
+            // tx*theta
+            hessian[3] = -(sd[0] * lambda11 + sd[1] * lambda12);
+            // ty*theta
+            hessian[4] = -(sd[0] * lambda12 + sd[1] * lambda22);
+            // theta², d²r/dtheta² = (-d2, d1)
+            hessian[5] = lambda11 * (sdd[0][0] - srd[0][1])
+                + lambda12 * (srd[0][0] - srd[1][1] + 2d * sdd[0][1])
+                + lambda22 * (sdd[1][1] + srd[1][0]);
+            // tx*v11
+            hessian[6] = -(2d * v11 * sr[0] + v12 * sr[1]);
+            // ty*v11
+            hessian[7] = -(v12 * sr[0]);
+            // theta*v11
+            hessian[8] = 2d * v11 * srd[0][0] + v12 * (srd[0][1] + srd[1][0]);
+            // v11²
+            hessian[9] = n * pow(v22, 2) / detV2 + srr[0][0];
+            // v12*tx
+            hessian[10] = -(v11 * sr[1]);
+            // v12*ty
+            hessian[11] = -(v11 * sr[0] + 2d * v12 * sr[1]);
+            // v12*theta
+            hessian[12] = v11 * (srd[0][1] + srd[1][0]) + 2d * v12 * srd[1][1];
+            // v12*v11
+            hessian[13] = -(n * v21 * v22 / detV2 - srr[0][1]);
+            // v12²
+            hessian[14] = n * pow(v21, 2) / detV2 + srr[1][1];
+            // v21*tx
+            hessian[15] = -(2d * v21 * sr[0] + v22 * sr[1]);
+            // v21*ty
+            hessian[16] = -(v22 * sr[0]);
+            // v21*theta
+            hessian[17] = 2d * v21 * srd[0][0] + v22 * (srd[0][1] + srd[1][0]);
+            // v21*v11
+            hessian[18] = -(n * v12 * v22 / detV2);
+            // v21*v12
+            hessian[19] = n * v11 * v22 / detV2;
+            // v21²
+            hessian[20] = n * pow(v12, 2) / detV2 + srr[0][0];
+            // v22*tx
+            hessian[21] = -(v21 * sr[1]);
+            // v22*ty
+            hessian[22] = -(v21 * sr[0] + 2d * v22 * sr[1]);
+            // v22*theta
+            hessian[23] = v21 * (srd[0][1] + srd[1][0]) + 2d * v22 * srd[1][1];
+            // v22*v11
+            hessian[24] = n * v12 * v21 / detV2;
+            // v22*v12
+            hessian[25] = -(n * v11 * v21 / detV2);
+            // v22*v21
+            hessian[26] = -(n * v11 * v12 / detV2 - srr[0][1]);
+            // v22²
+            hessian[27] = n * pow(v11, 2) / detV2 + srr[1][1];
+        }
+    }
+
+    public double[] getConstraints(double[] point) {
+        return new double[0];
+    }
+
+    public double[] getConstraintsJacobian(double[] point) {
+        return new double[0];
+    }
+
+    public double[][] getConstraintsHessian(double[] point) {
+        return new double[0][0];
+    }
+
+    public double[] getParametersLowerBounds() {
+        return new double[] {
+            -Double.MAX_VALUE,
+            -Double.MAX_VALUE,
+            -Double.MAX_VALUE,
+            -Double.MAX_VALUE,
+            -Double.MAX_VALUE,
+            -Double.MAX_VALUE,
+            -Double.MAX_VALUE
+        };
+    }
+
+    public double[] getParametersUpperBounds() {
+        return new double[] {
+            Double.MAX_VALUE,
+            Double.MAX_VALUE,
+            Double.MAX_VALUE,
+            Double.MAX_VALUE,
+            Double.MAX_VALUE,
+            Double.MAX_VALUE,
+            Double.MAX_VALUE
+        };
+    }
+
+    public double[] getConstraintsLowerBounds() {
+        return new double[0];
+    }
+
+    public double[] getConstraintsUpperBounds() {
+        return new double[0];
+    }
+}
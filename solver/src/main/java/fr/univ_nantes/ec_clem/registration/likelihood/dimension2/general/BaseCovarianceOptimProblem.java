@@ -17,18 +17,27 @@ import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
 import plugins.fr.univ_nantes.ec_clem.transformation.Transformation;
 
 import java.util.Arrays;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import static java.lang.Math.*;
 
+/**
+ * Gaussian likelihood of the residuals of a fixed transformation, parameters are V (row packed) with Λ = VᵀV.
+ * The data only enter through the residual scatter S = Σ r rᵀ, computed once.
+ */
 public class BaseCovarianceOptimProblem implements OptimProblem {
 
     protected FiducialSet fiducialSet;
-    private Transformation transformation;
+    private int dimension;
+    private int n;
+    private double[][] scatter;
+    private double[][] v;
+    private double[][] lu;
+    private double[][] inverse;
+    private int[] pivot;
+    private ObjectiveEvaluation evaluation;
 
     public int getNParameters() {
-        return fiducialSet.getSourceDataset().getDimension() * fiducialSet.getTargetDataset().getDimension();
+        return dimension * dimension;
     }
 
     public int getNConstraints() {
@@ -47,62 +56,176 @@ public class BaseCovarianceOptimProblem implements OptimProblem {
         return Matrix.identity(fiducialSet.getSourceDataset().getDimension(), fiducialSet.getTargetDataset().getDimension()).getRowPackedCopy();
     }
 
-    private ExecutorService completionService;
-
     public BaseCovarianceOptimProblem(FiducialSet fiducialSet, Transformation transformation) {
         this.fiducialSet = fiducialSet;
-        this.transformation = transformation;
-        completionService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        dimension = fiducialSet.getTargetDataset().getDimension();
+        n = fiducialSet.getN();
+        scatter = new double[dimension][dimension];
+        v = new double[dimension][dimension];
+        lu = new double[dimension][dimension];
+        inverse = new double[dimension][dimension];
+        pivot = new int[dimension];
+        double[][] target = fiducialSet.getTargetDataset().getMatrix().getArray();
+        double[][] transformed = transformation.apply(fiducialSet.getSourceDataset()).getMatrix().getArray();
+        double[] residual = new double[dimension];
+        for(int p = 0; p < n; p++) {
+            for(int a = 0; a < dimension; a++) {
+                residual[a] = target[p][a] - transformed[p][a];
+            }
+            for(int a = 0; a < dimension; a++) {
+                for(int b = 0; b < dimension; b++) {
+                    scatter[a][b] += residual[a] * residual[b];
+                }
+            }
+        }
     }
 
-    public void close() {
-        completionService.shutdown();
-        completionService = null;
+    /**
+     * Residual scatter matrix Σ r rᵀ.
+     */
+    public double[][] getScatter() {
+        return scatter;
     }
 
+    public void close() {}
+
     public double getObjectiveValue(double[] point) {
-        double sum = 0d;
-        Matrix v = new Matrix(point,  fiducialSet.getTargetDataset().getDimension()).transpose();
-        Matrix inverseCovariance = v.transpose().times(v);
-        Matrix residuals = fiducialSet.getTargetDataset().getMatrix().minus(
-            transformation.apply(fiducialSet.getSourceDataset()).getMatrix()
-        );
-        for(int i = 0; i < residuals.getRowDimension(); i++) {
-            Matrix current = residuals.getMatrix(i, i, 0, residuals.getColumnDimension() - 1);
-            sum += (current).times(inverseCovariance).times(current.transpose()).get(0, 0);
-        }
-        return (log(sqrt(inverseCovariance.det()) / (2d * PI)) * residuals.getRowDimension() - sum / 2d) * -1d;
+        evaluate(point, false, false, getEvaluation());
+        return evaluation.getValue();
     }
 
     public double[] getObjectiveGradient(double[] point) {
-        Matrix v = new Matrix(point,  fiducialSet.getTargetDataset().getDimension()).transpose();
-        Matrix residuals = fiducialSet.getTargetDataset().getMatrix().minus(
-            transformation.apply(fiducialSet.getSourceDataset()).getMatrix()
-        );
-        double[] sum = new double[point.length];
-        int count = 0;
-        for(int i = 0; i < v.getRowDimension(); i++) {
-            for (int j = 0; j < v.getColumnDimension(); j++) {
-                for(int n = 0; n < residuals.getRowDimension(); n++) {
-                    Matrix current = residuals.getMatrix(n, n, 0, residuals.getColumnDimension() - 1);
-                    Matrix xx = current.transpose().times(current);
-                    for(int a = 0; a < v.getColumnDimension(); a++) {
-                        sum[count] = sum[count] + 2 * v.get(i, a) * xx.get(a, j);
+        evaluate(point, true, false, getEvaluation());
+        return evaluation.getGradient();
+    }
+
+    public double[] getObjectiveHessian(double[] point) {
+        evaluate(point, false, true, getEvaluation());
+        return evaluation.getHessian();
+    }
+
+    private ObjectiveEvaluation getEvaluation() {
+        if(evaluation == null) {
+            evaluation = new ObjectiveEvaluation(this);
+        }
+        return evaluation;
+    }
+
+    /**
+     * f = -(N log(|det V| / 2pi) - tr(VᵀV S) / 2)
+     * df/dV_ij = -N (V⁻¹)_ji + (VS)_ij
+     * d²f/dV_ij dV_kl = N (V⁻¹)_jk (V⁻¹)_li + δ_ik S_lj
+     */
+    @Override
+    public void evaluate(double[] point, boolean wantGradient, boolean wantHessian, ObjectiveEvaluation out) {
+        for(int i = 0; i < dimension; i++) {
+            for(int j = 0; j < dimension; j++) {
+                v[i][j] = point[i * dimension + j];
+            }
+        }
+        double trace = 0;
+        for(int i = 0; i < dimension; i++) {
+            for(int j = 0; j < dimension; j++) {
+                trace += v[i][j] * getVS(i, j);
+            }
+        }
+        double det = decompose();
+        out.setValue((log(abs(det) / (2d * PI)) * n - trace / 2d) * -1d);
+        if(!wantGradient && !wantHessian) {
+            return;
+        }
+        invert();
+        if(wantGradient) {
+            double[] gradient = out.getGradient();
+            for(int i = 0; i < dimension; i++) {
+                for(int j = 0; j < dimension; j++) {
+                    gradient[i * dimension + j] = -(n * inverse[j][i] - getVS(i, j));
+                }
+            }
+        }
+        if(wantHessian) {
+            double[] hessian = out.getHessian();
+            int h = 0;
+            for(int i = 0; i < dimension; i++) {
+                for(int j = 0; j < dimension; j++) {
+                    for(int k = 0; k <= i; k++) {
+                        for(int l = 0; (l <= j && k == i) || (k < i && l < dimension); l++) {
+                            hessian[h] = n * inverse[j][k] * inverse[l][i] + (i == k ? scatter[l][j] : 0);
+                            h++;
+                        }
                     }
                 }
-                count++;
             }
         }
+    }
+
+    private double getVS(int i, int j) {
+        double value = 0;
+        for(int b = 0; b < dimension; b++) {
+            value += v[i][b] * scatter[b][j];
+        }
+        return value;
+    }
+
+    /**
+     * LU decomposition of V with partial pivoting, in place in lu. Returns det V.
+     */
+    private double decompose() {
+        double det = 1;
+        for(int i = 0; i < dimension; i++) {
+            System.arraycopy(v[i], 0, lu[i], 0, dimension);
+            pivot[i] = i;
+        }
+        for(int c = 0; c < dimension; c++) {
+            int p = c;
+            for(int r = c + 1; r < dimension; r++) {
+                if(abs(lu[r][c]) > abs(lu[p][c])) {
+                    p = r;
+                }
+            }
+            if(p != c) {
+                double[] row = lu[p];
+                lu[p] = lu[c];
+                lu[c] = row;
+                int index = pivot[p];
+                pivot[p] = pivot[c];
+                pivot[c] = index;
+                det = -det;
+            }
+            det *= lu[c][c];
+            if(lu[c][c] == 0) {
+                continue;
+            }
+            for(int r = c + 1; r < dimension; r++) {
+                lu[r][c] /= lu[c][c];
+                for(int j = c + 1; j < dimension; j++) {
+                    lu[r][j] -= lu[r][c] * lu[c][j];
+                }
+            }
+        }
+        return det;
+    }
 
-        double[] result = new double[point.length];
-        int k = 0;
-        for(int i = 0; i < v.getRowDimension(); i++) {
-            for (int j = 0; j < v.getColumnDimension(); j++) {
-                result[k] = ((fiducialSet.getN() * v.inverse().get(j, i)) - (sum[k] / 2d)) * -1d;
-                k++;
+    /**
+     * V⁻¹ from the LU decomposition, column by column.
+     */
+    private void invert() {
+        for(int column = 0; column < dimension; column++) {
+            for(int i = 0; i < dimension; i++) {
+                double value = pivot[i] == column ? 1 : 0;
+                for(int k = 0; k < i; k++) {
+                    value -= lu[i][k] * inverse[k][column];
+                }
+                inverse[i][column] = value;
+            }
+            for(int i = dimension - 1; i >= 0; i--) {
+                double value = inverse[i][column];
+                for(int k = i + 1; k < dimension; k++) {
+                    value -= lu[i][k] * inverse[k][column];
+                }
+                inverse[i][column] = value / lu[i][i];
             }
         }
-        return result;
     }
 
     protected double getDerivative(Matrix v, int i, int j, int a, int b) {
@@ -116,23 +239,6 @@ public class BaseCovarianceOptimProblem implements OptimProblem {
         return 0;
     }
 
-    public double[] getObjectiveHessian(double[] point) {
-        Matrix v = new Matrix(point,  fiducialSet.getTargetDataset().getDimension()).transpose();
-        double[] result = new double[getNonZeroElementsInParametersHessian()];
-        int h = 0;
-        for(int i = 0; i < v.getRowDimension(); i++) {
-            for (int j = 0; j < v.getColumnDimension(); j++) {
-                for(int k = 0; k <= i; k++) {
-                    for (int l = 0; (l <= j && k == i) || (k < i && l < v.getColumnDimension()); l++) {
-                        result[h] = (fiducialSet.getN() * v.inverse().get(k, j) * v.inverse().get(i, l));
-                        h++;
-                    }
-                }
-            }
-        }
-        return result;
-    }
-
     public double[] getConstraints(double[] point) {
         return new double[0];
     }
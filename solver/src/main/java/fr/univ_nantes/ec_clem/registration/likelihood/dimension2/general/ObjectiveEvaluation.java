@@ -0,0 +1,44 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general;
+
+public class ObjectiveEvaluation {
+    private double value;
+    private double[] gradient;
+    private double[] hessian;
+
+    public ObjectiveEvaluation(int nParameters, int nonZeroElementsInParametersHessian) {
+        gradient = new double[nParameters];
+        hessian = new double[nonZeroElementsInParametersHessian];
+    }
+
+    public ObjectiveEvaluation(OptimProblem optimProblem) {
+        this(optimProblem.getNParameters(), optimProblem.getNonZeroElementsInParametersHessian());
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public void setValue(double value) {
+        this.value = value;
+    }
+
+    public double[] getGradient() {
+        return gradient;
+    }
+
+    public double[] getHessian() {
+        return hessian;
+    }
+}
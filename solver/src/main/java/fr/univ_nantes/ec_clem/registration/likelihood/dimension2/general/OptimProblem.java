@@ -11,8 +11,32 @@ public interface OptimProblem {
     double[] getConstraintsUpperBounds();
     double[] getStartingPoint();
     double getObjectiveValue(double[] point);
+
+    /**
+     * The returned array may belong to the problem and be overwritten by the next evaluation, copy it to keep it.
+     */
     double[] getObjectiveGradient(double[] point);
+
+    /**
+     * Same as {@link #getObjectiveGradient(double[])}.
+     */
     double[] getObjectiveHessian(double[] point);
+
+    default void evaluate(double[] point, boolean wantGradient, boolean wantHessian, ObjectiveEvaluation out) {
+        out.setValue(getObjectiveValue(point));
+        if(wantGradient) {
+            double[] gradient = getObjectiveGradient(point);
+            System.arraycopy(gradient, 0, out.getGradient(), 0, gradient.length);
+        }
+        if(wantHessian) {
+            double[] hessian = getObjectiveHessian(point);
+            System.arraycopy(hessian, 0, out.getHessian(), 0, hessian.length);
+        }
+    }
+
+    /**
+     * Constraint values, jacobian and hessians may also belong to the problem.
+     */
     double[] getConstraints(double[] point);
     double[] getConstraintsJacobian(double[] point);
     double[][] getConstraintsHessian(double[] point);
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general;
+
+import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
+import plugins.fr.univ_nantes.ec_clem.registration.RigidRegistrationParameterComputer;
+import plugins.fr.univ_nantes.ec_clem.transformation.Similarity;
+
+import javax.inject.Inject;
+
+import static java.lang.Math.*;
+
+/**
+ * Starting points for the rigid 2D likelihood problems : tx, ty and theta from the closed form least squares
+ * (Schönemann) solution, V from the inverse covariance of its residuals.
+ */
+public class ProcrustesStartingPointFactory {
+
+    private RigidRegistrationParameterComputer rigidRegistrationParameterComputer;
+
+    @Inject
+    public ProcrustesStartingPointFactory(RigidRegistrationParameterComputer rigidRegistrationParameterComputer) {
+        this.rigidRegistrationParameterComputer = rigidRegistrationParameterComputer;
+    }
+
+    /**
+     * V is the upper Cholesky factor of the inverse residual covariance.
+     */
+    public double[] getGeneralStartingPoint(FiducialSet fiducialSet) {
+        double[] point = getRigidParameters(fiducialSet);
+        double[][] covariance = getResidualCovariance(fiducialSet, point);
+        double det = covariance[0][0] * covariance[1][1] - covariance[0][1] * covariance[1][0];
+        double lambda11 = covariance[1][1] / det;
+        double lambda12 = -covariance[0][1] / det;
+        double lambda22 = covariance[0][0] / det;
+        if(!(det > 0) || !(lambda11 > 0)) {
+            return getIsotropicStartingPoint(fiducialSet);
+        }
+        point[3] = sqrt(lambda11);
+        point[4] = lambda12 / point[3];
+        point[5] = 0;
+        point[6] = sqrt(lambda22 - pow(point[4], 2));
+        return point;
+    }
+
+    /**
+     * V = I / sigma with sigma² the mean residual variance, which satisfies the isotropic constraints.
+     */
+    public double[] getIsotropicStartingPoint(FiducialSet fiducialSet) {
+        double[] point = getRigidParameters(fiducialSet);
+        double[][] covariance = getResidualCovariance(fiducialSet, point);
+        double variance = (covariance[0][0] + covariance[1][1]) / 2d;
+        double inverseSigma = variance > 0 ? 1d / sqrt(variance) : 1d;
+        point[3] = inverseSigma;
+        point[4] = 0;
+        point[5] = 0;
+        point[6] = inverseSigma;
+        return point;
+    }
+
+    private double[] getRigidParameters(FiducialSet fiducialSet) {
+        Similarity similarity = (Similarity) rigidRegistrationParameterComputer.compute(fiducialSet).getTransformation();
+        double[] point = new double[7];
+        point[0] = similarity.getT().get(0, 0);
+        point[1] = similarity.getT().get(1, 0);
+        point[2] = atan2(similarity.getR().get(1, 0), similarity.getR().get(0, 0));
+        return point;
+    }
+
+    private double[][] getResidualCovariance(FiducialSet fiducialSet, double[] point) {
+        double[][] covariance = new double[2][2];
+        new SufficientStatistics(fiducialSet).getResidualScatter(point[2], point[0], point[1], covariance);
+        for(int a = 0; a < 2; a++) {
+            for(int b = 0; b < 2; b++) {
+                covariance[a][b] /= fiducialSet.getN();
+            }
+        }
+        return covariance;
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general;
+
+/**
+ * Sums over the fiducial points of the residuals r = y - Rz - t and of their derivative d = dr/dtheta,
+ * for a given (tx, ty, theta).
+ */
+public class ResidualSums {
+    private int n;
+    private double[] residual = new double[2];
+    private double[][] residualScatter = new double[2][2];
+    private double[][] residualDerivativeCross = new double[2][2];
+    private double[] derivative = new double[2];
+    private double[][] derivativeScatter = new double[2][2];
+
+    public void clear() {
+        n = 0;
+        for(int a = 0; a < 2; a++) {
+            residual[a] = 0;
+            derivative[a] = 0;
+            for(int b = 0; b < 2; b++) {
+                residualScatter[a][b] = 0;
+                residualDerivativeCross[a][b] = 0;
+                derivativeScatter[a][b] = 0;
+            }
+        }
+    }
+
+    public void add(double r1, double r2, double d1, double d2) {
+        n++;
+        residual[0] += r1;
+        residual[1] += r2;
+        residualScatter[0][0] += r1 * r1;
+        residualScatter[0][1] += r1 * r2;
+        residualScatter[1][1] += r2 * r2;
+        residualDerivativeCross[0][0] += r1 * d1;
+        residualDerivativeCross[0][1] += r1 * d2;
+        residualDerivativeCross[1][0] += r2 * d1;
+        residualDerivativeCross[1][1] += r2 * d2;
+        derivative[0] += d1;
+        derivative[1] += d2;
+        derivativeScatter[0][0] += d1 * d1;
+        derivativeScatter[0][1] += d1 * d2;
+        derivativeScatter[1][1] += d2 * d2;
+        residualScatter[1][0] = residualScatter[0][1];
+        derivativeScatter[1][0] = derivativeScatter[0][1];
+    }
+
+    public void add(ResidualSums other) {
+        n += other.n;
+        for(int a = 0; a < 2; a++) {
+            residual[a] += other.residual[a];
+            derivative[a] += other.derivative[a];
+            for(int b = 0; b < 2; b++) {
+                residualScatter[a][b] += other.residualScatter[a][b];
+                residualDerivativeCross[a][b] += other.residualDerivativeCross[a][b];
+                derivativeScatter[a][b] += other.derivativeScatter[a][b];
+            }
+        }
+    }
+
+    public int getN() {
+        return n;
+    }
+
+    public void setN(int n) {
+        this.n = n;
+    }
+
+    /**
+     * Σ r
+     */
+    public double[] getResidual() {
+        return residual;
+    }
+
+    /**
+     * Σ r rᵀ
+     */
+    public double[][] getResidualScatter() {
+        return residualScatter;
+    }
+
+    /**
+     * Σ r dᵀ
+     */
+    public double[][] getResidualDerivativeCross() {
+        return residualDerivativeCross;
+    }
+
+    /**
+     * Σ d
+     */
+    public double[] getDerivative() {
+        return derivative;
+    }
+
+    /**
+     * Σ d dᵀ
+     */
+    public double[][] getDerivativeScatter() {
+        return derivativeScatter;
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general;
+
+import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
+
+/**
+ * Moment sums of a 2D fiducial set (y : target, z : source).
+ * The rigid 2D gaussian likelihood only depends on the data through these sums.
+ */
+public class SufficientStatistics {
+
+    private int n;
+    private double[] sy = new double[2];
+    private double[] sz = new double[2];
+    private double[][] syy = new double[2][2];
+    private double[][] szz = new double[2][2];
+    private double[][] syz = new double[2][2];
+
+    public SufficientStatistics(FiducialSet fiducialSet) {
+        n = fiducialSet.getN();
+        double[][] target = fiducialSet.getTargetDataset().getMatrix().getArray();
+        double[][] source = fiducialSet.getSourceDataset().getMatrix().getArray();
+        for(int i = 0; i < n; i++) {
+            double[] y = target[i];
+            double[] z = source[i];
+            for(int a = 0; a < 2; a++) {
+                sy[a] += y[a];
+                sz[a] += z[a];
+                for(int b = 0; b < 2; b++) {
+                    syy[a][b] += y[a] * y[b];
+                    szz[a][b] += z[a] * z[b];
+                    syz[a][b] += y[a] * z[b];
+                }
+            }
+        }
+    }
+
+    public int getN() {
+        return n;
+    }
+
+    public double[] getSy() {
+        return sy;
+    }
+
+    public double[] getSz() {
+        return sz;
+    }
+
+    public double[][] getSyy() {
+        return syy;
+    }
+
+    public double[][] getSzz() {
+        return szz;
+    }
+
+    public double[][] getSyz() {
+        return syz;
+    }
+
+    /**
+     * Residuals sum Σ (y - Rz - t).
+     */
+    public void getResidualSum(double theta, double tx, double ty, double[] result) {
+        double c = Math.cos(theta);
+        double s = Math.sin(theta);
+        result[0] = sy[0] - c * sz[0] + s * sz[1] - n * tx;
+        result[1] = sy[1] - s * sz[0] - c * sz[1] - n * ty;
+    }
+
+    /**
+     * Residuals scatter matrix Σ (y - Rz - t)(y - Rz - t)ᵀ.
+     */
+    public void getResidualScatter(double theta, double tx, double ty, double[][] result) {
+        double c = Math.cos(theta);
+        double s = Math.sin(theta);
+        double[][] r = {
+            { c, -s },
+            { s, c }
+        };
+        double[] su = {
+            sy[0] - c * sz[0] + s * sz[1],
+            sy[1] - s * sz[0] - c * sz[1]
+        };
+        double[] t = { tx, ty };
+        for(int a = 0; a < 2; a++) {
+            for(int b = 0; b < 2; b++) {
+                double value = syy[a][b];
+                for(int k = 0; k < 2; k++) {
+                    value -= syz[a][k] * r[b][k] + r[a][k] * syz[b][k];
+                    for(int l = 0; l < 2; l++) {
+                        value += r[a][k] * szz[k][l] * r[b][l];
+                    }
+                }
+                result[a][b] = value - su[a] * t[b] - t[a] * su[b] + n * t[a] * t[b];
+            }
+        }
+    }
+
+    /**
+     * Σ (y - Rz - t) (Mz)ᵀ for a given 2x2 matrix M.
+     */
+    public void getResidualCrossProduct(double theta, double tx, double ty, double[][] m, double[][] result) {
+        double c = Math.cos(theta);
+        double s = Math.sin(theta);
+        double[][] r = {
+            { c, -s },
+            { s, c }
+        };
+        double[] t = { tx, ty };
+        for(int a = 0; a < 2; a++) {
+            for(int b = 0; b < 2; b++) {
+                double value = 0;
+                double smz = 0;
+                for(int k = 0; k < 2; k++) {
+                    value += syz[a][k] * m[b][k];
+                    smz += m[b][k] * sz[k];
+                    for(int l = 0; l < 2; l++) {
+                        value -= r[a][k] * szz[k][l] * m[b][l];
+                    }
+                }
+                result[a][b] = value - t[a] * smz;
+            }
+        }
+    }
+
+    /**
+     * Residual sums at (tx, ty, theta), in constant time.
+     */
+    public void getResidualSums(double theta, double tx, double ty, ResidualSums result) {
+        double[][] p = {
+            { Math.sin(theta), Math.cos(theta) },
+            { -Math.cos(theta), Math.sin(theta) }
+        };
+        result.setN(n);
+        getResidualSum(theta, tx, ty, result.getResidual());
+        getResidualScatter(theta, tx, ty, result.getResidualScatter());
+        getResidualCrossProduct(theta, tx, ty, p, result.getResidualDerivativeCross());
+        double[] derivative = result.getDerivative();
+        double[][] derivativeScatter = result.getDerivativeScatter();
+        for(int a = 0; a < 2; a++) {
+            derivative[a] = p[a][0] * sz[0] + p[a][1] * sz[1];
+            for(int b = 0; b < 2; b++) {
+                double value = 0;
+                for(int k = 0; k < 2; k++) {
+                    for(int l = 0; l < 2; l++) {
+                        value += p[a][k] * szz[k][l] * p[b][l];
+                    }
+                }
+                derivativeScatter[a][b] = value;
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general;
+
+import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
+
+/**
+ * Same objective as {@link BaseOptimProblem}, evaluated from the moment sums of the fiducial set.
+ * Objective, gradient and hessian evaluations do not depend on the number of points.
+ */
+public class SufficientStatisticsOptimProblem extends AbstractRigid2DOptimProblem {
+
+    private SufficientStatistics statistics;
+
+    public SufficientStatisticsOptimProblem(FiducialSet fiducialSet) {
+        this(new SufficientStatistics(fiducialSet));
+    }
+
+    public SufficientStatisticsOptimProblem(SufficientStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    @Override
+    protected void computeResidualSums(double[] point, ResidualSums sums) {
+        statistics.getResidualSums(point[2], point[0], point[1], sums);
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.autodiff;
+
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.ObjectiveEvaluation;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.OptimProblem;
+
+import java.util.Arrays;
+
+/**
+ * Unconstrained optim problem for which only the objective is written, on a {@link HyperDualWorkspace}.
+ * Gradient and packed hessian are exact, obtained by forward mode differentiation.
+ * Not thread safe : the workspace is reused between evaluations.
+ */
+public abstract class AutoDiffOptimProblem implements OptimProblem {
+
+    private int nParameters;
+    private HyperDualWorkspace workspace;
+    private int[] parameters;
+    private ObjectiveEvaluation evaluation;
+    private double[] startingPoint;
+
+    public AutoDiffOptimProblem(int nParameters, int workspaceCapacity) {
+        this.nParameters = nParameters;
+        workspace = new HyperDualWorkspace(nParameters, workspaceCapacity);
+        parameters = new int[nParameters];
+    }
+
+    /**
+     * Objective at the given parameter slots, returns the slot holding the result.
+     */
+    protected abstract int objective(HyperDualWorkspace workspace, int[] parameters);
+
+    public int getNParameters() {
+        return nParameters;
+    }
+
+    public int getNConstraints() {
+        return 0;
+    }
+
+    public int getNonZeroElementsInConstraintJacobian() {
+        return 0;
+    }
+
+    public int getNonZeroElementsInParametersHessian() {
+        return nParameters * (nParameters + 1) / 2;
+    }
+
+    public void setStartingPoint(double[] startingPoint) {
+        this.startingPoint = startingPoint;
+    }
+
+    public double[] getStartingPoint() {
+        if(startingPoint != null) {
+            return startingPoint.clone();
+        }
+        return getDefaultStartingPoint();
+    }
+
+    protected double[] getDefaultStartingPoint() {
+        throw new IllegalStateException("No starting point");
+    }
+
+    public double getObjectiveValue(double[] point) {
+        evaluate(point, false, false, getEvaluation());
+        return evaluation.getValue();
+    }
+
+    public double[] getObjectiveGradient(double[] point) {
+        evaluate(point, true, false, getEvaluation());
+        return evaluation.getGradient();
+    }
+
+    public double[] getObjectiveHessian(double[] point) {
+        evaluate(point, false, true, getEvaluation());
+        return evaluation.getHessian();
+    }
+
+    private ObjectiveEvaluation getEvaluation() {
+        if(evaluation == null) {
+            evaluation = new ObjectiveEvaluation(this);
+        }
+        return evaluation;
+    }
+
+    @Override
+    public void evaluate(double[] point, boolean wantGradient, boolean wantHessian, ObjectiveEvaluation out) {
+        workspace.reset(wantHessian ? HyperDualWorkspace.HESSIAN : wantGradient ? HyperDualWorkspace.GRADIENT : HyperDualWorkspace.VALUE);
+        for(int i = 0; i < nParameters; i++) {
+            parameters[i] = workspace.variable(i, point[i]);
+        }
+        int result = objective(workspace, parameters);
+        out.setValue(workspace.value(result));
+        if(wantGradient) {
+            workspace.copyGradient(result, out.getGradient());
+        }
+        if(wantHessian) {
+            workspace.copyHessian(result, out.getHessian());
+        }
+    }
+
+    public double[] getConstraints(double[] point) {
+        return new double[0];
+    }
+
+    public double[] getConstraintsJacobian(double[] point) {
+        return new double[0];
+    }
+
+    public double[][] getConstraintsHessian(double[] point) {
+        return new double[0][0];
+    }
+
+    public double[] getParametersLowerBounds() {
+        double[] bounds = new double[nParameters];
+        Arrays.fill(bounds, -Double.MAX_VALUE);
+        return bounds;
+    }
+
+    public double[] getParametersUpperBounds() {
+        double[] bounds = new double[nParameters];
+        Arrays.fill(bounds, Double.MAX_VALUE);
+        return bounds;
+    }
+
+    public double[] getConstraintsLowerBounds() {
+        return new double[0];
+    }
+
+    public double[] getConstraintsUpperBounds() {
+        return new double[0];
+    }
+
+    public void close() {}
+}
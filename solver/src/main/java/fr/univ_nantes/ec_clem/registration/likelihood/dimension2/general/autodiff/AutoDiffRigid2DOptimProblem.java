@@ -0,0 +1,83 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.autodiff;
+
+import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
+
+import java.util.SplittableRandom;
+
+import static java.lang.Math.*;
+
+/**
+ * Rigid 2D gaussian likelihood, parameters are (tx, ty, theta, v11, v12, v21, v22) with Λ = VᵀV,
+ * differentiated by {@link HyperDualWorkspace}. Same objective as
+ * {@link fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.BaseOptimProblem}.
+ */
+public class AutoDiffRigid2DOptimProblem extends AutoDiffOptimProblem {
+
+    private static final int WORKSPACE_CAPACITY = 64;
+
+    private SplittableRandom random = new SplittableRandom();
+    private int n;
+    private double[][] target;
+    private double[][] source;
+
+    public AutoDiffRigid2DOptimProblem(FiducialSet fiducialSet) {
+        super(7, WORKSPACE_CAPACITY);
+        n = fiducialSet.getN();
+        target = fiducialSet.getTargetDataset().getMatrix().getArray();
+        source = fiducialSet.getSourceDataset().getMatrix().getArray();
+    }
+
+    @Override
+    protected double[] getDefaultStartingPoint() {
+        return new double[] {
+            random.nextInt(100),
+            random.nextInt(100),
+            random.nextInt(100),
+            random.nextInt(100) + 1,
+            0,
+            0,
+            random.nextInt(100) + 1
+        };
+    }
+
+    @Override
+    protected int objective(HyperDualWorkspace w, int[] x) {
+        int tx = x[0];
+        int ty = x[1];
+        int c = w.cos(x[2]);
+        int s = w.sin(x[2]);
+        int v11 = x[3];
+        int v12 = x[4];
+        int v21 = x[5];
+        int v22 = x[6];
+        int sum = w.constant(0);
+        int mark = w.mark();
+        for(int i = 0; i < n; i++) {
+            double[] y = target[i];
+            double[] z = source[i];
+            // r = y - Rz - t, rᵀΛr = |Vr|²
+            int r1 = w.addConstant(w.subtract(w.add(w.scale(c, -z[0]), w.scale(s, z[1])), tx), y[0]);
+            int r2 = w.addConstant(w.subtract(w.add(w.scale(s, -z[0]), w.scale(c, -z[1])), ty), y[1]);
+            int u1 = w.add(w.multiply(v11, r1), w.multiply(v12, r2));
+            int u2 = w.add(w.multiply(v21, r1), w.multiply(v22, r2));
+            w.addTo(sum, w.square(u1));
+            w.addTo(sum, w.square(u2));
+            w.release(mark);
+        }
+        int detV = w.subtract(w.multiply(v11, v22), w.multiply(v21, v12));
+        int logLikelihood = w.addConstant(w.scale(w.log(detV), n), -n * log(2d * PI));
+        return w.add(w.scale(logLikelihood, -1), w.scale(sum, 0.5));
+    }
+}
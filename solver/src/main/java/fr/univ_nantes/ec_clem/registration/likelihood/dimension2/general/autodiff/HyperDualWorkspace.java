@@ -0,0 +1,281 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.autodiff;
+
+import static java.lang.Math.*;
+
+/**
+ * Forward mode automatic differentiation up to the second order (hyper-dual numbers) over primitive arrays.
+ *
+ * Each intermediate quantity lives in a slot holding its value, its gradient and its packed lower triangular
+ * hessian (row major, same layout as {@link fr.univ_nantes.ec_clem.registration.likelihood.dimension2.IpoptSolver}).
+ * Operations take slot indices and return the index of a new slot. Slots are allocated on a stack: take a mark
+ * before a loop body and release it afterwards, so that nothing is allocated during an evaluation.
+ */
+public class HyperDualWorkspace {
+
+    public static final int VALUE = 0;
+    public static final int GRADIENT = 1;
+    public static final int HESSIAN = 2;
+
+    private int n;
+    private int hessianSize;
+    private int stride;
+    private int capacity;
+    private double[] data;
+    private int top;
+    private int order = HESSIAN;
+
+    public HyperDualWorkspace(int nParameters, int capacity) {
+        n = nParameters;
+        hessianSize = n * (n + 1) / 2;
+        stride = 1 + n + hessianSize;
+        this.capacity = capacity;
+        data = new double[stride * capacity];
+    }
+
+    /**
+     * Releases every slot. Derivatives above the given order (VALUE, GRADIENT or HESSIAN) are not propagated.
+     */
+    public void reset(int order) {
+        this.order = order;
+        top = 0;
+    }
+
+    public int mark() {
+        return top;
+    }
+
+    /**
+     * Releases every slot allocated since mark, the slots before stay valid.
+     */
+    public void release(int mark) {
+        top = mark;
+    }
+
+    public int getNParameters() {
+        return n;
+    }
+
+    public double value(int slot) {
+        return data[slot * stride];
+    }
+
+    public void copyGradient(int slot, double[] result) {
+        System.arraycopy(data, slot * stride + 1, result, 0, n);
+    }
+
+    public void copyHessian(int slot, double[] result) {
+        System.arraycopy(data, slot * stride + 1 + n, result, 0, hessianSize);
+    }
+
+    public int constant(double value) {
+        int slot = allocate();
+        data[slot * stride] = value;
+        return slot;
+    }
+
+    /**
+     * Independent variable x_index.
+     */
+    public int variable(int index, double value) {
+        int slot = constant(value);
+        data[slot * stride + 1 + index] = 1;
+        return slot;
+    }
+
+    public int add(int a, int b) {
+        int slot = allocate();
+        int length = length();
+        int offset = slot * stride;
+        int offsetA = a * stride;
+        int offsetB = b * stride;
+        for(int i = 0; i < length; i++) {
+            data[offset + i] = data[offsetA + i] + data[offsetB + i];
+        }
+        return slot;
+    }
+
+    public int subtract(int a, int b) {
+        int slot = allocate();
+        int length = length();
+        int offset = slot * stride;
+        int offsetA = a * stride;
+        int offsetB = b * stride;
+        for(int i = 0; i < length; i++) {
+            data[offset + i] = data[offsetA + i] - data[offsetB + i];
+        }
+        return slot;
+    }
+
+    /**
+     * In place accumulation, a += b. Used to sum over points without allocating a slot per term.
+     */
+    public void addTo(int a, int b) {
+        int length = length();
+        int offsetA = a * stride;
+        int offsetB = b * stride;
+        for(int i = 0; i < length; i++) {
+            data[offsetA + i] += data[offsetB + i];
+        }
+    }
+
+    public int addConstant(int a, double constant) {
+        int slot = scale(a, 1);
+        data[slot * stride] += constant;
+        return slot;
+    }
+
+    public int scale(int a, double factor) {
+        int slot = allocate();
+        int length = length();
+        int offset = slot * stride;
+        int offsetA = a * stride;
+        for(int i = 0; i < length; i++) {
+            data[offset + i] = factor * data[offsetA + i];
+        }
+        return slot;
+    }
+
+    public int negate(int a) {
+        return scale(a, -1);
+    }
+
+    public int multiply(int a, int b) {
+        int slot = allocate();
+        int offset = slot * stride;
+        int offsetA = a * stride;
+        int offsetB = b * stride;
+        double valueA = data[offsetA];
+        double valueB = data[offsetB];
+        data[offset] = valueA * valueB;
+        if(order >= GRADIENT) {
+            for(int i = 1; i <= n; i++) {
+                data[offset + i] = valueA * data[offsetB + i] + valueB * data[offsetA + i];
+            }
+        }
+        if(order >= HESSIAN) {
+            int h = offset + 1 + n;
+            int hA = offsetA + 1 + n;
+            int hB = offsetB + 1 + n;
+            for(int i = 0; i < n; i++) {
+                double gradientAi = data[offsetA + 1 + i];
+                double gradientBi = data[offsetB + 1 + i];
+                for(int j = 0; j <= i; j++) {
+                    data[h] = valueA * data[hB] + valueB * data[hA]
+                        + gradientAi * data[offsetB + 1 + j] + gradientBi * data[offsetA + 1 + j];
+                    h++;
+                    hA++;
+                    hB++;
+                }
+            }
+        }
+        return slot;
+    }
+
+    public int square(int a) {
+        return apply(a, pow(value(a), 2), 2d * value(a), 2d);
+    }
+
+    public int divide(int a, int b) {
+        int mark = mark();
+        int inverse = reciprocal(b);
+        int result = multiply(a, inverse);
+        return move(result, mark);
+    }
+
+    public int reciprocal(int a) {
+        double value = value(a);
+        return apply(a, 1d / value, -1d / (value * value), 2d / (value * value * value));
+    }
+
+    public int sin(int a) {
+        double value = value(a);
+        return apply(a, Math.sin(value), Math.cos(value), -Math.sin(value));
+    }
+
+    public int cos(int a) {
+        double value = value(a);
+        return apply(a, Math.cos(value), -Math.sin(value), -Math.cos(value));
+    }
+
+    public int log(int a) {
+        double value = value(a);
+        return apply(a, Math.log(value), 1d / value, -1d / (value * value));
+    }
+
+    public int exp(int a) {
+        double value = Math.exp(value(a));
+        return apply(a, value, value, value);
+    }
+
+    public int sqrt(int a) {
+        double value = Math.sqrt(value(a));
+        return apply(a, value, 0.5 / value, -0.25 / (value * value * value));
+    }
+
+    /**
+     * g(a) given g, g' and g'' at the value of a : ∇g = g' ∇a, H g = g' H a + g'' ∇a ∇aᵀ.
+     */
+    public int apply(int a, double value, double firstDerivative, double secondDerivative) {
+        int slot = allocate();
+        int offset = slot * stride;
+        int offsetA = a * stride;
+        data[offset] = value;
+        if(order >= GRADIENT) {
+            for(int i = 1; i <= n; i++) {
+                data[offset + i] = firstDerivative * data[offsetA + i];
+            }
+        }
+        if(order >= HESSIAN) {
+            int h = offset + 1 + n;
+            int hA = offsetA + 1 + n;
+            for(int i = 0; i < n; i++) {
+                double gradientAi = data[offsetA + 1 + i];
+                for(int j = 0; j <= i; j++) {
+                    data[h] = firstDerivative * data[hA] + secondDerivative * gradientAi * data[offsetA + 1 + j];
+                    h++;
+                    hA++;
+                }
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * Copies slot into a new slot allocated at mark, releasing everything above it.
+     */
+    public int move(int slot, int mark) {
+        if(slot != mark) {
+            System.arraycopy(data, slot * stride, data, mark * stride, length());
+        }
+        top = mark + 1;
+        return mark;
+    }
+
+    private int length() {
+        return order >= HESSIAN ? stride : order >= GRADIENT ? 1 + n : 1;
+    }
+
+    private int allocate() {
+        if(top >= capacity) {
+            throw new IllegalStateException(String.format("Hyper-dual workspace capacity exceeded (%d slots)", capacity));
+        }
+        int offset = top * stride;
+        int length = length();
+        for(int i = 0; i < length; i++) {
+            data[offset + i] = 0;
+        }
+        return top++;
+    }
+}
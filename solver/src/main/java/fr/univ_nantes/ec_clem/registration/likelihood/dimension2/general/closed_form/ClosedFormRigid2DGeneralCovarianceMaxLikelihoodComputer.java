@@ -0,0 +1,58 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.closed_form;
+
+import Jama.EigenvalueDecomposition;
+import Jama.Matrix;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.OptimizationResult;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.Rigid2DCovarianceMaxLikelihoodComputer;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.BaseCovarianceOptimProblem;
+import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
+import plugins.fr.univ_nantes.ec_clem.matrix.MatrixUtil;
+import plugins.fr.univ_nantes.ec_clem.transformation.Transformation;
+
+import javax.inject.Inject;
+
+import static java.lang.Math.sqrt;
+
+/**
+ * Unconstrained gaussian MLE for a fixed transformation : Λ⁻¹ = S / N.
+ * V is the symmetric square root of Λ, so that VᵀV = VVᵀ = Λ.
+ */
+public class ClosedFormRigid2DGeneralCovarianceMaxLikelihoodComputer extends Rigid2DCovarianceMaxLikelihoodComputer {
+
+    @Inject
+    public ClosedFormRigid2DGeneralCovarianceMaxLikelihoodComputer(MatrixUtil matrixUtil) {
+        super(matrixUtil);
+    }
+
+    @Override
+    protected OptimizationResult optimize(FiducialSet fiducialSet, Transformation transformation) {
+        BaseCovarianceOptimProblem optimProblem = new BaseCovarianceOptimProblem(fiducialSet, transformation);
+        Matrix covariance = new Matrix(optimProblem.getScatter()).times(1d / fiducialSet.getN());
+        EigenvalueDecomposition eigenvalueDecomposition = covariance.eig();
+        Matrix eigenvectors = eigenvalueDecomposition.getV();
+        double[] eigenvalues = eigenvalueDecomposition.getRealEigenvalues();
+        Matrix inverseSquareRoot = new Matrix(eigenvalues.length, eigenvalues.length);
+        for(int i = 0; i < eigenvalues.length; i++) {
+            inverseSquareRoot.set(i, i, 1d / sqrt(eigenvalues[i]));
+        }
+        double[] parameters = eigenvectors.times(inverseSquareRoot).times(eigenvectors.transpose()).getRowPackedCopy();
+        OptimizationResult result = new OptimizationResult(
+            parameters,
+            optimProblem.getObjectiveValue(parameters)
+        );
+        optimProblem.close();
+        return result;
+    }
+}
@@ -25,20 +25,28 @@ import org.apache.commons.math3.optim.nonlinear.scalar.ObjectiveFunctionGradient
 import org.apache.commons.math3.optim.nonlinear.scalar.gradient.NonLinearConjugateGradientOptimizer;
 import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
 import plugins.fr.univ_nantes.ec_clem.matrix.MatrixUtil;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.EvaluationScheduler;
 import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.OptimizationResult;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.ProcrustesStartingPointFactory;
 
 import javax.inject.Inject;
 
 public class ConjugateGradientRigid2DGeneralMaxLikelihoodComputer extends Rigid2DMaxLikelihoodComputer {
 
+    private EvaluationScheduler evaluationScheduler;
+    private ProcrustesStartingPointFactory procrustesStartingPointFactory;
+
     @Inject
-    public ConjugateGradientRigid2DGeneralMaxLikelihoodComputer(MatrixUtil matrixUtil) {
+    public ConjugateGradientRigid2DGeneralMaxLikelihoodComputer(MatrixUtil matrixUtil, EvaluationScheduler evaluationScheduler, ProcrustesStartingPointFactory procrustesStartingPointFactory) {
         super(matrixUtil);
+        this.evaluationScheduler = evaluationScheduler;
+        this.procrustesStartingPointFactory = procrustesStartingPointFactory;
     }
 
     @Override
     protected OptimizationResult optimize(FiducialSet fiducialSet) {
-        BaseOptimProblem optimProblem = new BaseOptimProblem(fiducialSet);
+        BaseOptimProblem optimProblem = new BaseOptimProblem(fiducialSet, evaluationScheduler);
+        optimProblem.setStartingPoint(procrustesStartingPointFactory.getGeneralStartingPoint(fiducialSet));
         PointValuePair optimize = optimize(optimProblem);
         optimProblem.close();
         return new OptimizationResult(
@@ -53,14 +61,15 @@ public class ConjugateGradientRigid2DGeneralMaxLikelihoodComputer extends Rigid2
                 NonLinearConjugateGradientOptimizer.Formula.FLETCHER_REEVES,
                 new SimpleValueChecker(1e-20, 1e-20, 1000)
             ),
-            10,
+            1,
             optimProblem::getStartingPoint
         ).optimize(
             GoalType.MINIMIZE,
             new ObjectiveFunction(
                 optimProblem::getObjectiveValue
             ),
-            new ObjectiveFunctionGradient(optimProblem::getObjectiveGradient),
+            // the optimizer negates and keeps the gradient it is given
+            new ObjectiveFunctionGradient(point -> optimProblem.getObjectiveGradient(point).clone()),
             new InitialGuess(optimProblem.getStartingPoint()),
             MaxEval.unlimited()
         );
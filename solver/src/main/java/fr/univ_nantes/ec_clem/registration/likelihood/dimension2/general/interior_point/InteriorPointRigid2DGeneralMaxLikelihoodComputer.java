@@ -6,20 +6,25 @@ import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
 import plugins.fr.univ_nantes.ec_clem.matrix.MatrixUtil;
 import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.IpoptSolver;
 import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.OptimizationResult;
-import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.BaseOptimProblem;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.SufficientStatisticsOptimProblem;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.ProcrustesStartingPointFactory;
 
 import javax.inject.Inject;
 
 public class InteriorPointRigid2DGeneralMaxLikelihoodComputer extends Rigid2DMaxLikelihoodComputer {
 
+    private ProcrustesStartingPointFactory procrustesStartingPointFactory;
+
     @Inject
-    public InteriorPointRigid2DGeneralMaxLikelihoodComputer(MatrixUtil matrixUtil) {
+    public InteriorPointRigid2DGeneralMaxLikelihoodComputer(MatrixUtil matrixUtil, ProcrustesStartingPointFactory procrustesStartingPointFactory) {
         super(matrixUtil);
+        this.procrustesStartingPointFactory = procrustesStartingPointFactory;
     }
 
     @Override
     protected OptimizationResult optimize(FiducialSet fiducialSet) {
-        BaseOptimProblem optimProblem = new BaseOptimProblem(fiducialSet);
+        SufficientStatisticsOptimProblem optimProblem = new SufficientStatisticsOptimProblem(fiducialSet);
+        optimProblem.setStartingPoint(procrustesStartingPointFactory.getGeneralStartingPoint(fiducialSet));
         Ipopt ipopt = new IpoptSolver(optimProblem);
         ipopt.OptimizeNLP();
         optimProblem.close();
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.profile;
+
+import Jama.CholeskyDecomposition;
+import Jama.Matrix;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.OptimizationResult;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.Rigid2DMaxLikelihoodComputer;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.SufficientStatistics;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.SufficientStatisticsOptimProblem;
+import org.apache.commons.math3.optim.MaxEval;
+import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
+import org.apache.commons.math3.optim.univariate.BrentOptimizer;
+import org.apache.commons.math3.optim.univariate.SearchInterval;
+import org.apache.commons.math3.optim.univariate.UnivariateObjectiveFunction;
+import org.apache.commons.math3.optim.univariate.UnivariatePointValuePair;
+import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
+import plugins.fr.univ_nantes.ec_clem.matrix.MatrixUtil;
+
+import javax.inject.Inject;
+
+import static java.lang.Math.*;
+
+/**
+ * For a fixed theta, the maximum likelihood translation is the centroid difference and Λ is N times the inverse
+ * of the residual scatter S(theta). The concentrated negative log likelihood is then, up to constants,
+ * N/2 log det S(theta), which is minimized over theta alone.
+ */
+public class ProfiledRigid2DGeneralMaxLikelihoodComputer extends Rigid2DMaxLikelihoodComputer {
+
+    private static final int GRID_SIZE = 36;
+
+    @Inject
+    public ProfiledRigid2DGeneralMaxLikelihoodComputer(MatrixUtil matrixUtil) {
+        super(matrixUtil);
+    }
+
+    @Override
+    protected OptimizationResult optimize(FiducialSet fiducialSet) {
+        SufficientStatistics statistics = new SufficientStatistics(fiducialSet);
+        double theta = minimizeProfile(statistics);
+        double[] translation = getTranslation(statistics, theta);
+        double[][] scatter = new double[2][2];
+        statistics.getResidualScatter(theta, translation[0], translation[1], scatter);
+        Matrix lambda = new Matrix(scatter).inverse().times(statistics.getN());
+        Matrix v = new CholeskyDecomposition(lambda).getL().transpose();
+        double[] parameters = new double[] {
+            translation[0],
+            translation[1],
+            theta,
+            v.get(0, 0),
+            v.get(0, 1),
+            v.get(1, 0),
+            v.get(1, 1)
+        };
+        return new OptimizationResult(
+            parameters,
+            new SufficientStatisticsOptimProblem(statistics).getObjectiveValue(parameters)
+        );
+    }
+
+    private double minimizeProfile(SufficientStatistics statistics) {
+        double step = 2d * PI / GRID_SIZE;
+        double start = -PI;
+        double best = Double.POSITIVE_INFINITY;
+        for(int k = 0; k < GRID_SIZE; k++) {
+            double theta = -PI + k * step;
+            double value = getLogDetResidualScatter(statistics, theta);
+            if(value < best) {
+                best = value;
+                start = theta;
+            }
+        }
+        UnivariatePointValuePair optimum = new BrentOptimizer(1e-12, 1e-14).optimize(
+            new MaxEval(200),
+            new UnivariateObjectiveFunction(theta -> getLogDetResidualScatter(statistics, theta)),
+            GoalType.MINIMIZE,
+            new SearchInterval(start - step, start + step, start)
+        );
+        return optimum.getValue() < best ? optimum.getPoint() : start;
+    }
+
+    private double getLogDetResidualScatter(SufficientStatistics statistics, double theta) {
+        double[] translation = getTranslation(statistics, theta);
+        double[][] scatter = new double[2][2];
+        statistics.getResidualScatter(theta, translation[0], translation[1], scatter);
+        return log(scatter[0][0] * scatter[1][1] - scatter[0][1] * scatter[1][0]);
+    }
+
+    private double[] getTranslation(SufficientStatistics statistics, double theta) {
+        double[] translation = new double[2];
+        statistics.getResidualSum(theta, 0, 0, translation);
+        translation[0] /= statistics.getN();
+        translation[1] /= statistics.getN();
+        return translation;
+    }
+}
@@ -24,21 +24,29 @@ import org.apache.commons.math3.optim.nonlinear.scalar.noderiv.MultiDirectionalS
 import org.apache.commons.math3.optim.nonlinear.scalar.noderiv.SimplexOptimizer;
 import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
 import plugins.fr.univ_nantes.ec_clem.matrix.MatrixUtil;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.EvaluationScheduler;
 import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.OptimizationResult;
 import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.BaseOptimProblem;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.ProcrustesStartingPointFactory;
 
 import javax.inject.Inject;
 
 public class SimplexRigid2DGeneralMaxLikelihoodComputer extends Rigid2DMaxLikelihoodComputer {
 
+    private EvaluationScheduler evaluationScheduler;
+    private ProcrustesStartingPointFactory procrustesStartingPointFactory;
+
     @Inject
-    public SimplexRigid2DGeneralMaxLikelihoodComputer(MatrixUtil matrixUtil) {
+    public SimplexRigid2DGeneralMaxLikelihoodComputer(MatrixUtil matrixUtil, EvaluationScheduler evaluationScheduler, ProcrustesStartingPointFactory procrustesStartingPointFactory) {
         super(matrixUtil);
+        this.evaluationScheduler = evaluationScheduler;
+        this.procrustesStartingPointFactory = procrustesStartingPointFactory;
     }
 
     @Override
     protected OptimizationResult optimize(FiducialSet fiducialSet) {
-        BaseOptimProblem optimProblem = new BaseOptimProblem(fiducialSet);
+        BaseOptimProblem optimProblem = new BaseOptimProblem(fiducialSet, evaluationScheduler);
+        optimProblem.setStartingPoint(procrustesStartingPointFactory.getGeneralStartingPoint(fiducialSet));
         PointValuePair optimize = optimize(optimProblem);
         optimProblem.close();
         return new OptimizationResult(
@@ -12,18 +12,33 @@
  **/
 package fr.univ_nantes.ec_clem.registration.likelihood.dimension2.isotropic;
 
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.EvaluationScheduler;
 import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.BaseOptimProblem;
-import org.apache.commons.lang.ArrayUtils;
 import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
 
 import static java.lang.Math.pow;
 
+/**
+ * Rigid 2D likelihood with Λ = VᵀV constrained to a multiple of the identity. Constraint values and jacobian are
+ * written in buffers owned by the problem, the constraint hessians do not depend on the point and are built once.
+ */
 public class ConstrainedOptimProblem extends BaseOptimProblem {
 
+    private double[] constraints = new double[2];
+    private double[] constraintsJacobian = new double[14];
+    private double[][] constraintsHessian = new double[][] {
+        { 0, 0, 0, 0, 0, 0, 0, 0, 0, 2d, 0, 0, 0, 0, -2d, 0, 0, 0, 0, 0, 2d, 0, 0, 0, 0, 0, 0, -2d },
+        { 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0 }
+    };
+
     public ConstrainedOptimProblem(FiducialSet fiducialSet) {
         super(fiducialSet);
     }
 
+    public ConstrainedOptimProblem(FiducialSet fiducialSet, EvaluationScheduler evaluationScheduler) {
+        super(fiducialSet, evaluationScheduler);
+    }
+
     public int getNConstraints() {
         return 2;
     }
@@ -45,71 +60,35 @@ public class ConstrainedOptimProblem extends BaseOptimProblem {
     }
 
     public double[] getConstraints(double[] point) {
-        return new double[] {
-            getConstraint0(point),
-            getConstraint1(point)
-        };
-    }
-
-    private double getConstraint0(double[] point) {
-        double v11 = point[3];
-        double v12 = point[4];
-        double v21 = point[5];
-        double v22 = point[6];
-        return pow(v11, 2) + pow(v21, 2) - pow(v12, 2) - pow(v22, 2);
-    }
-
-    private double getConstraint1(double[] point) {
         double v11 = point[3];
         double v12 = point[4];
         double v21 = point[5];
         double v22 = point[6];
-        return v11 * v12 + v22 * v21;
+        constraints[0] = pow(v11, 2) + pow(v21, 2) - pow(v12, 2) - pow(v22, 2);
+        constraints[1] = v11 * v12 + v22 * v21;
+        return constraints;
     }
 
+    /**
+     * Gradients of both constraints, one after the other. Only the V entries are non zero.
+     */
     public double[] getConstraintsJacobian(double[] point) {
-        return ArrayUtils.addAll(
-            getConstraint0Gradient(point),
-            getConstraint1Gradient(point)
-        );
-    }
-
-    private double[] getConstraint0Gradient(double[] point) {
         double v11 = point[3];
         double v12 = point[4];
         double v21 = point[5];
         double v22 = point[6];
-        return new double[] {
-            0, 0, 0, 2d * v11, -2d * v12, 2d * v21, -2d * v22
-        };
-    }
-
-    private double[] getConstraint1Gradient(double[] point) {
-        double v11 = point[3];
-        double v12 = point[4];
-        double v21 = point[5];
-        double v22 = point[6];
-        return new double[] {
-            0, 0, 0, v12, v11, v22, v21
-        };
+        constraintsJacobian[3] = 2d * v11;
+        constraintsJacobian[4] = -2d * v12;
+        constraintsJacobian[5] = 2d * v21;
+        constraintsJacobian[6] = -2d * v22;
+        constraintsJacobian[10] = v12;
+        constraintsJacobian[11] = v11;
+        constraintsJacobian[12] = v22;
+        constraintsJacobian[13] = v21;
+        return constraintsJacobian;
     }
 
     public double[][] getConstraintsHessian(double[] point) {
-        return new double[][] {
-            getConstraint0Hessian(point),
-            getConstraint1Hessian(point)
-        };
-    }
-
-    private double[] getConstraint0Hessian(double[] point) {
-        return new double[] {
-            0, 0, 0, 0, 0, 0, 0, 0, 0, 2d, 0, 0, 0, 0, -2d, 0, 0, 0, 0, 0, 2d, 0, 0, 0, 0, 0, 0, -2d
-        };
-    }
-
-    private double[] getConstraint1Hessian(double[] point) {
-        return new double[] {
-            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0
-        };
+        return constraintsHessian;
     }
 }
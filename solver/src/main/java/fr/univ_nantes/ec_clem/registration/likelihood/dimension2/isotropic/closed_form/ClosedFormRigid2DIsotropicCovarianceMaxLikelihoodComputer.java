@@ -0,0 +1,59 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package fr.univ_nantes.ec_clem.registration.likelihood.dimension2.isotropic.closed_form;
+
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.OptimizationResult;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.Rigid2DCovarianceMaxLikelihoodComputer;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.BaseCovarianceOptimProblem;
+import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
+import plugins.fr.univ_nantes.ec_clem.matrix.MatrixUtil;
+import plugins.fr.univ_nantes.ec_clem.transformation.Transformation;
+
+import javax.inject.Inject;
+
+import static java.lang.Math.sqrt;
+
+/**
+ * Isotropic gaussian MLE for a fixed transformation : σ² = Σ |r|² / (N D), V = I / σ.
+ * Same solution as {@link fr.univ_nantes.ec_clem.registration.likelihood.dimension2.isotropic.interior_point.InteriorPointRigid2DIsotropicCovarianceMaxLikelihoodComputer}
+ * without the numerical solve.
+ */
+public class ClosedFormRigid2DIsotropicCovarianceMaxLikelihoodComputer extends Rigid2DCovarianceMaxLikelihoodComputer {
+
+    @Inject
+    public ClosedFormRigid2DIsotropicCovarianceMaxLikelihoodComputer(MatrixUtil matrixUtil) {
+        super(matrixUtil);
+    }
+
+    @Override
+    protected OptimizationResult optimize(FiducialSet fiducialSet, Transformation transformation) {
+        BaseCovarianceOptimProblem optimProblem = new BaseCovarianceOptimProblem(fiducialSet, transformation);
+        double[][] scatter = optimProblem.getScatter();
+        int dimension = scatter.length;
+        double trace = 0;
+        for(int i = 0; i < dimension; i++) {
+            trace += scatter[i][i];
+        }
+        double inverseSigma = 1d / sqrt(trace / (fiducialSet.getN() * dimension));
+        double[] parameters = new double[dimension * dimension];
+        for(int i = 0; i < dimension; i++) {
+            parameters[i * dimension + i] = inverseSigma;
+        }
+        OptimizationResult result = new OptimizationResult(
+            parameters,
+            optimProblem.getObjectiveValue(parameters)
+        );
+        optimProblem.close();
+        return result;
+    }
+}
@@ -5,21 +5,29 @@ import org.coinor.Ipopt;
 import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
 import plugins.fr.univ_nantes.ec_clem.matrix.MatrixUtil;
 import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.IpoptSolver;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.EvaluationScheduler;
 import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.OptimizationResult;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.ProcrustesStartingPointFactory;
 import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.isotropic.ConstrainedOptimProblem;
 
 import javax.inject.Inject;
 
 public class InteriorPointRigid2DIsotropicMaxLikelihoodComputer extends Rigid2DMaxLikelihoodComputer {
 
+    private EvaluationScheduler evaluationScheduler;
+    private ProcrustesStartingPointFactory procrustesStartingPointFactory;
+
     @Inject
-    public InteriorPointRigid2DIsotropicMaxLikelihoodComputer(MatrixUtil matrixUtil) {
+    public InteriorPointRigid2DIsotropicMaxLikelihoodComputer(MatrixUtil matrixUtil, EvaluationScheduler evaluationScheduler, ProcrustesStartingPointFactory procrustesStartingPointFactory) {
         super(matrixUtil);
+        this.evaluationScheduler = evaluationScheduler;
+        this.procrustesStartingPointFactory = procrustesStartingPointFactory;
     }
 
     @Override
     protected OptimizationResult optimize(FiducialSet fiducialSet) {
-        ConstrainedOptimProblem optimProblem = new ConstrainedOptimProblem(fiducialSet);
+        ConstrainedOptimProblem optimProblem = new ConstrainedOptimProblem(fiducialSet, evaluationScheduler);
+        optimProblem.setStartingPoint(procrustesStartingPointFactory.getIsotropicStartingPoint(fiducialSet));
         Ipopt ipopt = new IpoptSolver(optimProblem);
         ipopt.OptimizeNLP();
         optimProblem.close();
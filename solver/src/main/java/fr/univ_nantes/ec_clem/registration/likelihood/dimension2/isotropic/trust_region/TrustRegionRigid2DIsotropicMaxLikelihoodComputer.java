@@ -0,0 +1,50 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package fr.univ_nantes.ec_clem.registration.likelihood.dimension2.isotropic.trust_region;
+
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.EvaluationScheduler;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.OptimizationResult;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.Rigid2DMaxLikelihoodComputer;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.TrustRegionSolver;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.ProcrustesStartingPointFactory;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.isotropic.ConstrainedOptimProblem;
+import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
+import plugins.fr.univ_nantes.ec_clem.matrix.MatrixUtil;
+
+import javax.inject.Inject;
+
+public class TrustRegionRigid2DIsotropicMaxLikelihoodComputer extends Rigid2DMaxLikelihoodComputer {
+
+    private EvaluationScheduler evaluationScheduler;
+    private ProcrustesStartingPointFactory procrustesStartingPointFactory;
+
+    @Inject
+    public TrustRegionRigid2DIsotropicMaxLikelihoodComputer(MatrixUtil matrixUtil, EvaluationScheduler evaluationScheduler, ProcrustesStartingPointFactory procrustesStartingPointFactory) {
+        super(matrixUtil);
+        this.evaluationScheduler = evaluationScheduler;
+        this.procrustesStartingPointFactory = procrustesStartingPointFactory;
+    }
+
+    @Override
+    protected OptimizationResult optimize(FiducialSet fiducialSet) {
+        ConstrainedOptimProblem optimProblem = new ConstrainedOptimProblem(fiducialSet, evaluationScheduler);
+        optimProblem.setStartingPoint(procrustesStartingPointFactory.getIsotropicStartingPoint(fiducialSet));
+        TrustRegionSolver solver = new TrustRegionSolver(optimProblem);
+        solver.optimize();
+        optimProblem.close();
+        return new OptimizationResult(
+            solver.getVariableValues(),
+            solver.getObjectiveValue()
+        );
+    }
+}
@@ -3,12 +3,14 @@ package fr.univ_nantes.stats.solver;
 import Jama.Matrix;
 import picocli.CommandLine;
 import javax.inject.Inject;
+import javax.inject.Named;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
 import plugins.fr.univ_nantes.ec_clem.fixtures.fiducialset.TestFiducialSetFactory;
 import plugins.fr.univ_nantes.ec_clem.fixtures.transformation.TestTransformationFactory;
 import plugins.fr.univ_nantes.ec_clem.registration.RigidRegistrationParameterComputer;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.Rigid2DCovarianceMaxLikelihoodComputer;
 import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.conjugate_gradient.ConjugateGradientRigid2DGeneralMaxLikelihoodComputer;
 import plugins.fr.univ_nantes.ec_clem.transformation.Similarity;
 import plugins.fr.univ_nantes.ec_clem.transformation.schema.TransformationType;
@@ -28,6 +30,8 @@ public class Main {
     private InteriorPointRigid2DGeneralMaxLikelihoodComputer interiorPointRigid2DGeneralMaxLikelihoodComputer;
     private ConjugateGradientRigid2DGeneralMaxLikelihoodComputer conjugateGradientRigid2DGeneralMaxLikelihoodComputer;
     private InteriorPointRigid2DIsotropicMaxLikelihoodComputer interiorPointRigid2DIsotropicMaxLikelihoodComputer;
+    private Rigid2DCovarianceMaxLikelihoodComputer isotropicCovarianceComputer;
+    private Rigid2DCovarianceMaxLikelihoodComputer generalCovarianceComputer;
 
     @Option(
         names = { "-n" },
@@ -97,6 +101,12 @@ public class Main {
 
         System.out.println("Isotropic Maximum likelihood transformation");
         isotropicMaximumLikelihood.getHomogeneousMatrix().print(1,5);
+
+        System.out.println(String.format(
+            "Schonemann log likelihood : %f (isotropic noise), %f (general noise)",
+            isotropicCovarianceComputer.compute(current, shonemann).getLogLikelihood(),
+            generalCovarianceComputer.compute(current, shonemann).getLogLikelihood()
+        ));
     }
 
     public static void main(String ... args){
@@ -129,6 +139,16 @@ public class Main {
         this.interiorPointRigid2DIsotropicMaxLikelihoodComputer = rigid2DMaxLikelihoodComputer2;
     }
 
+    @Inject
+    public void setIsotropicCovarianceComputer(@Named("isotropic") Rigid2DCovarianceMaxLikelihoodComputer isotropicCovarianceComputer) {
+        this.isotropicCovarianceComputer = isotropicCovarianceComputer;
+    }
+
+    @Inject
+    public void setGeneralCovarianceComputer(@Named("general") Rigid2DCovarianceMaxLikelihoodComputer generalCovarianceComputer) {
+        this.generalCovarianceComputer = generalCovarianceComputer;
+    }
+
     @Inject
     public void setConjugateGradientRigid2DGeneralMaxLikelihoodComputer(ConjugateGradientRigid2DGeneralMaxLikelihoodComputer rigid2DMaxLikelihoodComputer) {
         this.conjugateGradientRigid2DGeneralMaxLikelihoodComputer = rigid2DMaxLikelihoodComputer;
@@ -1,8 +1,14 @@
 package fr.univ_nantes.stats.solver;
 
 import dagger.Component;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.Rigid2DCovarianceMaxLikelihoodComputerModule;
 
-@Component
+import javax.inject.Singleton;
+
+@Singleton
+@Component(modules = {
+    Rigid2DCovarianceMaxLikelihoodComputerModule.class
+})
 public interface MainComponent {
     void inject(Main main);
 }
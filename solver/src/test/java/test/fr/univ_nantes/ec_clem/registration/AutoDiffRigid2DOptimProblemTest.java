@@ -0,0 +1,78 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package test.fr.univ_nantes.ec_clem.registration;
+
+import org.testng.annotations.Test;
+import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
+import plugins.fr.univ_nantes.ec_clem.fixtures.fiducialset.TestFiducialSetFactory;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.ObjectiveEvaluation;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.SufficientStatisticsOptimProblem;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.autodiff.AutoDiffRigid2DOptimProblem;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.autodiff.HyperDualWorkspace;
+import javax.inject.Inject;
+import static org.testng.Assert.assertEquals;
+
+public class AutoDiffRigid2DOptimProblemTest {
+
+    private TestFiducialSetFactory testFiducialSetFactory;
+
+    public AutoDiffRigid2DOptimProblemTest() {
+        DaggerAutoDiffRigid2DOptimProblemTestComponent.create().inject(this);
+    }
+
+    @Test
+    void testSameAsSufficientStatisticsOptimProblem() {
+        FiducialSet fiducialSet = testFiducialSetFactory.getIdentityFiducialSet2DWithNoise100_0_0_100();
+        SufficientStatisticsOptimProblem expected = new SufficientStatisticsOptimProblem(fiducialSet);
+        AutoDiffRigid2DOptimProblem subjectUnderTest = new AutoDiffRigid2DOptimProblem(fiducialSet);
+        double[] point = new double[]{ 1.5d, -2d, 0.3d, 0.1d, 0.02d, -0.01d, 0.2d };
+
+        ObjectiveEvaluation expectedEvaluation = new ObjectiveEvaluation(expected);
+        expected.evaluate(point, true, true, expectedEvaluation);
+        ObjectiveEvaluation evaluation = new ObjectiveEvaluation(subjectUnderTest);
+        subjectUnderTest.evaluate(point, true, true, evaluation);
+
+        assertEquals(evaluation.getValue(), expectedEvaluation.getValue(), 1e-6);
+        for(int i = 0; i < expected.getNParameters(); i++) {
+            assertEquals(evaluation.getGradient()[i], expectedEvaluation.getGradient()[i], 1e-6);
+        }
+        assertEquals(subjectUnderTest.getNonZeroElementsInParametersHessian(), expected.getNonZeroElementsInParametersHessian());
+        for(int i = 0; i < expected.getNonZeroElementsInParametersHessian(); i++) {
+            assertEquals(evaluation.getHessian()[i], expectedEvaluation.getHessian()[i], 1e-6);
+        }
+    }
+
+    @Test
+    void testDivide() {
+        HyperDualWorkspace workspace = new HyperDualWorkspace(2, 8);
+        workspace.reset(HyperDualWorkspace.HESSIAN);
+        int x = workspace.variable(0, 2);
+        int y = workspace.variable(1, 3);
+        int result = workspace.divide(x, y);
+        double[] gradient = new double[2];
+        double[] hessian = new double[3];
+        workspace.copyGradient(result, gradient);
+        workspace.copyHessian(result, hessian);
+        assertEquals(workspace.value(result), 2d / 3d, 1e-12);
+        assertEquals(gradient[0], 1d / 3d, 1e-12);
+        assertEquals(gradient[1], -2d / 9d, 1e-12);
+        assertEquals(hessian[0], 0, 1e-12);
+        assertEquals(hessian[1], -1d / 9d, 1e-12);
+        assertEquals(hessian[2], 4d / 27d, 1e-12);
+    }
+
+    @Inject
+    public void setTestFiducialSetFactory(TestFiducialSetFactory testFiducialSetFactory) {
+        this.testFiducialSetFactory = testFiducialSetFactory;
+    }
+}
@@ -163,6 +163,39 @@ public class BaseCovarianceOptimProblemTest {
         }
     }
 
+    @Test
+    void testObjectiveHessian2D() {
+        BaseCovarianceOptimProblem baseOptimProblem = new BaseCovarianceOptimProblem(
+            testFiducialSetFactory.getIdentityFiducialSet2DWithNoise100_0_0_100(),
+            new Similarity(
+                Matrix.identity(2, 2),
+                new Matrix(new double[][] {
+                    { 0 },
+                    { 0 }
+                }),
+                Matrix.identity(2, 2)
+            )
+        );
+        double[] point = new double[]{ 0.1d, 0.02d, -0.01d, 0.2d };
+        double epsilon = 0.000001;
+
+        double[] plusEpsilon = new double[baseOptimProblem.getNParameters()];
+        double[] minusEpsilon = new double[baseOptimProblem.getNParameters()];
+
+        double[] derivativeArray = baseOptimProblem.getObjectiveHessian(point);
+        int count = 0;
+        for(int i = 0; i < baseOptimProblem.getNParameters(); i++) {
+            for(int j = 0; j <= i; j++) {
+                int index = j;
+                Arrays.setAll(plusEpsilon, k -> k == index ? point[k] + epsilon : point[k]);
+                Arrays.setAll(minusEpsilon, k -> k == index ? point[k] - epsilon : point[k]);
+                double expected = (baseOptimProblem.getObjectiveGradient(plusEpsilon)[i] - baseOptimProblem.getObjectiveGradient(minusEpsilon)[i]) / (2d * epsilon);
+                assertEquals(derivativeArray[count], expected, 1e-4 * (1 + Math.abs(expected)));
+                count++;
+            }
+        }
+    }
+
     @Inject
     public void setTestFiducialSetFactory(TestFiducialSetFactory testFiducialSetFactory) {
         this.testFiducialSetFactory = testFiducialSetFactory;
@@ -15,9 +15,12 @@ package test.fr.univ_nantes.ec_clem.registration;
 import org.testng.annotations.Test;
 import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
 import plugins.fr.univ_nantes.ec_clem.fixtures.fiducialset.TestFiducialSetFactory;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.EvaluationScheduler;
 import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.BaseOptimProblem;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.ObjectiveEvaluation;
 import javax.inject.Inject;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 import static org.testng.Assert.assertEquals;
 
 public class BaseOptimProblemTest {
@@ -58,6 +61,61 @@ public class BaseOptimProblemTest {
         }
     }
 
+    /**
+     * A single evaluation of value, gradient and hessian against central differences of the value and of the gradient.
+     */
+    @Test
+    void testEvaluateDerivativesSameAsFiniteDifferences() {
+        BaseOptimProblem baseOptimProblem = new BaseOptimProblem(testFiducialSetFactory.getIdentityFiducialSet2DWithNoise100_0_0_100());
+        double[] point = new double[]{ 1.5d, -2d, 0.3d, 0.1d, 0.02d, -0.01d, 0.2d };
+        ObjectiveEvaluation evaluation = new ObjectiveEvaluation(baseOptimProblem);
+        baseOptimProblem.evaluate(point, true, true, evaluation);
+        double epsilon = 0.000001;
+
+        double[] plusEpsilon = new double[baseOptimProblem.getNParameters()];
+        double[] minusEpsilon = new double[baseOptimProblem.getNParameters()];
+
+        assertEquals(evaluation.getValue(), baseOptimProblem.getObjectiveValue(point), 1e-9 * Math.abs(evaluation.getValue()));
+        double[] gradient = evaluation.getGradient();
+        for(int i = 0; i < baseOptimProblem.getNParameters(); i++) {
+            int index = i;
+            Arrays.setAll(plusEpsilon, k -> k == index ? point[k] + epsilon : point[k]);
+            Arrays.setAll(minusEpsilon, k -> k == index ? point[k] - epsilon : point[k]);
+            double expected = (baseOptimProblem.getObjectiveValue(plusEpsilon) - baseOptimProblem.getObjectiveValue(minusEpsilon)) / (2d * epsilon);
+            assertEquals(gradient[i], expected, 1e-4 * (1 + Math.abs(expected)));
+        }
+
+        double[] hessian = evaluation.getHessian();
+        int count = 0;
+        for(int i = 0; i < baseOptimProblem.getNParameters(); i++) {
+            for(int j = 0; j <= i; j++) {
+                int index = j;
+                Arrays.setAll(plusEpsilon, k -> k == index ? point[k] + epsilon : point[k]);
+                Arrays.setAll(minusEpsilon, k -> k == index ? point[k] - epsilon : point[k]);
+                double expected = (baseOptimProblem.getObjectiveGradient(plusEpsilon)[i] - baseOptimProblem.getObjectiveGradient(minusEpsilon)[i]) / (2d * epsilon);
+                assertEquals(hessian[count], expected, 1e-4 * (1 + Math.abs(expected)));
+                count++;
+            }
+        }
+        assertEquals(count, baseOptimProblem.getNonZeroElementsInParametersHessian());
+        baseOptimProblem.close();
+    }
+
+    @Test
+    void testChunkedSameAsSerial() {
+        FiducialSet fiducialSet = testFiducialSetFactory.getIdentityFiducialSet2DWithNoise100_0_0_100();
+        BaseOptimProblem serial = new BaseOptimProblem(fiducialSet, new EvaluationScheduler(ForkJoinPool.commonPool(), Integer.MAX_VALUE));
+        BaseOptimProblem chunked = new BaseOptimProblem(fiducialSet, new EvaluationScheduler(ForkJoinPool.commonPool(), 2));
+        double[] point = serial.getStartingPoint();
+
+        assertEquals(chunked.getObjectiveValue(point), serial.getObjectiveValue(point), 1e-6);
+        double[] expected = serial.getObjectiveHessian(point);
+        double[] actual = chunked.getObjectiveHessian(point);
+        for(int i = 0; i < expected.length; i++) {
+            assertEquals(actual[i], expected[i], 1e-6 * (1 + Math.abs(expected[i])));
+        }
+    }
+
     @Inject
     public void setTestFiducialSetFactory(TestFiducialSetFactory testFiducialSetFactory) {
         this.testFiducialSetFactory = testFiducialSetFactory;
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package test.fr.univ_nantes.ec_clem.registration;
+
+import Jama.Matrix;
+import org.testng.annotations.Test;
+import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
+import plugins.fr.univ_nantes.ec_clem.fixtures.fiducialset.TestFiducialSetFactory;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.Rigid2DCovarianceMaxLikelihoodComputer;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.BaseCovarianceOptimProblem;
+import plugins.fr.univ_nantes.ec_clem.transformation.Similarity;
+import javax.inject.Inject;
+import javax.inject.Named;
+import static org.testng.Assert.assertEquals;
+import static java.lang.Math.PI;
+import static java.lang.Math.abs;
+import static java.lang.Math.log;
+import static java.lang.Math.sqrt;
+import static org.testng.Assert.assertTrue;
+
+public class ClosedFormCovarianceMaxLikelihoodComputerTest {
+
+    private TestFiducialSetFactory testFiducialSetFactory;
+    private Rigid2DCovarianceMaxLikelihoodComputer generalComputer;
+    private Rigid2DCovarianceMaxLikelihoodComputer isotropicComputer;
+    private Rigid2DCovarianceMaxLikelihoodComputer interiorPointComputer;
+
+    public ClosedFormCovarianceMaxLikelihoodComputerTest() {
+        DaggerClosedFormCovarianceMaxLikelihoodComputerTestComponent.create().inject(this);
+    }
+
+    @Test
+    void isotropicSameAsInteriorPoint() {
+        FiducialSet fiducialSet = testFiducialSetFactory.getIdentityFiducialSet2DWithNoise100_0_0_100();
+        assertEquals(
+            isotropicComputer.compute(fiducialSet, getIdentity()).getLogLikelihood(),
+            interiorPointComputer.compute(fiducialSet, getIdentity()).getLogLikelihood(),
+            1e-4
+        );
+    }
+
+    @Test
+    void generalAtLeastAsLikelyAsIsotropic() {
+        FiducialSet fiducialSet = testFiducialSetFactory.getIdentityFiducialSet2DWithNoise100_0_0_100();
+        assertTrue(
+            generalComputer.compute(fiducialSet, getIdentity()).getLogLikelihood()
+                >= isotropicComputer.compute(fiducialSet, getIdentity()).getLogLikelihood() - 1e-9
+        );
+    }
+
+    @Test
+    void generalIsInverseResidualScatter() {
+        // the likelihood is strictly concave in Λ, its maximum is only reached at Λ = N S⁻¹
+        FiducialSet fiducialSet = testFiducialSetFactory.getIdentityFiducialSet2DWithNoise100_0_0_100();
+        int n = fiducialSet.getN();
+        Matrix scatter = new Matrix(new BaseCovarianceOptimProblem(fiducialSet, getIdentity()).getScatter());
+        Matrix lambda = scatter.inverse().times(n);
+        double expected = n * log(sqrt(lambda.det()) / (2d * PI)) - lambda.times(scatter).trace() / 2d;
+        assertEquals(generalComputer.compute(fiducialSet, getIdentity()).getLogLikelihood(), expected, 1e-6 * (1 + abs(expected)));
+    }
+
+    private Similarity getIdentity() {
+        return new Similarity(
+            Matrix.identity(2, 2),
+            new Matrix(new double[][] {
+                { 0 },
+                { 0 }
+            }),
+            Matrix.identity(2, 2)
+        );
+    }
+
+    @Inject
+    public void setTestFiducialSetFactory(TestFiducialSetFactory testFiducialSetFactory) {
+        this.testFiducialSetFactory = testFiducialSetFactory;
+    }
+
+    @Inject
+    public void setGeneralComputer(@Named("general") Rigid2DCovarianceMaxLikelihoodComputer generalComputer) {
+        this.generalComputer = generalComputer;
+    }
+
+    @Inject
+    public void setIsotropicComputer(@Named("isotropic") Rigid2DCovarianceMaxLikelihoodComputer isotropicComputer) {
+        this.isotropicComputer = isotropicComputer;
+    }
+
+    @Inject
+    public void setInteriorPointComputer(@Named("ipopt_constrained") Rigid2DCovarianceMaxLikelihoodComputer interiorPointComputer) {
+        this.interiorPointComputer = interiorPointComputer;
+    }
+}
@@ -14,6 +14,9 @@ package test.fr.univ_nantes.ec_clem.registration;
 
 import dagger.Component;
 
+import javax.inject.Singleton;
+
+@Singleton
 @Component
 public interface ConjugateGradientRigid2DGeneralMaxLikelihoodComputerTestComponent {
     void inject(ConjugateGradientRigid2DGeneralMaxLikelihoodComputerTest rigid2DGeneralMaxLikelihoodComputerTest);
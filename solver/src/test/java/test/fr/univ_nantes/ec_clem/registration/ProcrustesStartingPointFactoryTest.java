@@ -0,0 +1,65 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package test.fr.univ_nantes.ec_clem.registration;
+
+import org.testng.annotations.Test;
+import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
+import plugins.fr.univ_nantes.ec_clem.fixtures.fiducialset.TestFiducialSetFactory;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.ProcrustesStartingPointFactory;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.SufficientStatisticsOptimProblem;
+import javax.inject.Inject;
+import static org.testng.Assert.assertEquals;
+
+public class ProcrustesStartingPointFactoryTest {
+
+    private TestFiducialSetFactory testFiducialSetFactory;
+    private ProcrustesStartingPointFactory subjectUnderTest;
+
+    public ProcrustesStartingPointFactoryTest() {
+        DaggerProcrustesStartingPointFactoryTestComponent.create().inject(this);
+    }
+
+    @Test
+    void testGeneralStartingPointIsStationaryInV() {
+        FiducialSet fiducialSet = testFiducialSetFactory.getIdentityFiducialSet2DWithNoise100_0_0_100();
+        double[] point = subjectUnderTest.getGeneralStartingPoint(fiducialSet);
+        assertEquals(point[0], 0, 1);
+        assertEquals(point[1], 0, 1);
+        assertEquals(point[2], 0, 0.1);
+        assertEquals(point[5], 0);
+
+        double[] gradient = new SufficientStatisticsOptimProblem(fiducialSet).getObjectiveGradient(point);
+        for(int i = 3; i < gradient.length; i++) {
+            assertEquals(gradient[i], 0, 1e-6);
+        }
+    }
+
+    @Test
+    void testIsotropicStartingPointIsIsotropic() {
+        FiducialSet fiducialSet = testFiducialSetFactory.getIdentityFiducialSet2DWithNoise100_0_0_100();
+        double[] point = subjectUnderTest.getIsotropicStartingPoint(fiducialSet);
+        assertEquals(point[3], point[6]);
+        assertEquals(point[4], 0);
+        assertEquals(point[5], 0);
+    }
+
+    @Inject
+    public void setTestFiducialSetFactory(TestFiducialSetFactory testFiducialSetFactory) {
+        this.testFiducialSetFactory = testFiducialSetFactory;
+    }
+
+    @Inject
+    public void setSubjectUnderTest(ProcrustesStartingPointFactory subjectUnderTest) {
+        this.subjectUnderTest = subjectUnderTest;
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package test.fr.univ_nantes.ec_clem.registration;
+
+import org.testng.annotations.Test;
+import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
+import plugins.fr.univ_nantes.ec_clem.fixtures.fiducialset.TestFiducialSetFactory;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.Rigid2DMaxLikelihoodComputer;
+import plugins.fr.univ_nantes.ec_clem.registration.RegistrationParameter;
+import plugins.fr.univ_nantes.ec_clem.transformation.Similarity;
+import javax.inject.Inject;
+import javax.inject.Named;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+class ProfiledRigid2DGeneralMaxLikelihoodComputerTest {
+
+    private TestFiducialSetFactory testFiducialSetFactory;
+    private Rigid2DMaxLikelihoodComputer subjectUnderTest;
+    private Rigid2DMaxLikelihoodComputer interiorPointComputer;
+
+    public ProfiledRigid2DGeneralMaxLikelihoodComputerTest() {
+        DaggerProfiledRigid2DGeneralMaxLikelihoodComputerTestComponent.create().inject(this);
+    }
+
+    @Inject
+    public void setTestFiducialSetFactory(TestFiducialSetFactory testFiducialSetFactory) {
+        this.testFiducialSetFactory = testFiducialSetFactory;
+    }
+
+    @Inject
+    public void setSubjectUnderTest(@Named("profile") Rigid2DMaxLikelihoodComputer subjectUnderTest) {
+        this.subjectUnderTest = subjectUnderTest;
+    }
+
+    @Inject
+    public void setInteriorPointComputer(@Named("ipopt_general") Rigid2DMaxLikelihoodComputer interiorPointComputer) {
+        this.interiorPointComputer = interiorPointComputer;
+    }
+
+    @Test
+    void identity() {
+        FiducialSet identityFiducialSet = testFiducialSetFactory.getIdentityFiducialSet2DWithNoise100_0_0_100();
+        Similarity result = (Similarity) subjectUnderTest.compute(identityFiducialSet).getTransformation();
+        assertEquals(1, result.getR().det(), 0.0000001);
+        assertEquals(1, result.getR().get(0, 0), 0.1);
+        assertEquals(0, result.getR().get(1, 0), 0.1);
+        assertEquals(0, result.getR().get(0, 1), 0.1);
+        assertEquals(1, result.getR().get(1, 1), 0.1);
+        assertEquals(0, result.getT().get(0, 0), 1);
+        assertEquals(0, result.getT().get(1, 0), 1);
+    }
+
+    @Test
+    void atLeastAsLikelyAsInteriorPoint() {
+        FiducialSet identityFiducialSet = testFiducialSetFactory.getIdentityFiducialSet2DWithNoise100_0_0_100();
+        RegistrationParameter profiled = subjectUnderTest.compute(identityFiducialSet);
+        RegistrationParameter interiorPoint = interiorPointComputer.compute(identityFiducialSet);
+        assertTrue(profiled.getLogLikelihood() >= interiorPoint.getLogLikelihood() - 1e-4);
+    }
+}
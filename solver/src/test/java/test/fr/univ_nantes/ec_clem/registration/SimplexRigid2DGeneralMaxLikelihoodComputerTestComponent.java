@@ -15,6 +15,9 @@ package test.fr.univ_nantes.ec_clem.registration;
 import dagger.Component;
 import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.Rigid2DMaxLikelihoodComputerModule;
 
+import javax.inject.Singleton;
+
+@Singleton
 @Component(modules = {
     Rigid2DMaxLikelihoodComputerModule.class
 })
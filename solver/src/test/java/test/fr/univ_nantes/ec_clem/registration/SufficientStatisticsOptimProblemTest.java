@@ -0,0 +1,101 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package test.fr.univ_nantes.ec_clem.registration;
+
+import org.testng.annotations.Test;
+import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
+import plugins.fr.univ_nantes.ec_clem.fixtures.fiducialset.TestFiducialSetFactory;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.BaseOptimProblem;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.SufficientStatisticsOptimProblem;
+import javax.inject.Inject;
+import java.util.Arrays;
+import static org.testng.Assert.assertEquals;
+
+public class SufficientStatisticsOptimProblemTest {
+
+    private TestFiducialSetFactory testFiducialSetFactory;
+
+    public SufficientStatisticsOptimProblemTest() {
+        DaggerSufficientStatisticsOptimProblemTestComponent.create().inject(this);
+    }
+
+    @Test
+    void testObjectiveValue() {
+        FiducialSet identityFiducialSet = testFiducialSetFactory.getIdentityFiducialSet2DWithNoise100_0_0_100();
+        SufficientStatisticsOptimProblem subjectUnderTest = new SufficientStatisticsOptimProblem(identityFiducialSet);
+        double[] point = new double[]{ 0, 0, 0, 0.1d, 0, 0, 0.1d };
+        assertEquals(48.88197, subjectUnderTest.getObjectiveValue(point), 0.0001);
+    }
+
+    /**
+     * The residual sums come from the sufficient statistics instead of a pass over the points.
+     */
+    @Test
+    void testObjectiveValueSameAsBaseOptimProblem() {
+        FiducialSet fiducialSet = testFiducialSetFactory.getIdentityFiducialSet2DWithNoise100_0_0_100();
+        BaseOptimProblem baseOptimProblem = new BaseOptimProblem(fiducialSet);
+        SufficientStatisticsOptimProblem subjectUnderTest = new SufficientStatisticsOptimProblem(fiducialSet);
+        double[] point = new double[]{ 1.5d, -2d, 0.3d, 0.1d, 0.02d, -0.01d, 0.2d };
+
+        assertEquals(subjectUnderTest.getObjectiveValue(point), baseOptimProblem.getObjectiveValue(point), 1e-6);
+        baseOptimProblem.close();
+    }
+
+    @Test
+    void testObjectiveGradient() {
+        SufficientStatisticsOptimProblem subjectUnderTest = new SufficientStatisticsOptimProblem(testFiducialSetFactory.getIdentityFiducialSet2DWithNoise100_0_0_100());
+        double[] point = new double[]{ 1.5d, -2d, 0.3d, 0.1d, 0.02d, -0.01d, 0.2d };
+        double epsilon = 0.000001;
+
+        double[] plusEpsilon = new double[subjectUnderTest.getNParameters()];
+        double[] minusEpsilon = new double[subjectUnderTest.getNParameters()];
+
+        double[] gradient = subjectUnderTest.getObjectiveGradient(point).clone();
+        for(int i = 0; i < subjectUnderTest.getNParameters(); i++) {
+            int index = i;
+            Arrays.setAll(plusEpsilon, k -> k == index ? point[k] + epsilon : point[k]);
+            Arrays.setAll(minusEpsilon, k -> k == index ? point[k] - epsilon : point[k]);
+            double expected = (subjectUnderTest.getObjectiveValue(plusEpsilon) - subjectUnderTest.getObjectiveValue(minusEpsilon)) / (2d * epsilon);
+            assertEquals(gradient[i], expected, 1e-4 * (1 + Math.abs(expected)));
+        }
+    }
+
+    @Test
+    void testObjectiveHessian() {
+        SufficientStatisticsOptimProblem subjectUnderTest = new SufficientStatisticsOptimProblem(testFiducialSetFactory.getIdentityFiducialSet2DWithNoise100_0_0_100());
+        double[] point = new double[]{ 1.5d, -2d, 0.3d, 0.1d, 0.02d, -0.01d, 0.2d };
+        double epsilon = 0.000001;
+
+        double[] plusEpsilon = new double[subjectUnderTest.getNParameters()];
+        double[] minusEpsilon = new double[subjectUnderTest.getNParameters()];
+
+        double[] hessian = subjectUnderTest.getObjectiveHessian(point).clone();
+        assertEquals(hessian.length, subjectUnderTest.getNonZeroElementsInParametersHessian());
+        int count = 0;
+        for(int i = 0; i < subjectUnderTest.getNParameters(); i++) {
+            for(int j = 0; j <= i; j++) {
+                int index = j;
+                Arrays.setAll(plusEpsilon, k -> k == index ? point[k] + epsilon : point[k]);
+                Arrays.setAll(minusEpsilon, k -> k == index ? point[k] - epsilon : point[k]);
+                double expected = (subjectUnderTest.getObjectiveGradient(plusEpsilon)[i] - subjectUnderTest.getObjectiveGradient(minusEpsilon)[i]) / (2d * epsilon);
+                assertEquals(hessian[count], expected, 1e-4 * (1 + Math.abs(expected)));
+                count++;
+            }
+        }
+    }
+
+    @Inject
+    public void setTestFiducialSetFactory(TestFiducialSetFactory testFiducialSetFactory) {
+        this.testFiducialSetFactory = testFiducialSetFactory;
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright 2010-2018 Perrine Paul-Gilloteaux <Perrine.Paul-Gilloteaux@univ-nantes.fr>, CNRS.
+ * Copyright 2019 Guillaume Potier <guillaume.potier@univ-nantes.fr>, INSERM.
+ *
+ * This file is part of EC-CLEM.
+ *
+ * you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ **/
+package test.fr.univ_nantes.ec_clem.registration;
+
+import org.testng.annotations.Test;
+import plugins.fr.univ_nantes.ec_clem.fiducialset.FiducialSet;
+import plugins.fr.univ_nantes.ec_clem.fixtures.fiducialset.TestFiducialSetFactory;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.TrustRegionSolver;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.general.SufficientStatisticsOptimProblem;
+import fr.univ_nantes.ec_clem.registration.likelihood.dimension2.isotropic.ConstrainedOptimProblem;
+import javax.inject.Inject;
+import static org.testng.Assert.assertEquals;
+
+public class TrustRegionSolverTest {
+
+    private TestFiducialSetFactory testFiducialSetFactory;
+
+    public TrustRegionSolverTest() {
+        DaggerTrustRegionSolverTestComponent.create().inject(this);
+    }
+
+    @Test
+    void testGeneral() {
+        FiducialSet fiducialSet = testFiducialSetFactory.getIdentityFiducialSet2DWithNoise100_0_0_100();
+        SufficientStatisticsOptimProblem optimProblem = new SufficientStatisticsOptimProblem(fiducialSet);
+        TrustRegionSolver subjectUnderTest = new TrustRegionSolver(optimProblem);
+        assertEquals(subjectUnderTest.optimize(), TrustRegionSolver.SOLVE_SUCCEEDED);
+
+        double[] solution = subjectUnderTest.getVariableValues();
+        assertEquals(subjectUnderTest.getObjectiveValue(), optimProblem.getObjectiveValue(solution), 1e-9);
+        for(double derivative : optimProblem.getObjectiveGradient(solution)) {
+            assertEquals(derivative, 0, 1e-4);
+        }
+    }
+
+    @Test
+    void testConstrained() {
+        FiducialSet fiducialSet = testFiducialSetFactory.getIdentityFiducialSet2DWithNoise100_0_0_100();
+        ConstrainedOptimProblem optimProblem = new ConstrainedOptimProblem(fiducialSet);
+        TrustRegionSolver subjectUnderTest = new TrustRegionSolver(optimProblem);
+        assertEquals(subjectUnderTest.optimize(), TrustRegionSolver.SOLVE_SUCCEEDED);
+
+        double[] solution = subjectUnderTest.getVariableValues();
+        for(double constraint : optimProblem.getConstraints(solution)) {
+            assertEquals(constraint, 0, 1e-8);
+        }
+        optimProblem.close();
+    }
+
+    @Inject
+    public void setTestFiducialSetFactory(TestFiducialSetFactory testFiducialSetFactory) {
+        this.testFiducialSetFactory = testFiducialSetFactory;
+    }
+}
@@ -0,0 +1,88 @@
+package fr.univ_nantes.stats.tre_half_normal;
+
+import fr.univ_nantes.stats.monte_carlo.batch.AffineDesign;
+import fr.univ_nantes.stats.monte_carlo.noise.InnovationSequence;
+
+/**
+ * Target registration error at a held out point for replicates where isotropic gaussian noise is only added to
+ * the target points. The design X = [z 1] of the fitted points is fixed : B replicate targets are stacked column wise
+ * and one blocked product Xᵀ[Y₁ … Y_B] gives every affine fit, the prediction at the held out point being
+ * x₀ᵀ(XᵀX)⁻¹XᵀY.
+ * Not thread safe, every worker should use its own instance.
+ */
+public class AffineReplicateBatch {
+
+    public interface ReplicateConsumer {
+        void accept(double squaredError);
+    }
+
+    private int n;
+    private int dimension;
+    private int p;
+    private int batchSize;
+    private AffineDesign design;
+    private double[] predictionWeights;
+    private double[][] target;
+    private double[] heldOutTarget;
+    private double sigma;
+
+    private double[] stacked;
+    private double[] product;
+    private double[][] innovations;
+
+    /**
+     * @param source fitted source points
+     * @param target noise free fitted target points
+     * @param sigma noise standard deviation on each coordinate
+     */
+    public AffineReplicateBatch(double[][] source, double[][] target, double[] heldOutSource, double[] heldOutTarget, double sigma, int batchSize) {
+        design = new AffineDesign(source);
+        n = design.getN();
+        dimension = design.getDimension();
+        p = design.getP();
+        predictionWeights = design.getPredictionWeights(heldOutSource);
+        this.target = target;
+        this.heldOutTarget = heldOutTarget;
+        this.sigma = sigma;
+        this.batchSize = batchSize;
+        stacked = new double[n * dimension * batchSize];
+        product = new double[p * dimension * batchSize];
+        innovations = new double[batchSize][(n + 1) * dimension];
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Simulates the count ≤ batch size replicates starting at from and streams the squared error at the held out
+     * point of each of them. The innovations of a replicate are those of its fitted points, then of the held out point.
+     */
+    public void simulate(int from, int count, InnovationSequence innovationSequence, ReplicateConsumer consumer) {
+        if(count > batchSize) {
+            throw new IllegalArgumentException(String.format("At most %d replicates per batch", batchSize));
+        }
+        int columns = count * dimension;
+        for(int b = 0; b < count; b++) {
+            innovationSequence.fill(from + b, innovations[b]);
+            for(int i = 0; i < n; i++) {
+                for(int a = 0; a < dimension; a++) {
+                    stacked[i * columns + b * dimension + a] = target[i][a] + sigma * innovations[b][i * dimension + a];
+                }
+            }
+        }
+        design.multiplyTransposeLeft(stacked, columns, product);
+        for(int b = 0; b < count; b++) {
+            double squaredError = 0;
+            for(int a = 0; a < dimension; a++) {
+                double predicted = 0;
+                for(int k = 0; k < p; k++) {
+                    predicted += predictionWeights[k] * product[k * columns + b * dimension + a];
+                }
+                double error = heldOutTarget[a] + sigma * innovations[b][n * dimension + a] - predicted;
+                squaredError += error * error;
+            }
+            consumer.accept(squaredError);
+        }
+    }
+}
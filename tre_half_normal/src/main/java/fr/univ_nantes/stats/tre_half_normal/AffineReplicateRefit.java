@@ -0,0 +1,48 @@
+package fr.univ_nantes.stats.tre_half_normal;
+
+import plugins.perrine.easyclemv0.fiducialset.FiducialSet;
+import plugins.perrine.easyclemv0.fiducialset.dataset.point.Point;
+import plugins.perrine.easyclemv0.registration.AffineTransformationComputer;
+import plugins.perrine.easyclemv0.transformation.AffineTransformation;
+import javax.inject.Inject;
+
+/**
+ * Target registration error at a held out point for a single replicate, the affine model being refitted by ec_clem.
+ * The held out point is the first of the fiducial set and the model is fitted on its last nbPoints points. Noise
+ * is laid out as in {@link AffineReplicateBatch} : innovations of the fitted points, then of the held out point.
+ */
+public class AffineReplicateRefit {
+
+    private AffineTransformationComputer affineTransformationComputer;
+
+    @Inject
+    public AffineReplicateRefit(AffineTransformationComputer affineTransformationComputer) {
+        this.affineTransformationComputer = affineTransformationComputer;
+    }
+
+    /**
+     * @param sigma noise standard deviation on each coordinate
+     * @param innovations standard normal innovations, (nbPoints + 1) * dimension of them
+     */
+    public double getSquaredError(FiducialSet fiducialSet, int nbPoints, double sigma, double[] innovations) {
+        FiducialSet currentFiducialSet = fiducialSet.clone();
+        double[][] target = currentFiducialSet.getTargetDataset().getMatrix().getArray();
+        int size = target.length;
+        int dimension = target[0].length;
+        for(int i = 0; i < nbPoints; i++) {
+            for(int a = 0; a < dimension; a++) {
+                target[size - nbPoints + i][a] += sigma * innovations[i * dimension + a];
+            }
+        }
+        for(int a = 0; a < dimension; a++) {
+            target[0][a] += sigma * innovations[nbPoints * dimension + a];
+        }
+        Point targetRemovedPoint = currentFiducialSet.getTargetDataset().removePoint(0);
+        Point sourceRemovedPoint = currentFiducialSet.getSourceDataset().removePoint(0);
+        for(int k = size - 1; k > nbPoints; k--) {
+            currentFiducialSet.remove(0);
+        }
+        AffineTransformation compute = affineTransformationComputer.compute(currentFiducialSet);
+        return targetRemovedPoint.minus(compute.apply(sourceRemovedPoint)).getSumOfSquare();
+    }
+}
@@ -3,15 +3,18 @@ package fr.univ_nantes.stats.tre_half_normal;
 import Jama.Matrix;
 import fr.univ_nantes.ec_clem.fixtures.fiducialset.TestFiducialSetFactory;
 import fr.univ_nantes.ec_clem.fixtures.transformation.TestTransformationFactory;
+import fr.univ_nantes.stats.monte_carlo.noise.InnovationSequence;
+import fr.univ_nantes.stats.monte_carlo.noise.InnovationSequenceFactory;
+import fr.univ_nantes.stats.monte_carlo.noise.ReplicateRandomFactory;
+import fr.univ_nantes.stats.monte_carlo.noise.SamplerType;
 import org.apache.commons.math3.stat.descriptive.moment.Mean;
 import org.apache.commons.math3.stat.descriptive.moment.Variance;
 import picocli.CommandLine;
 import plugins.perrine.easyclemv0.fiducialset.FiducialSet;
-import plugins.perrine.easyclemv0.fiducialset.dataset.point.Point;
-import plugins.perrine.easyclemv0.registration.AffineTransformationComputer;
-import plugins.perrine.easyclemv0.transformation.AffineTransformation;
 import plugins.perrine.easyclemv0.transformation.Similarity;
 import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 import java.util.concurrent.*;
 
 @CommandLine.Command(name = "tre_half_normal")
@@ -19,7 +22,8 @@ public class Main implements Runnable {
 
     private TestTransformationFactory testTransformationFactory;
     private TestFiducialSetFactory testFiducialSetFactory;
-    private AffineTransformationComputer affineTransformationComputer;
+    private AffineReplicateRefit affineReplicateRefit;
+    private InnovationSequenceFactory innovationSequenceFactory;
 
     @CommandLine.Option(
         names = { "-n" },
@@ -42,6 +46,26 @@ public class Main implements Runnable {
     )
     private int s;
 
+    @CommandLine.Option(
+        names = { "-b", "--batch-size" },
+        description = "Number of replicates fitted together by a single matrix product, 0 to fit each replicate separately. Default : ${DEFAULT-VALUE}.",
+        defaultValue = "0"
+    )
+    private int batchSize;
+
+    @CommandLine.Option(
+        names = { "--seed" },
+        description = "Master seed of the replicate random streams. Default : random."
+    )
+    private Long seed;
+
+    @CommandLine.Option(
+        names = { "--sampler" },
+        description = "Standard normal innovations : independent pseudo random draws or randomized Sobol points, the number of replicates of a cell being then rounded up to a power of two. Antithetic pairs do not reduce the variance of squared errors, which are even in the noise. Valid values : PSEUDO, SOBOL. Default : ${DEFAULT-VALUE}.",
+        defaultValue = "PSEUDO"
+    )
+    private SamplerType samplerType;
+
     @CommandLine.Option(
         names = {"-h", "--help"},
         usageHelp = true,
@@ -55,12 +79,17 @@ public class Main implements Runnable {
 
     @Override
     public void run() {
+        if(samplerType == SamplerType.ANTITHETIC) {
+            throw new IllegalArgumentException("ANTITHETIC does not reduce the variance of squared errors, use PSEUDO or SOBOL");
+        }
         double angle = 38;
         Similarity simpleRotationTransformation = testTransformationFactory.getSimpleRotationTransformation(angle);
         FiducialSet randomFromTransformationFiducialSet = testFiducialSetFactory.getRandomFromTransformation(
             simpleRotationTransformation, n * n + 1
         );
         Matrix error = new Matrix(p * n, 6);
+        ReplicateRandomFactory replicateRandomFactory = new ReplicateRandomFactory(seed != null ? seed : new SplittableRandom().nextLong());
+        System.err.println(String.format("seed: %d", replicateRandomFactory.getSeed()));
         ExecutorService executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
         CompletionService<Runnable> completionService = new ExecutorCompletionService<>(executorService);
         for(int i = 0; i < p; i++) {
@@ -68,28 +97,49 @@ public class Main implements Runnable {
             for(int j = 0; j < n; j++) {
                 final int finalJ = j;
                 completionService.submit(() -> {
-                    int nbIter = (finalI + 1) * (finalI + 1) * (finalI + 1);
+                    int nbIter = getNbIter((finalI + 1) * (finalI + 1) * (finalI + 1));
                     int nbPoints = (finalJ + 1) * (finalJ + 1);
                     Mean mean = new Mean();
                     Variance variance = new Variance();
                     Mean mean2 = new Mean();
                     Variance variance2 = new Variance();
-                    for(int current = 0; current < nbIter; current++) {
-                        FiducialSet currentFiducialSet = randomFromTransformationFiducialSet.clone();
-                        testFiducialSetFactory.addGaussianNoise(
-                            currentFiducialSet.getTargetDataset(), (float) Math.sqrt(s)
+                    InnovationSequence innovationSequence = innovationSequenceFactory.getFrom(
+                        samplerType,
+                        new ReplicateRandomFactory(replicateRandomFactory.getFrom(finalI * n + finalJ).nextLong())
+                    );
+                    if(batchSize > 0) {
+                        int size = randomFromTransformationFiducialSet.getN();
+                        double[][] source = randomFromTransformationFiducialSet.getSourceDataset().getMatrix().getArray();
+                        double[][] target = randomFromTransformationFiducialSet.getTargetDataset().getMatrix().getArray();
+                        AffineReplicateBatch batch = new AffineReplicateBatch(
+                            Arrays.copyOfRange(source, size - nbPoints, size),
+                            Arrays.copyOfRange(target, size - nbPoints, size),
+                            source[0],
+                            target[0],
+                            Math.sqrt(s),
+                            Math.min(batchSize, nbIter)
                         );
-                        Point targetRemovedPoint = currentFiducialSet.getTargetDataset().removePoint(0);
-                        Point sourceRemovedPoint = currentFiducialSet.getSourceDataset().removePoint(0);
-                        for(int k = n * n; k > nbPoints; k--) {
-                            currentFiducialSet.remove(0);
+                        for(int current = 0; current < nbIter; current += batch.getBatchSize()) {
+                            batch.simulate(current, Math.min(batch.getBatchSize(), nbIter - current), innovationSequence, (squaredError) -> {
+                                mean.increment(squaredError);
+                                variance.increment(squaredError);
+                                mean2.increment(Math.sqrt(squaredError));
+                                variance2.increment(Math.sqrt(squaredError));
+                            });
+                        }
+                    } else {
+                        int dimension = randomFromTransformationFiducialSet.getTargetDataset().getMatrix().getColumnDimension();
+                        double[] innovations = new double[(nbPoints + 1) * dimension];
+                        for(int current = 0; current < nbIter; current++) {
+                            innovationSequence.fill(current, innovations);
+                            double squaredError = affineReplicateRefit.getSquaredError(
+                                randomFromTransformationFiducialSet, nbPoints, Math.sqrt(s), innovations
+                            );
+                            mean.increment(squaredError);
+                            variance.increment(squaredError);
+                            mean2.increment(Math.sqrt(squaredError));
+                            variance2.increment(Math.sqrt(squaredError));
                         }
-                        AffineTransformation compute = affineTransformationComputer.compute(currentFiducialSet);
-                        Point minus = targetRemovedPoint.minus(compute.apply(sourceRemovedPoint));
-                        mean.increment(minus.getSumOfSquare());
-                        variance.increment(minus.getSumOfSquare());
-                        mean2.increment(Math.sqrt(minus.getSumOfSquare()));
-                        variance2.increment(Math.sqrt(minus.getSumOfSquare()));
                     }
 
                     error.set(finalI * n + finalJ, 0, nbIter);
@@ -115,6 +165,16 @@ public class Main implements Runnable {
         error.print(1,5);
     }
 
+    /**
+     * Sobol points only balance over powers of two.
+     */
+    private int getNbIter(int nbIter) {
+        if(samplerType == SamplerType.SOBOL && nbIter > 1) {
+            return Integer.highestOneBit(nbIter - 1) << 1;
+        }
+        return nbIter;
+    }
+
     public static void main(String ... args){
         new CommandLine(new Main()).execute(args);
     }
@@ -130,7 +190,12 @@ public class Main implements Runnable {
     }
 
     @Inject
-    public void setAffineTransformationComputer(AffineTransformationComputer affineTransformationComputer) {
-        this.affineTransformationComputer = affineTransformationComputer;
+    public void setAffineReplicateRefit(AffineReplicateRefit affineReplicateRefit) {
+        this.affineReplicateRefit = affineReplicateRefit;
+    }
+
+    @Inject
+    public void setInnovationSequenceFactory(InnovationSequenceFactory innovationSequenceFactory) {
+        this.innovationSequenceFactory = innovationSequenceFactory;
     }
 }
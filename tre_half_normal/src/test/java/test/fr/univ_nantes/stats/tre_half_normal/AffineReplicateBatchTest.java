@@ -0,0 +1,77 @@
+package test.fr.univ_nantes.stats.tre_half_normal;
+
+import fr.univ_nantes.ec_clem.fixtures.fiducialset.TestFiducialSetFactory;
+import fr.univ_nantes.ec_clem.fixtures.transformation.TestTransformationFactory;
+import fr.univ_nantes.stats.monte_carlo.noise.InnovationSequence;
+import fr.univ_nantes.stats.monte_carlo.noise.PseudoRandomInnovationSequence;
+import fr.univ_nantes.stats.monte_carlo.noise.ReplicateRandomFactory;
+import fr.univ_nantes.stats.tre_half_normal.AffineReplicateBatch;
+import fr.univ_nantes.stats.tre_half_normal.AffineReplicateRefit;
+import org.testng.annotations.Test;
+import plugins.perrine.easyclemv0.fiducialset.FiducialSet;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.testng.Assert.assertEquals;
+
+public class AffineReplicateBatchTest {
+
+    private static final int NB_POINTS = 9;
+    private static final int NB_REPLICATES = 20;
+    private static final int BATCH_SIZE = 8;
+    private static final double SIGMA = 2;
+
+    private TestFiducialSetFactory testFiducialSetFactory;
+    private TestTransformationFactory testTransformationFactory;
+    private AffineReplicateRefit affineReplicateRefit;
+
+    public AffineReplicateBatchTest() {
+        DaggerAffineReplicateBatchTestComponent.create().inject(this);
+    }
+
+    @Test
+    void testSameAsRefit() {
+        FiducialSet fiducialSet = testFiducialSetFactory.getRandomFromTransformation(
+            testTransformationFactory.getSimpleRotationTransformation(38), NB_POINTS + 4
+        );
+        int size = fiducialSet.getN();
+        double[][] source = fiducialSet.getSourceDataset().getMatrix().getArrayCopy();
+        double[][] target = fiducialSet.getTargetDataset().getMatrix().getArrayCopy();
+        AffineReplicateBatch batch = new AffineReplicateBatch(
+            Arrays.copyOfRange(source, size - NB_POINTS, size),
+            Arrays.copyOfRange(target, size - NB_POINTS, size),
+            source[0],
+            target[0],
+            SIGMA,
+            BATCH_SIZE
+        );
+        InnovationSequence innovationSequence = new PseudoRandomInnovationSequence(new ReplicateRandomFactory(42));
+        List<Double> batched = new ArrayList<>();
+        for(int current = 0; current < NB_REPLICATES; current += batch.getBatchSize()) {
+            batch.simulate(current, Math.min(batch.getBatchSize(), NB_REPLICATES - current), innovationSequence, batched::add);
+        }
+        assertEquals(batched.size(), NB_REPLICATES);
+        double[] innovations = new double[(NB_POINTS + 1) * source[0].length];
+        for(int k = 0; k < NB_REPLICATES; k++) {
+            innovationSequence.fill(k, innovations);
+            double squaredError = affineReplicateRefit.getSquaredError(fiducialSet, NB_POINTS, SIGMA, innovations);
+            assertEquals(batched.get(k), squaredError, 1e-6 * Math.max(1, squaredError));
+        }
+    }
+
+    @Inject
+    public void setTestFiducialSetFactory(TestFiducialSetFactory testFiducialSetFactory) {
+        this.testFiducialSetFactory = testFiducialSetFactory;
+    }
+
+    @Inject
+    public void setTestTransformationFactory(TestTransformationFactory testTransformationFactory) {
+        this.testTransformationFactory = testTransformationFactory;
+    }
+
+    @Inject
+    public void setAffineReplicateRefit(AffineReplicateRefit affineReplicateRefit) {
+        this.affineReplicateRefit = affineReplicateRefit;
+    }
+}
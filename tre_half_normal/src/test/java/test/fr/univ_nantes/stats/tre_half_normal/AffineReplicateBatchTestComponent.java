@@ -0,0 +1,8 @@
+package test.fr.univ_nantes.stats.tre_half_normal;
+
+import dagger.Component;
+
+@Component
+public interface AffineReplicateBatchTestComponent {
+    void inject(AffineReplicateBatchTest affineReplicateBatchTest);
+}